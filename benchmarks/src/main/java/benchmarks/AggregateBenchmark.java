@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the read-only passes: calculateAverageHeight, and displayForest's output formatting (printed to a
+ * discarding stream).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregateBenchmark {
+    private Object forest;
+
+    @Setup(Level.Trial)
+    public void loadForest(ForestState state){
+        forest = state.freshForest();
+    }
+
+    @Benchmark
+    public double calculateAverageHeight(){
+        return ForestApi.calculateAverageHeight(forest);
+    }
+
+    @Benchmark
+    public void displayForest(QuietConsole console){
+        ForestApi.displayForest(forest);
+    }
+}
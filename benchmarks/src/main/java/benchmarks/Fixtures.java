@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the fixture files the benchmarks run against. Each CSV looks like the bundled Acadian.csv and Montane.csv:
+ * a mixed-case species, a planting year since 2000, a whole-number height and a growth rate percentage with one
+ * decimal. Files are generated once per size, from a fixed seed, under target/fixtures (or the directory named by the
+ * fixtures.dir system property) and reused by later runs.
+ */
+final class Fixtures {
+    private static final Path DIRECTORY = Paths.get(System.getProperty("fixtures.dir", "target/fixtures"));
+    private static final String[] SPECIES = {"Birch", "Fir", "Maple"};
+
+    private Fixtures(){
+    }
+
+    /**
+     * Retrieves the CSV fixture with the given number of trees, generating it if needed.
+     */
+    static File csv(int trees){
+        Path file = DIRECTORY.resolve("forest-" + trees + ".csv");
+        try {
+            if (!Files.exists(file)){
+                Files.createDirectories(DIRECTORY);
+                Path temporary = DIRECTORY.resolve("forest-" + trees + ".csv.tmp");
+                SplittableRandom random = new SplittableRandom(trees);
+                try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.US_ASCII)) {
+                    for (int i = 0; i < trees; i++){
+                        int rate = 30 + random.nextInt(180);
+                        writer.write(SPECIES[random.nextInt(SPECIES.length)]);
+                        writer.write(',');
+                        writer.write(Integer.toString(2000 + random.nextInt(25)));
+                        writer.write(',');
+                        writer.write(Integer.toString(10 + random.nextInt(90)));
+                        writer.write(',');
+                        writer.write(Integer.toString(rate / 10));
+                        writer.write('.');
+                        writer.write(Integer.toString(rate % 10));
+                        writer.write('\n');
+                    }
+                }
+                Files.move(temporary, file);
+            }
+            return file.toFile();
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }//End of csv method
+
+    /**
+     * Retrieves the snapshot fixture with the given number of trees, saving it from the CSV fixture if needed.
+     */
+    static Path snapshot(int trees){
+        Path file = DIRECTORY.resolve("forest-" + trees + ".db");
+        if (!Files.exists(file)){
+            ForestApi.saveForest(loadCsv(trees), file);
+        }
+        return file;
+    }
+
+    /**
+     * Loads a fresh forest from the CSV fixture with the given number of trees.
+     */
+    static Object loadCsv(int trees){
+        Object forest = ForestApi.newForest("forest-" + trees);
+        ForestApi.readTreesFromCSV(forest, csv(trees));
+        return forest;
+    }
+
+    /**
+     * Creates a scratch file path for benchmarks that write files.
+     */
+    static Path scratch(String name){
+        try {
+            Files.createDirectories(DIRECTORY);
+            return DIRECTORY.resolve(name);
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Calls into the forest program, whose classes live in the default package and so cannot be imported from here.
+ * Every entry point is a static final method handle, which the JIT inlines like a direct call.
+ */
+final class ForestApi {
+    private static final Class<?> FOREST = load("Forest");
+    private static final Class<?> SNAPSHOT = load("ForestSnapshot");
+    private static final Class<?> REAP_SINK = load("ReapSink");
+    private static final Class<?> KERNELS = load("ColumnKernels");
+
+    private static final MethodHandle NEW_FOREST = constructor(FOREST, MethodType.methodType(void.class, String.class));
+    private static final MethodHandle READ_TREES_FROM_CSV = method(FOREST, "readTreesFromCSV", MethodType.methodType(List.class, File.class));
+    private static final MethodHandle SIMULATE_YEARLY_GROWTH = method(FOREST, "simulateYearlyGrowth", MethodType.methodType(void.class));
+    private static final MethodHandle REAP_FOREST = method(FOREST, "reapForest", MethodType.methodType(void.class, double.class));
+    private static final MethodHandle REAP_FOREST_TO_SINK = method(FOREST, "reapForest", MethodType.methodType(void.class, double.class, REAP_SINK));
+    private static final MethodHandle NEW_REAP_SUMMARY = constructor(load("ReapSummary"), MethodType.methodType(void.class));
+    private static final MethodHandle NEW_WRITER_REAP_SINK = constructor(load("WriterReapSink"), MethodType.methodType(void.class, Writer.class));
+    private static final MethodHandle CALCULATE_AVERAGE_HEIGHT = method(FOREST, "calculateAverageHeight", MethodType.methodType(double.class));
+    private static final MethodHandle DISPLAY_FOREST = method(FOREST, "displayForest", MethodType.methodType(void.class));
+    private static final MethodHandle GET_TREE_COUNT = method(FOREST, "getTreeCount", MethodType.methodType(int.class));
+    private static final MethodHandle KERNELS_FOR_NAME = staticMethod(KERNELS, "forName", MethodType.methodType(KERNELS, String.class));
+    private static final MethodHandle KERNELS_NAME = method(KERNELS, "getName", MethodType.methodType(String.class));
+    private static final MethodHandle GROW = method(KERNELS, "grow", MethodType.methodType(void.class, double[].class, double[].class, int.class, int.class));
+    private static final MethodHandle SUM = method(KERNELS, "sum", MethodType.methodType(double.class, double[].class, int.class, int.class));
+    private static final MethodHandle FIND_TALLER_THAN = method(KERNELS, "findTallerThan", MethodType.methodType(int.class, double[].class, int.class, int.class, double.class));
+    private static final MethodHandle WRITE_SNAPSHOT = staticMethod(SNAPSHOT, "write", MethodType.methodType(void.class, FOREST, Path.class));
+    private static final MethodHandle READ_SNAPSHOT = staticMethod(SNAPSHOT, "read", MethodType.methodType(FOREST, Path.class));
+
+    private ForestApi(){
+    }
+
+    static Object newForest(String name){
+        try {
+            return NEW_FOREST.invoke(name);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static List<?> readTreesFromCSV(Object forest, File csvFile){
+        try {
+            return (List<?>) READ_TREES_FROM_CSV.invoke(forest, csvFile);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static void simulateYearlyGrowth(Object forest){
+        try {
+            SIMULATE_YEARLY_GROWTH.invoke(forest);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static void reapForest(Object forest, double height){
+        try {
+            REAP_FOREST.invoke(forest, height);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static void reapForest(Object forest, double height, Object sink){
+        try {
+            REAP_FOREST_TO_SINK.invoke(forest, height, sink);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Creates a reap sink by name: console, writer (formatting into a discarding writer) or summary.
+     */
+    static Object reapSink(String name){
+        try {
+            switch (name){
+                case "console":
+                    return REAP_SINK.getField("CONSOLE").get(null);
+                case "writer":
+                    return NEW_WRITER_REAP_SINK.invoke(Writer.nullWriter());
+                case "summary":
+                    return NEW_REAP_SUMMARY.invoke();
+                default:
+                    throw new IllegalArgumentException("Unknown reap sink " + name);
+            }
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static double calculateAverageHeight(Object forest){
+        try {
+            return (double) CALCULATE_AVERAGE_HEIGHT.invoke(forest);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static void displayForest(Object forest){
+        try {
+            DISPLAY_FOREST.invoke(forest);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static int getTreeCount(Object forest){
+        try {
+            return (int) GET_TREE_COUNT.invoke(forest);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Looks up column kernels by name, vector or scalar.
+     */
+    static Object kernels(String name){
+        try {
+            return KERNELS_FOR_NAME.invoke(name);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static String kernelsName(Object kernels){
+        try {
+            return (String) KERNELS_NAME.invoke(kernels);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static void grow(Object kernels, double[] heights, double[] growthRates, int from, int to){
+        try {
+            GROW.invoke(kernels, heights, growthRates, from, to);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static double sum(Object kernels, double[] heights, int from, int to){
+        try {
+            return (double) SUM.invoke(kernels, heights, from, to);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    static int findTallerThan(Object kernels, double[] heights, int from, int to, double height){
+        try {
+            return (int) FIND_TALLER_THAN.invoke(kernels, heights, from, to, height);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Writes a full snapshot, as saveForest() does for a forest without a journal.
+     */
+    static void saveForest(Object forest, Path file){
+        try {
+            WRITE_SNAPSHOT.invoke(forest, file);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Reads a snapshot, as loadForest() does once it has asked for the forest name.
+     */
+    static Object loadForest(Path file){
+        try {
+            return READ_SNAPSHOT.invoke(file);
+        } catch (Throwable e){
+            throw rethrow(e);
+        }
+    }
+
+    private static Class<?> load(String name){
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e){
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, MethodType type){
+        try {
+            return MethodHandles.lookup().findConstructor(owner, type);
+        } catch (ReflectiveOperationException e){
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle method(Class<?> owner, String name, MethodType type){
+        try {
+            //Private helpers such as calculateAverageHeight are benchmarked too
+            return MethodHandles.privateLookupIn(owner, MethodHandles.lookup()).findVirtual(owner, name, type);
+        } catch (ReflectiveOperationException e){
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle staticMethod(Class<?> owner, String name, MethodType type){
+        try {
+            return MethodHandles.lookup().findStatic(owner, name, type);
+        } catch (ReflectiveOperationException e){
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e){
+        if (e instanceof RuntimeException){
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error){
+            throw (Error) e;
+        }
+        return new RuntimeException(e);
+    }
+}
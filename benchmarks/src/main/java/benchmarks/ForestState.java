@@ -0,0 +1,35 @@
+package benchmarks;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The forest size every benchmark is run at, and the fixture files for that size.
+ */
+@State(Scope.Benchmark)
+public class ForestState {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int trees;
+
+    File csv;
+    Path snapshot;
+
+    @Setup(Level.Trial)
+    public void prepareFixtures(){
+        csv = Fixtures.csv(trees);
+        snapshot = Fixtures.snapshot(trees);
+    }
+
+    /**
+     * Loads a fresh copy of the forest from its snapshot, the fastest way to reset a forest between runs.
+     */
+    Object freshForest(){
+        return ForestApi.loadForest(snapshot);
+    }
+}
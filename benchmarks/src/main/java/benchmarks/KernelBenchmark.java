@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the scalar and vector column kernels on their own, over columns that fit in cache (4096 rows, one growth
+ * chunk) and columns that do not. The vector kernels fall back to the scalar ones if the JVM has no Vector API.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class KernelBenchmark {
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    @Param({"4096", "1000000"})
+    public int rows;
+
+    private Object kernel;
+    private double[] heights;
+    private double[] growthRates;
+
+    @Setup(Level.Trial)
+    public void fillColumns(){
+        kernel = ForestApi.kernels(kernels);
+        System.out.println("Running " + ForestApi.kernelsName(kernel) + " kernels");
+        SplittableRandom random = new SplittableRandom(42);
+        heights = new double[rows];
+        growthRates = new double[rows];
+        for (int row = 0; row < rows; row++){
+            heights[row] = random.nextDouble(10, 99);
+            //Small enough that the heights stay realistic over every iteration
+            growthRates[row] = random.nextDouble(0.1, 0.2) * 1e-9;
+        }
+    }
+
+    @Benchmark
+    public void grow(){
+        ForestApi.grow(kernel, heights, growthRates, 0, rows);
+    }
+
+    @Benchmark
+    public double sum(){
+        return ForestApi.sum(kernel, heights, 0, rows);
+    }
+
+    @Benchmark
+    public int findTallerThan(){
+        //No tree is this tall, so the whole column is searched
+        return ForestApi.findTallerThan(kernel, heights, 0, rows, Double.MAX_VALUE);
+    }
+}
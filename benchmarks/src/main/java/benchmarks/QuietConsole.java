@@ -0,0 +1,30 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Sends System.out to a stream that discards everything, so benchmarks of methods that print measure the formatting
+ * rather than the terminal.
+ */
+@State(Scope.Benchmark)
+public class QuietConsole {
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void silence(){
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restore(){
+        System.setOut(console);
+    }
+}
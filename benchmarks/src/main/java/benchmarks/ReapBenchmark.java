@@ -0,0 +1,50 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Forest.reapForest with each kind of reap sink: the console (printing to a discarding stream), a buffered
+ * writer, and a counts-only summary. The forest is reloaded before every invocation, since a reap replaces the tall
+ * trees it measures.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReapBenchmark {
+    //Fixture heights run from 10 to 99, so this reaps roughly two trees in five
+    @Param({"60"})
+    public double height;
+
+    @Param({"console", "writer", "summary"})
+    public String sink;
+
+    private Object forest;
+    private Object reapSink;
+
+    @Setup(Level.Invocation)
+    public void loadForest(ForestState state){
+        forest = state.freshForest();
+        reapSink = ForestApi.reapSink(sink);
+    }
+
+    @Benchmark
+    public void reapForest(QuietConsole console){
+        ForestApi.reapForest(forest, height, reapSink);
+    }
+}
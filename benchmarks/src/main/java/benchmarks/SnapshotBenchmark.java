@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the full snapshot written by saveForest and read by loadForest, separately and as a round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+    private Object forest;
+    private Path scratch;
+
+    @Setup(Level.Trial)
+    public void prepare(ForestState state){
+        forest = state.freshForest();
+        scratch = Fixtures.scratch("snapshot-benchmark-" + state.trees + ".db");
+    }
+
+    @Benchmark
+    public void saveForest(){
+        ForestApi.saveForest(forest, scratch);
+    }
+
+    @Benchmark
+    public Object loadForest(ForestState state){
+        return ForestApi.loadForest(state.snapshot);
+    }
+
+    @Benchmark
+    public Object roundTrip(){
+        ForestApi.saveForest(forest, scratch);
+        return ForestApi.loadForest(scratch);
+    }
+}
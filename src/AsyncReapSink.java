@@ -0,0 +1,197 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The AsyncReapSink class hands reaped trees to another sink on a background thread, so a slow sink such as the
+ * console does not hold up the reap. Trees are copied into fixed batches of primitive columns, and a small pool of
+ * batches is reused, so the reap allocates nothing; if the background thread falls behind by the whole pool, the reap
+ * waits for it. The target sink is only ever called from the background thread. If the target throws, the rest of
+ * the trees are dropped rather than delivered, and the error is thrown from every later flush() and close().
+ */
+public class AsyncReapSink implements ReapSink, AutoCloseable {
+    private static final int BATCH_SIZE = 1024;
+    private static final int DEFAULT_BATCHES = 4;
+
+    private final ReapSink target;
+    private final BlockingQueue<Batch> full;
+    private final BlockingQueue<Batch> free;
+    private final Thread worker;
+    private Batch current;
+    private long submitted;
+    private long delivered;
+    //The first error the target threw
+    private Throwable failure;
+
+    /**
+     * Creates a sink delivering to the given sink with a default number of batches.
+     *
+     * @param target The sink to deliver the reaped trees to.
+     */
+    public AsyncReapSink(ReapSink target){
+        this(target, DEFAULT_BATCHES);
+    }
+
+    /**
+     * Creates a sink delivering to the given sink.
+     *
+     * @param target The sink to deliver the reaped trees to.
+     * @param batches The number of batches of trees that may be waiting at once.
+     */
+    public AsyncReapSink(ReapSink target, int batches){
+        if (batches < 2){
+            throw new IllegalArgumentException("At least two batches are needed: " + batches);
+        }
+        this.target = target;
+        this.full = new ArrayBlockingQueue<>(batches);
+        this.free = new ArrayBlockingQueue<>(batches);
+        for (int i = 1; i < batches; i++){
+            this.free.add(new Batch());
+        }
+        this.current = new Batch();
+        this.worker = new Thread(this::deliver, "reap-sink");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void treeReaped(Tree reaped, Tree replacement){
+        current.add(reaped, replacement);
+        if (current.count == BATCH_SIZE){
+            handOff();
+        }
+    }
+
+    /**
+     * Waits until every tree received so far has been delivered, then flushes the target sink.
+     *
+     * @throws RuntimeException If the target threw while delivering the trees.
+     */
+    @Override
+    public void flush(){
+        if (current.count > 0){
+            handOff();
+        }
+        Throwable error;
+        synchronized (this){
+            while (delivered < submitted){
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            error = failure;
+        }
+        if (error instanceof RuntimeException){
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error){
+            throw (Error) error;
+        }
+        if (error != null){
+            throw new IllegalStateException("The reap sink failed", error);
+        }
+        //The worker is idle until the next batch, so the target can be flushed from here
+        target.flush();
+    }//End of flush method
+
+    /**
+     * Delivers the remaining trees and stops the background thread.
+     *
+     * @throws RuntimeException If the target threw while delivering the trees.
+     */
+    @Override
+    public void close(){
+        try {
+            flush();
+        } finally {
+            worker.interrupt();
+        }
+    }
+
+    private void handOff(){
+        try {
+            synchronized (this){
+                submitted++;
+            }
+            full.put(current);
+            current = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the reap sink", e);
+        }
+    }
+
+    /**
+     * Runs on the background thread, delivering each batch to the target and returning it to the pool. A batch is
+     * returned and counted even if the target throws, so neither the reap nor flush() waits on it forever.
+     */
+    private void deliver(){
+        Tree reaped = new Tree(null, 0, 0, 0);
+        Tree replacement = new Tree(null, 0, 0, 0);
+        boolean failed = false;
+        try {
+            while (true){
+                Batch batch = full.take();
+                try {
+                    for (int i = 0; i < batch.count && !failed; i++){
+                        batch.load(i, reaped, replacement);
+                        target.treeReaped(reaped, replacement);
+                    }
+                } catch (Throwable e) {
+                    failed = true;
+                    synchronized (this){
+                        failure = e;
+                    }
+                }
+                batch.count = 0;
+                free.put(batch);
+                synchronized (this){
+                    delivered++;
+                    notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            //Closed
+        }
+    }//End of deliver method
+
+    /**
+     * A batch of reaped trees and their replacements, stored as columns.
+     */
+    private static final class Batch {
+        private static final TreeSpecies[] SPECIES = TreeSpecies.values();
+
+        private final byte[] species = new byte[BATCH_SIZE * 2];
+        private final int[] years = new int[BATCH_SIZE * 2];
+        private final double[] heights = new double[BATCH_SIZE * 2];
+        private final double[] growthRates = new double[BATCH_SIZE * 2];
+        private int count;
+
+        void add(Tree reaped, Tree replacement){
+            store(count * 2, reaped);
+            store(count * 2 + 1, replacement);
+            count++;
+        }
+
+        void load(int index, Tree reaped, Tree replacement){
+            load(index * 2, reaped);
+            load(index * 2 + 1, replacement);
+        }
+
+        private void store(int row, Tree tree){
+            species[row] = (byte) tree.getSpecies().ordinal();
+            years[row] = tree.getYearOfPlanting();
+            heights[row] = tree.getHeight();
+            growthRates[row] = tree.getGrowthRate();
+        }
+
+        private void load(int row, Tree tree){
+            tree.setSpecies(SPECIES[species[row]]);
+            tree.setYearOfPlanting(years[row]);
+            tree.setHeight(heights[row]);
+            tree.setGrowthRate(growthRates[row]);
+        }
+    }
+}
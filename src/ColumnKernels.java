@@ -0,0 +1,130 @@
+/**
+ * The ColumnKernels class holds the inner loops that run over whole height and growth rate columns: a year of
+ * growth, the sum of the heights, and the search for the next tree over a reaping height.
+ * <p>
+ * These loops are written here once for plain Java and once, in VectorColumnKernels, with the incubating Vector API,
+ * which runs them a full SIMD register at a time (four doubles with AVX2, eight with AVX-512). The vector kernels are
+ * used when the JVM is started with --add-modules jdk.incubator.vector, unless the forest.kernels system property is
+ * set to scalar; otherwise these scalar kernels are used. Both give bit-for-bit the same results: growth is the same
+ * multiply and add on each row, never fused, and the sum adds the rows into eight stripes in the same order whatever
+ * the register width, then adds up the stripes the same way.
+ */
+public class ColumnKernels {
+    /**
+     * The plain Java kernels.
+     */
+    public static final ColumnKernels SCALAR = new ColumnKernels();
+
+    /**
+     * The kernels the columns use: vector kernels if they are available and not turned off, otherwise scalar ones.
+     */
+    public static final ColumnKernels DEFAULT = forName(System.getProperty("forest.kernels", "vector"));
+
+    //Number of partial sums the heights are striped across
+    static final int STRIPES = 8;
+
+    ColumnKernels(){
+    }
+
+    /**
+     * Looks up kernels by name, falling back to the scalar kernels if the vector ones are asked for but the
+     * jdk.incubator.vector module is not loaded.
+     *
+     * @param name Either vector or scalar.
+     * @return The kernels.
+     */
+    public static ColumnKernels forName(String name){
+        switch (name){
+            case "scalar":
+                return SCALAR;
+            case "vector":
+                if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()){
+                    return SCALAR;
+                }
+                try {
+                    //Loaded by name so the class is never touched on a JVM without the module
+                    return (ColumnKernels) Class.forName("VectorColumnKernels").getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    return SCALAR;
+                }
+            default:
+                throw new IllegalArgumentException("Unknown kernels " + name + ", expected vector or scalar");
+        }
+    }//End of forName method
+
+    /**
+     * Getter method to get the name of the kernels.
+     *
+     * @return The name, scalar or vector with the register width, such as vector-256.
+     */
+    public String getName(){
+        return "scalar";
+    }
+
+    /**
+     * Grows the trees in a range of rows by one year, as Tree.heightAfterOneYear does.
+     *
+     * @param heights The height column.
+     * @param growthRates The growth rate column.
+     * @param from The first row to grow.
+     * @param to The row after the last one to grow.
+     */
+    public void grow(double[] heights, double[] growthRates, int from, int to){
+        for (int index = from; index < to; index++){
+            heights[index] = Tree.heightAfterOneYear(heights[index], growthRates[index]);
+        }
+    }
+
+    /**
+     * Adds up the heights in a range of rows, striped eight ways.
+     *
+     * @param heights The height column.
+     * @param from The first row to add.
+     * @param to The row after the last one to add.
+     * @return The total height of the rows.
+     */
+    public double sum(double[] heights, int from, int to){
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+        int index = from;
+        for (; index <= to - STRIPES; index += STRIPES){
+            s0 += heights[index];
+            s1 += heights[index + 1];
+            s2 += heights[index + 2];
+            s3 += heights[index + 3];
+            s4 += heights[index + 4];
+            s5 += heights[index + 5];
+            s6 += heights[index + 6];
+            s7 += heights[index + 7];
+        }
+        double total = combine(s0, s1, s2, s3, s4, s5, s6, s7);
+        for (; index < to; index++){
+            total += heights[index];
+        }
+        return total;
+    }//End of sum method
+
+    /**
+     * Finds the first row in a range taller than a height.
+     *
+     * @param heights The height column.
+     * @param from The first row to look at.
+     * @param to The row after the last one to look at.
+     * @param height The height to look for trees over.
+     * @return The first row taller than the height, or to if there is none.
+     */
+    public int findTallerThan(double[] heights, int from, int to, double height){
+        for (int index = from; index < to; index++){
+            if (heights[index] > height){
+                return index;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Adds up the eight stripes of a sum pairwise, in the order both kinds of kernels use.
+     */
+    static double combine(double s0, double s1, double s2, double s3, double s4, double s5, double s6, double s7){
+        return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The ConcurrentColumns class lets a forest held in TreeColumns be read by any number of threads while one thread at
+ * a time changes it. Readers never lock: they take the latest published ForestView and read that. Writers lock
+ * each other out, change the columns, and publish a new view when they finish.
+ * <p>
+ * Views share the column arrays with the forest instead of copying them (copy-on-write). Appending rows writes past
+ * the end of every published view, so it never copies. A change to existing rows first detaches the columns it
+ * touches, by copying them, if a published view still holds them. A change detaches once, before it writes its
+ * first row, so a change is copied at most once however many rows it writes. Growth only detaches the heights;
+ * reaping and cutting detach every column.
+ */
+public class ConcurrentColumns {
+    private final TreeColumns columns;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile ForestView published;
+    private long epoch;
+    private boolean heightsShared;
+    private boolean othersShared;
+
+    /**
+     * Starts publishing views of the given columns.
+     *
+     * @param columns The columns of the forest.
+     */
+    public ConcurrentColumns(TreeColumns columns){
+        this.columns = columns;
+        writeLock.lock();
+        try {
+            publish(null);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the latest published view of the forest. It never waits for a writer.
+     *
+     * @return The current view.
+     */
+    public ForestView view(){
+        return this.published;
+    }
+
+    /**
+     * Waits for other writers to finish and starts a change to the forest.
+     */
+    void beginWrite(){
+        writeLock.lock();
+    }
+
+    /**
+     * Publishes the changed forest as a new view and lets the next writer in.
+     *
+     * @param statistics The forest's statistics to publish a summary of with the view, or null if it keeps none.
+     */
+    void endWrite(ForestStatistics statistics){
+        try {
+            publish(statistics);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Makes sure the height column is not shared with a published view, before heights are changed in place.
+     */
+    void detachHeights(){
+        if (heightsShared){
+            columns.heights = columns.heights.clone();
+            heightsShared = false;
+        }
+    }
+
+    /**
+     * Makes sure no column is shared with a published view, before rows are overwritten or moved.
+     */
+    void detachAll(){
+        detachHeights();
+        if (othersShared){
+            columns.species = columns.species.clone();
+            columns.growthRates = columns.growthRates.clone();
+            columns.years = columns.years.clone();
+            othersShared = false;
+        }
+    }
+
+    private void publish(ForestStatistics statistics){
+        ForestView view = new ForestView(columns.species, columns.heights, columns.growthRates, columns.years,
+                columns.size, ++epoch, null);
+        if (statistics != null){
+            //A range the statistics would have to go over a bin for is left to the summary to find from the view
+            view = new ForestView(columns.species, columns.heights, columns.growthRates, columns.years,
+                    columns.size, epoch, statistics.publishedSummary(view));
+        }
+        published = view;
+        heightsShared = true;
+        othersShared = true;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * The CsvRowError class describes one row of a tree CSV file that could not be loaded.
+ */
+public class CsvRowError {
+    private final long lineNumber;
+    private final String message;
+    private final String line;
+
+    /**
+     * Creates a description of a malformed row.
+     *
+     * @param lineNumber The line number of the row, starting at 1.
+     * @param message What was wrong with the row.
+     * @param line The text of the row.
+     */
+    public CsvRowError(long lineNumber, String message, String line){
+        this.lineNumber = lineNumber;
+        this.message = message;
+        this.line = line;
+    }
+
+    /**
+     * Retrieves the line number of the row.
+     *
+     * @return The line number of the row, starting at 1.
+     */
+    public long getLineNumber(){
+        return this.lineNumber;
+    }
+
+    /**
+     * Retrieves what was wrong with the row.
+     *
+     * @return The error message.
+     */
+    public String getMessage(){
+        return this.message;
+    }
+
+    /**
+     * Retrieves the text of the row.
+     *
+     * @return The row as it appeared in the file.
+     */
+    public String getLine(){
+        return this.line;
+    }
+
+    /**
+     * Returns a string representation of the error.
+     *
+     * @return A string containing the line number, the message and the row.
+     */
+    public String toString(){
+        return "line " + lineNumber + ": " + message + ": " + line;
+    }
+}
@@ -0,0 +1,264 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The CsvRowParser class parses rows of a tree CSV file (species,year,height,growth rate%) straight out of a byte
+ * buffer into tree columns. Fields are parsed in place: species names are matched byte by byte and numbers are
+ * read digit by digit, so a well-formed row does not create any strings. Rows are split as String.split(",") would
+ * split them, so empty fields after the fourth are ignored.
+ */
+final class CsvRowParser {
+    private static final TreeSpecies[] SPECIES = TreeSpecies.values();
+    private static final byte[][] SPECIES_NAMES = new byte[SPECIES.length][];
+    private static final int FIELD_COUNT = 4;
+    //Largest digit count whose value is always exact in a double mantissa
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[23];
+    //Per-thread scratch space for field boundaries, so parsing a row does not allocate
+    private static final ThreadLocal<int[]> FIELD_ENDS = ThreadLocal.withInitial(() -> new int[FIELD_COUNT]);
+
+    static {
+        for (int i = 0; i < SPECIES.length; i++){
+            SPECIES_NAMES[i] = SPECIES[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++){
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private CsvRowParser(){
+    }
+
+    /**
+     * Parses one row and appends it to the columns, or records an error if the row is malformed.
+     * Blank rows are skipped.
+     *
+     * @param buffer The buffer holding the row.
+     * @param start The index of the first byte of the row.
+     * @param end The index after the last byte of the row, not counting the line terminator.
+     * @param lineNumber The line number of the row, starting at 1.
+     * @param trees The columns to add the tree to.
+     * @param errors The list that malformed rows are reported to.
+     */
+    static void parseRow(ByteBuffer buffer, int start, int end, long lineNumber, TreeColumns trees, List<CsvRowError> errors){
+        //Drop a Windows line ending
+        if (end > start && buffer.get(end - 1) == '\r'){
+            end--;
+        }
+        if (isBlank(buffer, start, end)){
+            return;
+        }
+
+        //Find the field boundaries
+        int[] fieldEnds = FIELD_ENDS.get();
+        int fields = 0;
+        int rowEnd = end;
+        for (int i = start; i < end; i++){
+            if (buffer.get(i) == ','){
+                if (fields == FIELD_COUNT - 1){
+                    //Empty fields after the last one are dropped, as String.split(",") drops them
+                    if (!onlyCommas(buffer, i, end)){
+                        errors.add(error(buffer, start, end, lineNumber, "expected " + FIELD_COUNT + " fields"));
+                        return;
+                    }
+                    rowEnd = i;
+                    break;
+                }
+                fieldEnds[fields++] = i;
+            }
+        }
+        if (fields != FIELD_COUNT - 1){
+            errors.add(error(buffer, start, end, lineNumber, "expected " + FIELD_COUNT + " fields"));
+            return;
+        }
+        fieldEnds[fields] = rowEnd;
+
+        //Species (first field)
+        int speciesOrdinal = parseSpecies(buffer, start, fieldEnds[0]);
+        if (speciesOrdinal < 0){
+            errors.add(error(buffer, start, end, lineNumber, "unknown species"));
+            return;
+        }
+        //Year of planting (second field)
+        long year = parseInt(buffer, fieldEnds[0] + 1, fieldEnds[1]);
+        if (year == Long.MIN_VALUE){
+            errors.add(error(buffer, start, end, lineNumber, "invalid year of planting"));
+            return;
+        }
+        //Height (third field)
+        double height = parseDouble(buffer, fieldEnds[1] + 1, fieldEnds[2]);
+        if (Double.isNaN(height)){
+            errors.add(error(buffer, start, end, lineNumber, "invalid height"));
+            return;
+        }
+        //Growth rate (fourth field) as a percentage, converted to a decimal
+        double growthRate = parseDouble(buffer, fieldEnds[2] + 1, fieldEnds[3]);
+        if (Double.isNaN(growthRate)){
+            errors.add(error(buffer, start, end, lineNumber, "invalid growth rate"));
+            return;
+        }
+
+        trees.add(SPECIES[speciesOrdinal], height, growthRate / 100.0, (int) year);
+    }//End of parseRow method
+
+    /**
+     * Matches a species name case-insensitively, ignoring surrounding whitespace.
+     *
+     * @return The ordinal of the species, or -1 if no species matches.
+     */
+    private static int parseSpecies(ByteBuffer buffer, int start, int end){
+        start = skipLeadingSpace(buffer, start, end);
+        end = skipTrailingSpace(buffer, start, end);
+        for (int ordinal = 0; ordinal < SPECIES_NAMES.length; ordinal++){
+            byte[] name = SPECIES_NAMES[ordinal];
+            if (name.length != end - start){
+                continue;
+            }
+            int i = 0;
+            while (i < name.length && toUpperAscii(buffer.get(start + i)) == name[i]){
+                i++;
+            }
+            if (i == name.length){
+                return ordinal;
+            }
+        }
+        return -1;
+    }//End of parseSpecies method
+
+    /**
+     * Parses a whole number, ignoring surrounding whitespace.
+     *
+     * @return The number, or Long.MIN_VALUE if the field is not a valid int.
+     */
+    private static long parseInt(ByteBuffer buffer, int start, int end){
+        start = skipLeadingSpace(buffer, start, end);
+        end = skipTrailingSpace(buffer, start, end);
+        boolean negative = false;
+        if (start < end && (buffer.get(start) == '-' || buffer.get(start) == '+')){
+            negative = buffer.get(start) == '-';
+            start++;
+        }
+        if (start == end){
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++){
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9){
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1){
+                return Long.MIN_VALUE;
+            }
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }//End of parseInt method
+
+    /**
+     * Parses a decimal number, ignoring surrounding whitespace. Plain decimals with up to 15 digits are parsed in place
+     * and give exactly the value Double.parseDouble would; anything else (exponents, long mantissas) falls back to
+     * Double.parseDouble.
+     *
+     * @return The number, or NaN if the field is not a valid double.
+     */
+    private static double parseDouble(ByteBuffer buffer, int start, int end){
+        start = skipLeadingSpace(buffer, start, end);
+        end = skipTrailingSpace(buffer, start, end);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')){
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++){
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9'){
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0){
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0){
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == end && digits > 0 && digits <= MAX_FAST_DIGITS){
+            //Both operands are exact, so the division is correctly rounded just like Double.parseDouble
+            double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+            return negative ? -value : value;
+        }
+        return parseDoubleSlow(buffer, start, end);
+    }//End of parseDouble method
+
+    /**
+     * Parses a number that the in-place path does not handle.
+     *
+     * @return The number, or NaN if the field is not a valid double.
+     */
+    private static double parseDoubleSlow(ByteBuffer buffer, int start, int end){
+        if (start == end){
+            return Double.NaN;
+        }
+        try {
+            //A literal NaN in the file comes back as NaN and is reported as invalid like any other bad number
+            return Double.parseDouble(text(buffer, start, end));
+        } catch (NumberFormatException e){
+            return Double.NaN;
+        }
+    }
+
+    private static boolean onlyCommas(ByteBuffer buffer, int start, int end){
+        for (int i = start; i < end; i++){
+            if (buffer.get(i) != ','){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int start, int end){
+        return skipLeadingSpace(buffer, start, end) == end;
+    }
+
+    private static int skipLeadingSpace(ByteBuffer buffer, int start, int end){
+        while (start < end && buffer.get(start) <= ' ' && buffer.get(start) >= 0){
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipTrailingSpace(ByteBuffer buffer, int start, int end){
+        while (end > start && buffer.get(end - 1) <= ' ' && buffer.get(end - 1) >= 0){
+            end--;
+        }
+        return end;
+    }
+
+    private static byte toUpperAscii(byte b){
+        return b >= 'a' && b <= 'z' ? (byte) (b - ('a' - 'A')) : b;
+    }
+
+    /**
+     * Copies a range of the buffer into a string. Only used for error reports and unusual numbers.
+     */
+    private static String text(ByteBuffer buffer, int start, int end){
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++){
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static CsvRowError error(ByteBuffer buffer, int start, int end, long lineNumber, String message){
+        return new CsvRowError(lineNumber, message, text(buffer, start, end));
+    }
+}
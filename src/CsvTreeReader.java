@@ -0,0 +1,109 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The CsvTreeReader class streams a tree CSV file through a reusable byte buffer and parses each row in place into
+ * tree columns. Malformed rows are collected with their line numbers instead of being printed.
+ */
+public class CsvTreeReader {
+    /**
+     * Default size of the read buffer in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final int bufferSize;
+    private final List<CsvRowError> errors = new ArrayList<>();
+
+    /**
+     * Creates a reader with the default buffer size.
+     */
+    public CsvTreeReader(){
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a reader with the specified buffer size. Rows longer than the buffer are still read; the buffer grows
+     * to fit them.
+     *
+     * @param bufferSize The size of the read buffer in bytes.
+     */
+    public CsvTreeReader(int bufferSize){
+        if (bufferSize < 1){
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Reads every row of a CSV file and appends the trees to the columns.
+     *
+     * @param csvFile The CSV file to read.
+     * @param trees The columns to add the trees to.
+     * @throws IOException If the file cannot be read.
+     */
+    public void read(Path csvFile, TreeColumns trees) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+            long lineNumber = 1;
+            boolean firstRead = true;
+
+            while (true){
+                int read = channel.read(buffer);
+                int limit = buffer.position();
+                int lineStart = 0;
+                //Skip a UTF-8 byte order mark at the start of the file
+                if (firstRead && limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF){
+                    lineStart = 3;
+                }
+
+                //Parse every complete row in the buffer
+                for (int i = lineStart; i < limit; i++){
+                    if (buffer.get(i) == '\n'){
+                        CsvRowParser.parseRow(buffer, lineStart, i, lineNumber++, trees, errors);
+                        lineStart = i + 1;
+                    }
+                }
+
+                //Make room for the rest of the file's rows up front, estimated from the length of the first rows
+                if (firstRead && read >= 0 && lineStart > 0){
+                    double rowsPerByte = (lineNumber - 1) / (double) lineStart;
+                    long remaining = (long) Math.ceil((channel.size() - lineStart) * rowsPerByte);
+                    trees.ensureCapacity((int) Math.min(Integer.MAX_VALUE - 8, trees.size() + remaining));
+                }
+                firstRead = false;
+
+                if (read < 0){
+                    //The last row may not end with a newline
+                    if (lineStart < limit){
+                        CsvRowParser.parseRow(buffer, lineStart, limit, lineNumber, trees, errors);
+                    }
+                    break;
+                }
+
+                //Move the partial row to the front of the buffer, growing it if the row fills the whole buffer
+                buffer.limit(limit).position(lineStart);
+                if (lineStart == 0 && limit == buffer.capacity()){
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    larger.put(buffer);
+                    buffer = larger;
+                } else {
+                    buffer.compact();
+                }
+            }//End of while loop
+        }
+    }//End of read method
+
+    /**
+     * Retrieves the malformed rows found so far, in file order.
+     *
+     * @return The list of row errors.
+     */
+    public List<CsvRowError> getErrors(){
+        return this.errors;
+    }
+}
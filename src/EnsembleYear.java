@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+/**
+ * The EnsembleYear class holds how every replica of a ForestEnsemble stood after one year: its mean height, the number
+ * of trees it reaped that year and the share of its trees of each species. Each is kept sorted across the replicas, so
+ * any percentile of the outcomes can be read off, such as the median mean height or the 95th percentile of trees
+ * reaped.
+ */
+public class EnsembleYear {
+    private static final TreeSpecies[] SPECIES = TreeSpecies.values();
+
+    private final int year;
+    private final double[] meanHeights;
+    private final double[] reaped;
+    private final double[][] speciesShares;
+
+    /**
+     * Creates the outcomes of a year from each replica's values, sorting copies of them so the arrays passed in are
+     * left as they are.
+     *
+     * @param year The year, counting the first year grown as 1.
+     * @param meanHeights The mean height of each replica.
+     * @param reaped The number of trees each replica reaped in the year.
+     * @param speciesShares The share of each replica's trees of each species, by species.
+     */
+    EnsembleYear(int year, double[] meanHeights, double[] reaped, double[][] speciesShares){
+        this.year = year;
+        this.meanHeights = sorted(meanHeights);
+        this.reaped = sorted(reaped);
+        this.speciesShares = new double[speciesShares.length][];
+        for (int species = 0; species < speciesShares.length; species++){
+            this.speciesShares[species] = sorted(speciesShares[species]);
+        }
+    }
+
+    /**
+     * Getter method to get the year.
+     *
+     * @return The year, counting the first year grown as 1.
+     */
+    public int getYear(){
+        return this.year;
+    }
+
+    /**
+     * Getter method to get the number of replicas.
+     *
+     * @return The number of replicas.
+     */
+    public int getReplicas(){
+        return this.meanHeights.length;
+    }
+
+    /**
+     * Retrieves a percentile of the replicas' mean heights.
+     *
+     * @param percentile The percentage of replicas at or below the result, from 0 to 100.
+     * @return The mean height.
+     */
+    public double getMeanHeight(double percentile){
+        return valueAt(meanHeights, percentile);
+    }
+
+    /**
+     * Retrieves a percentile of the number of trees the replicas reaped in the year.
+     *
+     * @param percentile The percentage of replicas at or below the result, from 0 to 100.
+     * @return The number of trees reaped.
+     */
+    public double getReaped(double percentile){
+        return valueAt(reaped, percentile);
+    }
+
+    /**
+     * Retrieves a percentile of the share of the replicas' trees of a species.
+     *
+     * @param species The species.
+     * @param percentile The percentage of replicas at or below the result, from 0 to 100.
+     * @return The share of trees, from 0 to 1.
+     */
+    public double getSpeciesShare(TreeSpecies species, double percentile){
+        return valueAt(speciesShares[species.ordinal()], percentile);
+    }
+
+    /**
+     * Summarises the year by the 5th, 50th and 95th percentiles of each outcome.
+     *
+     * @return The summary.
+     */
+    @Override
+    public String toString(){
+        StringBuilder out = new StringBuilder("Year ").append(year).append(": mean height ");
+        appendRange(out, meanHeights, 2).append(", reaped ");
+        appendRange(out, reaped, 0);
+        for (TreeSpecies species : SPECIES){
+            out.append(", ").append(species).append(' ');
+            appendRange(out, speciesShares[species.ordinal()], 3);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Appends the 5th, 50th and 95th percentiles of an outcome as p5/p50/p95.
+     */
+    private static StringBuilder appendRange(StringBuilder out, double[] sorted, int decimals){
+        TreeFormat.appendFixed(out, valueAt(sorted, 5), decimals).append('/');
+        TreeFormat.appendFixed(out, valueAt(sorted, 50), decimals).append('/');
+        return TreeFormat.appendFixed(out, valueAt(sorted, 95), decimals);
+    }
+
+    /**
+     * Copies and sorts one outcome across the replicas.
+     */
+    private static double[] sorted(double[] values){
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Finds the value that a percentage of the sorted values are at or below.
+     */
+    private static double valueAt(double[] sorted, double percentile){
+        if (percentile < 0 || percentile > 100){
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -1,19 +1,117 @@
 import java.io.*;
-import java.time.Year;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
-public class Forest implements Serializable {
+public class Forest implements Serializable, Closeable {
+    //Matches the serialized form written before trees moved into columns, so existing .db files still load
+    private static final long serialVersionUID = -3214606662623834939L;
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("forestName", String.class),
+            new ObjectStreamField("trees", ArrayList.class)
+    };
+
+    /**
+     * Default share of rows belonging to cut trees at which the rows are compacted away. It can be set with the
+     * forest.cut.deadRowRatio system property.
+     */
+    public static final double DEFAULT_DEAD_ROW_RATIO =
+            Double.parseDouble(System.getProperty("forest.cut.deadRowRatio", "0.25"));
+
     private String forestName;
-    ArrayList<Tree> trees = new ArrayList<>();
+    transient TreeStore trees;
+    private transient GrowthEngine growthEngine;
+    private transient TreeGenerator generator;
+    private transient ForestJournal journal;
+    private transient ForestIndex index;
+    private transient ConcurrentColumns concurrent;
+    private transient ForestStatistics statistics;
+    //Rows of trees that have been cut but not yet compacted away
+    private transient RowBitmap deadRows;
+    private transient int deadCount;
+    //The live rows numbered around the dead ones, built by the first read after a cut and dropped by the next change
+    private transient LiveRows liveRows;
+    private transient double deadRowRatio;
 
     /**
      * Initializes the information for forest
      */
     public Forest(String forestName){
         this.forestName = forestName;
-        this.trees = new ArrayList<>(); // Initialize the list of trees
+        this.trees = new TreeColumns(); // Initialize the tree columns
+        this.growthEngine = GrowthEngine.DEFAULT;
+        this.generator = new TreeGenerator();
+        this.deadRowRatio = DEFAULT_DEAD_ROW_RATIO;
+    }
+
+    /**
+     * Initializes a forest whose random trees are drawn from a seed, so that runs given the same seed and the same
+     * commands plant and reap the same trees.
+     */
+    public Forest(String forestName, long seed){
+        this(forestName);
+        this.generator = new TreeGenerator(seed);
+    }
+
+    /**
+     * Initializes a forest around a store that has already been filled, such as columns read from a snapshot.
+     */
+    Forest(String forestName, TreeStore trees){
+        this.forestName = forestName;
+        this.trees = trees;
+        this.growthEngine = GrowthEngine.DEFAULT;
+        this.generator = new TreeGenerator();
+        this.deadRowRatio = DEFAULT_DEAD_ROW_RATIO;
+    }
+
+    /**
+     * Opens a snapshot file as a memory-mapped forest. The trees stay in the file rather than on the heap: only the
+     * parts of the file that are used get paged in, growth and reaping write back into the file in place, and
+     * saveForest() only has to refresh the checksum and flush. Trees cannot be added to or cut from a mapped forest.
+     * The forest holds the file open until it is closed.
+     * <p>
+     * A mapped forest keeps no journal, so if the snapshot's journal holds saved changes they are first replayed and
+     * written into the snapshot, leaving the journal empty. A journal holding unsaved changes is left for loadForest()
+     * to recover or discard, and the forest is not opened.
+     *
+     * @param snapshotFile The .db snapshot to open.
+     * @return The forest backed by the mapped file.
+     * @throws IOException If the file cannot be mapped or is not a valid snapshot, or its journal cannot be written
+     *                     into it.
+     */
+    public static Forest openMapped(Path snapshotFile) throws IOException {
+        String fileName = snapshotFile.getFileName().toString();
+        Path journalFile = snapshotFile.resolveSibling(
+                (fileName.endsWith(".db") ? fileName.substring(0, fileName.length() - 3) : fileName) + ".journal");
+        if (ForestJournal.hasRecords(journalFile, snapshotFile)){
+            Forest forest = ForestSnapshot.read(snapshotFile);
+            ForestJournal journal = ForestJournal.recover(journalFile, snapshotFile, forest);
+            if (journal.getUnsavedCount() > 0){
+                throw new IOException(journalFile + " holds " + journal.getUnsavedCount()
+                        + " unsaved changes; load the forest to recover or discard them before mapping it");
+            }
+            ForestSnapshot.write(forest, snapshotFile);
+            ForestJournal.create(journalFile, snapshotFile, forest.getTreeCount());
+        }
+        MappedTreeStore store = MappedTreeStore.open(snapshotFile);
+        return new Forest(store.getForestName(), store);
+    }
+
+    /**
+     * Closes the file behind a memory-mapped forest without saving it; changes not saved with saveForest() may or
+     * may not have reached the file. A forest held on the heap has nothing to close.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (trees instanceof MappedTreeStore){
+            ((MappedTreeStore) trees).close();
+        }
     }
 
     /**
@@ -25,237 +123,1376 @@ public class Forest implements Serializable {
         return this.forestName;
     }
 
+    /**
+     * Sets the engine used to simulate growth, for example one with a different parallelism threshold.
+     *
+     * @param growthEngine The engine to use.
+     */
+    public void setGrowthEngine(GrowthEngine growthEngine){
+        this.growthEngine = growthEngine;
+    }
+
+    /**
+     * Reseeds the forest's random trees, so the trees planted and reaped from here on are reproducible.
+     *
+     * @param seed The seed to draw random trees from.
+     */
+    public void setSeed(long seed){
+        this.generator = new TreeGenerator(seed);
+    }
+
+    /**
+     * Sets the share of rows belonging to cut trees at which they are compacted away. Cut trees are only marked dead
+     * at first, so cutting many trees one after another shifts the remaining trees once instead of once per cut; a
+     * ratio of 0 compacts after every cut.
+     *
+     * @param deadRowRatio The ratio, from 0 to 1.
+     */
+    public void setDeadRowRatio(double deadRowRatio){
+        if (!(deadRowRatio >= 0 && deadRowRatio <= 1)){
+            throw new IllegalArgumentException("Dead row ratio must be between 0 and 1: " + deadRowRatio);
+        }
+        this.deadRowRatio = deadRowRatio;
+    }
+
+    /**
+     * Takes the settings the forest keeps apart from its trees, which a snapshot of the trees does not hold.
+     *
+     * @return The forest's settings.
+     */
+    Settings getSettings(){
+        return new Settings(generator, growthEngine, deadRowRatio, index != null, statistics != null,
+                concurrent != null);
+    }
+
+    /**
+     * Gives the forest settings taken from another forest, such as the one its trees were copied from, continuing
+     * that forest's draw of random trees and rebuilding its indexes and statistics over these trees.
+     *
+     * @param settings The settings to give the forest.
+     */
+    void applySettings(Settings settings){
+        this.generator = settings.generator;
+        this.growthEngine = settings.growthEngine;
+        setDeadRowRatio(settings.deadRowRatio);
+        if (settings.indexed){
+            enableIndexes();
+        }
+        if (settings.statistics){
+            enableStatistics();
+        }
+        if (settings.concurrent){
+            enableConcurrentReads();
+        }
+    }
+
+    /**
+     * The settings a forest keeps apart from its trees: the generator its random trees are drawn from, its growth
+     * engine and dead row ratio, and whether it keeps indexes, statistics and concurrent reads.
+     */
+    static final class Settings {
+        private final TreeGenerator generator;
+        private final GrowthEngine growthEngine;
+        private final double deadRowRatio;
+        private final boolean indexed;
+        private final boolean statistics;
+        private final boolean concurrent;
+
+        private Settings(TreeGenerator generator, GrowthEngine growthEngine, double deadRowRatio, boolean indexed,
+                         boolean statistics, boolean concurrent){
+            this.generator = generator;
+            this.growthEngine = growthEngine;
+            this.deadRowRatio = deadRowRatio;
+            this.indexed = indexed;
+            this.statistics = statistics;
+            this.concurrent = concurrent;
+        }
+    }
+
+    /**
+     * Builds secondary indexes over the forest's trees, by species, height and year of planting, and keeps them up to
+     * date as trees are added, cut, grown and reaped. Indexed forests reap and answer findTrees queries without
+     * scanning every tree.
+     */
+    public void enableIndexes(){
+        beginWrite();
+        try {
+            compactRows();
+            if (this.index == null){
+                this.index = new ForestIndex(this.trees);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Drops the forest's secondary indexes.
+     */
+    public void disableIndexes(){
+        beginWrite();
+        try {
+            this.index = null;
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Starts keeping the forest's statistics (count, total, smallest and largest height, species counts and a height
+     * histogram) up to date as the forest changes, so getSummary() and the average shown by displayForest() no
+     * longer scan every tree. Growth collects the new heights in the same pass that grows them.
+     */
+    public void enableStatistics(){
+        beginWrite();
+        try {
+            compactRows();
+            if (this.statistics == null){
+                this.statistics = new ForestStatistics(this.trees);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Stops keeping the forest's statistics.
+     */
+    public void disableStatistics(){
+        beginWrite();
+        try {
+            this.statistics = null;
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Summarises the forest's trees. With statistics enabled this takes constant time; otherwise the trees are
+     * scanned once.
+     *
+     * @return The summary of the forest.
+     */
+    public ForestSummary getSummary(){
+        ConcurrentColumns concurrent = this.concurrent;
+        if (concurrent != null){
+            ForestView view = concurrent.view();
+            return view.getSummary() != null ? view.getSummary() : new ForestStatistics(view).summary();
+        }
+        TreeStore store = readable();
+        return this.statistics != null ? this.statistics.summary(store) : new ForestStatistics(store).summary();
+    }
+
+    /**
+     * Lets other threads read the forest while it is being changed. From here on, display, average, getTree, the
+     * find methods and getTreeCount read the latest published ForestView and never wait for a change in progress,
+     * while changes to the forest wait only for each other. Call this before the forest is shared between threads.
+     * Queries in this mode scan the view instead of using the secondary indexes, which only the writer may touch.
+     *
+     * @throws UnsupportedOperationException If the forest is memory-mapped.
+     */
+    public void enableConcurrentReads(){
+        if (!(trees instanceof TreeColumns)){
+            throw new UnsupportedOperationException("Only a forest held in memory can be read concurrently");
+        }
+        if (this.concurrent == null){
+            compactRows();
+            this.concurrent = new ConcurrentColumns((TreeColumns) trees);
+        }
+    }
+
+    /**
+     * Takes a consistent, read-only view of the forest's trees. With concurrent reads enabled this is the latest
+     * published view, which keeps its trees however the forest changes afterwards; otherwise it is a view of the
+     * trees as they are now, which is only valid until the forest next changes. Cut trees still waiting to be
+     * compacted away are left out by copying the live rows, without compacting the forest itself.
+     *
+     * @return The view of the trees.
+     * @throws UnsupportedOperationException If the forest is memory-mapped.
+     */
+    public ForestView snapshot(){
+        if (this.concurrent != null){
+            return this.concurrent.view();
+        }
+        if (!(trees instanceof TreeColumns)){
+            throw new UnsupportedOperationException("A memory-mapped forest cannot be viewed as columns");
+        }
+        TreeColumns columns = (TreeColumns) trees;
+        if (deadCount == 0){
+            return new ForestView(columns.species, columns.heights, columns.growthRates, columns.years, columns.size,
+                    0, null);
+        }
+        LiveRows live = (LiveRows) readable();
+        int size = live.size();
+        byte[] species = new byte[size];
+        double[] heights = new double[size];
+        double[] growthRates = new double[size];
+        int[] years = new int[size];
+        for (int index = 0; index < size; index++){
+            int row = live.row(index);
+            species[index] = columns.species[row];
+            heights[index] = columns.heights[row];
+            growthRates[index] = columns.growthRates[row];
+            years[index] = columns.years[row];
+        }
+        return new ForestView(species, heights, growthRates, years, size, 0, null);
+    }
+
+    /**
+     * Finds the trees taller than a height.
+     *
+     * @param height The height threshold.
+     * @return The indexes of the trees taller than the threshold, in order.
+     */
+    public int[] findTreesTallerThan(double height){
+        if (this.index != null && this.concurrent == null){
+            return liveIndexes(this.index.rowsTallerThan(height));
+        }
+        TreeStore store = readable();
+        int[] rows = new int[store.size()];
+        int count = 0;
+        for (int row = 0; row < store.size(); row++){
+            if (store.getHeight(row) > height){
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }//End of findTreesTallerThan method
+
+    /**
+     * Finds the trees of a species planted in a range of years.
+     *
+     * @param species The species to find.
+     * @param fromYear The earliest year of planting, inclusive.
+     * @param toYear The latest year of planting, inclusive.
+     * @return The indexes of the matching trees, in order.
+     */
+    public int[] findTrees(TreeSpecies species, int fromYear, int toYear){
+        if (this.index != null && this.concurrent == null){
+            return liveIndexes(this.index.rowsOf(species, fromYear, toYear));
+        }
+        TreeStore store = readable();
+        int[] rows = new int[store.size()];
+        int count = 0;
+        for (int row = 0; row < store.size(); row++){
+            int year = store.getYearOfPlanting(row);
+            if (store.getSpecies(row) == species && year >= fromYear && year <= toYear){
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }//End of findTrees method
+
+    /**
+     * Getter method to get the number of trees in the forest.
+     *
+     * @return The number of trees in the forest.
+     */
+    public int getTreeCount(){
+        ConcurrentColumns concurrent = this.concurrent;
+        //Counting does not need the trees in order, so cut trees waiting to be compacted are just left out
+        return concurrent != null ? concurrent.view().size() : trees.size() - deadCount;
+    }
+
+    /**
+     * Getter method to get a copy of the tree at the specified index.
+     *
+     * @param index The index of the tree.
+     * @return A standalone Tree holding the values at that index.
+     */
+    public Tree getTree(int index){
+        //A single tree is found by counting live rows, rather than numbering them all for one read
+        if (this.concurrent == null && deadCount > 0 && liveRows == null){
+            if (index < 0 || index >= getTreeCount()){
+                throw new IndexOutOfBoundsException("Tree " + index + " is outside a forest of " + getTreeCount()
+                        + " trees");
+            }
+            return trees.get(deadRows.nthClearBit(index));
+        }
+        return readable().get(index);
+    }
+
     /**
      * Displays the details of the forest and its trees.
      */
     public void displayForest() {
+        displayForest(new ForestPrinter());
+    }//End of displayForest method
+
+    /**
+     * Displays the rows of the forest chosen by a printer (one species, the tallest trees or one page, for example)
+     * between the forest's name and its tree count and average height.
+     *
+     * @param printer The printer that chooses and formats the rows.
+     * @return The number of rows displayed.
+     */
+    public int displayForest(ForestPrinter printer) {
+        return displayForest(printer, System.out);
+    }//End of displayForest method
+
+    /**
+     * Writes the listing displayForest(printer) shows to an Appendable instead, such as the report of a script run
+     * on several forests at once, where each forest's listing must stay in one piece.
+     *
+     * @param printer The printer that chooses and formats the rows.
+     * @param out Where to write the listing.
+     * @return The number of rows written.
+     */
+    public int displayForest(ForestPrinter printer, Appendable out) {
         double averageHeight;
-        System.out.println("Forest name: " + this.forestName);
+        try {
+            out.append("Forest name: ").append(this.forestName).append(System.lineSeparator());
 
-        //Iterate over each tree
-        for (Tree tree: this.trees) {
-            //Print details of each tree
-            System.out.printf("     %-6s %d  %.2f'  %.1f%%\n",
-                    tree.getSpecies().toString(),
-                    tree.getYearOfPlanting(),
-                    tree.getHeight(),
-                    tree.getGrowthRate() * 100);
-        }
+            //Print the rows of one view of the store, so a concurrent change cannot tear the listing
+            TreeStore store = readable();
+            int printed = printer.print(store, out);
 
-        averageHeight = calculateAverageHeight();
-        System.out.printf("There are %d trees, with an average height of %.2f\n", this.trees.size(), averageHeight);
+            averageHeight = calculateAverageHeight(store);
+            out.append(String.format("There are %d trees, with an average height of %.2f\n", store.size(),
+                    averageHeight));
+            return printed;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }//End of displayForest method
 
+    /**
+     * Displays only the rows of the forest chosen by a printer, without the name before them or the totals after
+     * them, such as one page of a listing shown a page at a time.
+     *
+     * @param printer The printer that chooses and formats the rows.
+     * @return The number of rows displayed.
+     */
+    public int displayRows(ForestPrinter printer){
+        return printer.print(readable(), System.out);
+    }
+
+    /**
+     * Displays the forest's tree count and average height, as displayForest() ends with.
+     */
+    public void displayTotals(){
+        TreeStore store = readable();
+        System.out.printf("There are %d trees, with an average height of %.2f\n", store.size(),
+                calculateAverageHeight(store));
+    }
+
+    /**
+     * Counts the rows a printer would display or export, ignoring its page.
+     *
+     * @param printer The printer that chooses the rows.
+     * @return The number of rows chosen.
+     */
+    public int countRows(ForestPrinter printer){
+        return printer.countRows(readable());
+    }
+
+    /**
+     * Streams the rows chosen by a printer to a file in the printer's format, such as CSV to be read back by
+     * readTreesFromCSV().
+     *
+     * @param file The file to write, replacing any file already there.
+     * @param printer The printer that chooses and formats the rows.
+     * @return The number of bytes written.
+     * @throws IOException If the file cannot be written.
+     */
+    public long exportForest(Path file, ForestPrinter printer) throws IOException {
+        return printer.export(readable(), file);
+    }
+
     /**
      * Calculates the average height of the trees in the forest.
      *
      * @return The average height of the trees, or 0 if the forest is empty.
      */
     private double calculateAverageHeight(){
-        double totalHeight = 0;
+        return calculateAverageHeight(readable());
+    }//End of calculateAverageHeight method
+
+    /**
+     * Calculates the average height of the trees in a store, from the statistics kept for it if there are any.
+     *
+     * @param store The store to average.
+     * @return The average height of the trees, or 0 if the store is empty.
+     */
+    private double calculateAverageHeight(TreeStore store){
+        if (store instanceof ForestView && ((ForestView) store).getSummary() != null){
+            return ((ForestView) store).getSummary().getAverageHeight();
+        }
+        ForestStatistics statistics = this.statistics;
+        if ((store == this.trees || store == this.liveRows) && statistics != null){
+            return statistics.getAverageHeight();
+        }
         //If forest is empty
-        if(this.trees.isEmpty()){
+        if(store.isEmpty()){
             return 0;
         }
-        //Iterate over each tree in forest
-        for(Tree tree: this.trees){
-            //Add height of each tree to total
-            totalHeight += tree.getHeight();
-        }
-        return totalHeight/this.trees.size();
-    }//End of calculateAverageHeight method
+        //Add up the height column
+        double totalHeight = store.sumHeights(0, store.size());
+        return totalHeight/store.size();
+    }
 
     /**
      * Reads tree data from a CSV file and adds the trees to the forest.
+     * Small files are streamed and parsed in place by a CsvTreeReader; files of at least
+     * MappedCsvLoader.DEFAULT_MAPPED_THRESHOLD bytes are memory-mapped and parsed in parallel by a MappedCsvLoader.
+     * Rows that cannot be parsed are skipped and returned.
      *
      * @param csvFile The CSV file containing tree data.
+     * @return The malformed rows, with their line numbers, in file order.
      */
-    public void readTreesFromCSV(File csvFile){
+    public List<CsvRowError> readTreesFromCSV(File csvFile){
+        if (!(trees instanceof TreeColumns)){
+            System.out.println("Trees cannot be added to a memory-mapped forest");
+            return new ArrayList<>();
+        }
+        TreeColumns columns = (TreeColumns) trees;
+        beginWrite();
+        ForestMetrics.Sample sample = ForestMetrics.start(ForestMetrics.Operation.READ_CSV, forestName);
+        //Live trees only, as the store holds once the rows of cut trees are compacted away
+        int before = columns.size() - deadCount;
         try {
-            //Creates scanner object
-            Scanner scanner = new Scanner(csvFile);
-
-            //Loop through each line in file
-            while (scanner.hasNextLine()){
-                String line = scanner.nextLine(); //Reads nextLine from file
-                String[] data = line.split(","); //Splits line by commas, get individual data
-
-                //If line has four data fields
-                if (data.length == 4){
-                    //Converts (first field) species to TreeSpecies enum value (trim whitespace, convert to uppercase)
-                    TreeSpecies species = TreeSpecies.valueOf(data[0].trim().toUpperCase());
-                    //Parse (second field) yearOfPlanting as an int
-                    int yearOfPlanting = Integer.parseInt(data[1].trim());
-                    //Parse (third field) height as double
-                    double height = Double.parseDouble(data[2].trim());
-                    //Parse (fourth field) growth rate as double then to decimal
-                    double growthRate = Double.parseDouble(data[3].trim()) / 100.0;
-
-                    //New Tree object with parsed data
-                    Tree tree = new Tree(species, height, growthRate, yearOfPlanting);
-
-                    //Add new tree to tree ArrayList
-                    trees.add(tree);
-                } else {
-                    System.out.println("Invalid data format in CSV file: " + line);
-                }
-            }//End of while loop
-            scanner.close();
-
-        } catch (FileNotFoundException e) {
-            //If no CSV file is found
+            compactRows();
+            //The journal cannot describe a bulk load, so the next save writes a full snapshot
+            journal = null;
+            if (csvFile.length() >= MappedCsvLoader.DEFAULT_MAPPED_THRESHOLD){
+                MappedCsvLoader loader = new MappedCsvLoader();
+                loader.read(csvFile.toPath(), columns);
+                return loader.getErrors();
+            }
+            CsvTreeReader reader = new CsvTreeReader();
+            reader.read(csvFile.toPath(), columns);
+            return reader.getErrors();
+        } catch (IOException e) {
+            //If the CSV file cannot be found or read
             System.out.println("Error reading CSV file: " + csvFile.getName());
             System.out.println(e.toString());
             e.printStackTrace(System.out);
+            return new ArrayList<>();
+        } finally {
+            //Rebuild the indexes and statistics once over the loaded rows rather than row by row
+            if (index != null){
+                index = new ForestIndex(trees);
+            }
+            if (statistics != null){
+                statistics = new ForestStatistics(trees);
+            }
+            sample.finish(trees.size() - before, csvFile.length());
+            endWrite();
         }
     }//End of readTreesFromCSV method
 
     /**
-     * Cuts down a tree at the specified index in the forest.
+     * Cuts down a tree at the specified index in the forest. The trees after it move down one index, as they always
+     * have, but their rows are only shifted once enough cut trees have built up (see setDeadRowRatio).
      *
      * @param index The index of the tree to be cut down.
      */
     public void cutTreeByIndex(int index) {
-        //Check if index is valid
-        if (index >= 0 && index < trees.size()) {
-            //Remove tree at specified index in Arraylist
-            trees.remove(index);
-        } else {
-            System.out.println("Invalid tree index.");
+        beginWrite();
+        try {
+            //Check if index is valid
+            if (index >= 0 && index < trees.size() - deadCount) {
+                try {
+                    //Mark the tree's row dead; later trees move down an index
+                    applyCut(index);
+                    record(journal -> journal.logCut(index));
+                } catch (UnsupportedOperationException e) {
+                    System.out.println(e.getMessage());
+                }
+            } else {
+                System.out.println("Invalid tree index.");
+            }
+        } finally {
+            endWrite();
         }
     } //End of cutTreeByIndex method
 
     /**
-     * Adds a new randomly generated tree to the forest.
+     * Cuts down the trees at a set of indexes at once. The indexes are those before the cut, so cutting {2, 5} cuts
+     * the same two trees whichever is listed first; repeated indexes are cut once.
+     *
+     * @param indexes The indexes of the trees to be cut down.
+     * @return The number of trees cut down.
+     * @throws IllegalArgumentException If an index is not the index of a tree.
      */
-    public void addRandomTree(){
-        //Generate random species
-        TreeSpecies[] species = TreeSpecies.values();
-        TreeSpecies randomSpecies = species[new Random().nextInt(species.length)];
-
-        //Generate random year of planting
-        int currentYear = Year.now().getValue();
-        int randomYear = new Random().nextInt(currentYear - 2000 + 1) + 2000;
+    public int cutTrees(int[] indexes){
+        beginWrite();
+        try {
+            int[] sorted = indexes.clone();
+            Arrays.sort(sorted);
+            if (sorted.length > 0 && (sorted[0] < 0 || sorted[sorted.length - 1] >= trees.size() - deadCount)){
+                throw new IllegalArgumentException("Tree indexes must be between 0 and "
+                        + (trees.size() - deadCount - 1) + ": " + Arrays.toString(indexes));
+            }
+            CutRuns runs = new CutRuns();
+            for (int index : sorted){
+                runs.add(index);
+            }
+            try {
+                applyCutRuns(runs);
+                record(runs);
+            } catch (UnsupportedOperationException e) {
+                System.out.println(e.getMessage());
+                return 0;
+            }
+            return runs.cut;
+        } finally {
+            endWrite();
+        }
+    }//End of cutTrees method
 
-        //Generate random height
-        double randomHeight = new Random().nextDouble() * 10.0 + 10.0;
+    /**
+     * Cuts down the trees in a range of indexes at once.
+     *
+     * @param from The index of the first tree to cut down.
+     * @param to The index after the last tree to cut down.
+     * @return The number of trees cut down.
+     * @throws IllegalArgumentException If the range is not within the forest.
+     */
+    public int cutTrees(int from, int to){
+        beginWrite();
+        try {
+            if (from < 0 || from > to || to > trees.size() - deadCount){
+                throw new IllegalArgumentException("Tree range " + from + " to " + to + " is not within the "
+                        + (trees.size() - deadCount) + " trees of the forest");
+            }
+            if (from == to){
+                return 0;
+            }
+            try {
+                applyCutRange(from, to - from);
+                record(journal -> journal.logCutRange(from, to - from));
+            } catch (UnsupportedOperationException e) {
+                System.out.println(e.getMessage());
+                return 0;
+            }
+            return to - from;
+        } finally {
+            endWrite();
+        }
+    }//End of cutTrees method
 
-        //Generate random growth
-        double randomGrowthRate = new Random().nextDouble() * 0.1 + 0.1;
+    /**
+     * Cuts down every tree a filter picks out, in one pass over the forest.
+     *
+     * @param filter The filter picking out the trees to cut down, such as TreeFilter.species(TreeSpecies.BIRCH).
+     * @return The number of trees cut down.
+     */
+    public int cutTrees(TreeFilter filter){
+        beginWrite();
+        try {
+            CutRuns runs = new CutRuns();
+            try {
+                requireCuttable();
+                //Mark each live tree that matches, numbering the live trees as the journal sees them
+                int size = trees.size();
+                int live = 0;
+                for (int row = nextLive(0); row < size; row = nextLive(row + 1)){
+                    if (filter.test(trees.getSpecies(row), trees.getHeight(row), trees.getGrowthRate(row),
+                            trees.getYearOfPlanting(row))){
+                        bury(row);
+                        runs.add(live);
+                    }
+                    live++;
+                }
+                compactIfDue();
+                record(runs);
+            } catch (UnsupportedOperationException e) {
+                System.out.println(e.getMessage());
+            }
+            return runs.cut;
+        } finally {
+            endWrite();
+        }
+    }//End of cutTrees method
 
-        //New tree with the random values
-        Tree newTree = new Tree(randomSpecies, randomHeight, randomGrowthRate, randomYear);
+    /**
+     * Shifts the remaining trees down over the rows of cut trees now, in one pass, rather than waiting for the dead
+     * row ratio to be reached or for the next change that needs them in place.
+     */
+    public void compact(){
+        beginWrite();
+        try {
+            compactRows();
+        } finally {
+            endWrite();
+        }
+    }
 
-        //Add tree to the arraylist
-        trees.add(newTree);
+    /**
+     * Adds a new randomly generated tree to the forest.
+     */
+    public void addRandomTree(){
+        beginWrite();
+        try {
+            //Draw a random species, year of planting, height and growth from the forest's generator
+            Tree tree = generator.nextPlanting(new Tree(null, 0, 0, 0), TreeGenerator.currentYear());
 
+            //Add a new row with the random values
+            try {
+                applyAdd(tree.getSpecies(), tree.getHeight(), tree.getGrowthRate(), tree.getYearOfPlanting());
+                record(journal -> journal.logAdd(tree.getSpecies(), tree.getHeight(), tree.getGrowthRate(),
+                        tree.getYearOfPlanting()));
+            } catch (UnsupportedOperationException e) {
+                System.out.println(e.getMessage());
+            }
+        } finally {
+            endWrite();
+        }
     }//End of addRandomTree method
 
+    /**
+     * Adds many randomly generated trees to the forest at once, drawn as addRandomTree() draws them.
+     * Large plantings are filled in parallel on the growth engine's pool, from streams split off the forest's
+     * generator, so a seeded forest plants the same trees however many threads do the work.
+     *
+     * @param count The number of trees to add.
+     */
+    public void addRandomTrees(int count){
+        if (count < 0){
+            throw new IllegalArgumentException("Count must not be negative: " + count);
+        }
+        beginWrite();
+        try {
+            long seed = generator.nextSeed();
+            int currentYear = TreeGenerator.currentYear();
+            try {
+                applyPlanting(count, seed, currentYear);
+                record(journal -> journal.logPlanting(count, seed, currentYear));
+            } catch (UnsupportedOperationException e) {
+                System.out.println(e.getMessage());
+            }
+        } finally {
+            endWrite();
+        }
+    }//End of addRandomTrees method
+
     /**
      * Simulates a year's growth in the current forest.
+     * Large forests are grown in parallel by the forest's growth engine.
      */
     public void simulateYearlyGrowth(){
-        //Iterate over each tree in forest
-        for (Tree tree : trees){
-            //Calculate growth for current tree
-            double growth = tree.getHeight() * tree.getGrowthRate();
-            //Update height of tree by adding growth
-            tree.setHeight(tree.getHeight() + growth);
+        beginWrite();
+        ForestMetrics.Sample sample = ForestMetrics.start(ForestMetrics.Operation.GROW, forestName);
+        try {
+            applyGrowth(1);
+            record(journal -> journal.logGrowth(1));
+        } finally {
+            sample.finish(trees.size(), 0);
+            endWrite();
         }
     }
 
+    /**
+     * Simulates several years of growth in a single pass over the forest.
+     * Each tree is advanced with the closed form height * (1 + growthRate)^years, which can differ from calling
+     * simulateYearlyGrowth() the same number of times in the last bits of a height.
+     *
+     * @param years The number of years to grow.
+     */
+    public void simulateYears(int years){
+        if (years < 0){
+            throw new IllegalArgumentException("Years must not be negative: " + years);
+        }
+        if (years == 0){
+            return;
+        }
+        beginWrite();
+        ForestMetrics.Sample sample = ForestMetrics.start(ForestMetrics.Operation.GROW, forestName);
+        try {
+            applyGrowth(years);
+            record(journal -> journal.logGrowth(years));
+        } finally {
+            //Each tree counts once for every year it is grown
+            sample.finish((long) trees.size() * years, 0);
+            endWrite();
+        }
+    }
+
+    /**
+     * Simulates several years of growth, reaping after every year as reapForest(height) would, in a single pass over
+     * the forest. Each tree is grown and checked year by year while it is held in registers, and a tree that passes
+     * the height is replaced there and then, so the replacements are drawn tree by tree from one seed rather than year
+     * by year. Trees that are never reaped end with the heights calling simulateYearlyGrowth() and reapForest(height)
+     * in turn would give them, but reaped trees are replaced by different, equally likely trees, and the reaping
+     * messages are reported tree by tree instead of year by year.
+     *
+     * @param years The number of years to grow.
+     * @param reapHeight The height threshold for reaping trees after each year.
+     */
+    public void simulateYears(int years, double reapHeight){
+        simulateYears(years, reapHeight, ReapSink.CONSOLE);
+    }
+
+    /**
+     * Simulates several years of growth with a yearly reap, as simulateYears(years, reapHeight) does, sending each
+     * reaped tree to the given sink.
+     *
+     * @param years The number of years to grow.
+     * @param reapHeight The height threshold for reaping trees after each year.
+     * @param sink The sink that receives each reaped tree and its replacement.
+     */
+    public void simulateYears(int years, double reapHeight, ReapSink sink){
+        if (years < 0){
+            throw new IllegalArgumentException("Years must not be negative: " + years);
+        }
+        beginWrite();
+        ForestMetrics.Sample sample = ForestMetrics.start(ForestMetrics.Operation.GROW, forestName);
+        try {
+            long seed = generator.nextSeed();
+            int currentYear = TreeGenerator.currentYear();
+            applyGrowthAndReap(years, reapHeight, seed, currentYear, sink);
+            sink.flush();
+            record(journal -> journal.logGrowthAndReap(years, reapHeight, seed, currentYear));
+        } finally {
+            sample.finish((long) trees.size() * years, 0);
+            endWrite();
+        }
+    }//End of simulateYears method
+
     /**
      * Reaps the current forest of trees over a specified height and replaces the reaped trees with random new trees.
      *
      * @param height The height threshold for reaping trees.
      */
     public void reapForest(double height){
-        int index;
-        ArrayList<Tree> newTrees = new ArrayList<>();
-        ArrayList<Integer> reapedIndexes = new ArrayList<>();
-
-        //Iterate over each tree in forest and reap
-        for (index = 0; index < trees.size(); index++) {
-            Tree tree = trees.get(index);
-
-            //Check if tree's height is greater than specified
-            if (tree.getHeight() > height){
-                System.out.println("Reaping the tall tree  " + tree.getReapingFormat());
-                reapedIndexes.add(index);
-                //Generate new random tree for each reaped tree and store in newTrees
-                Tree newTree = generateRandomTree();
-                newTrees.add(newTree);
-                System.out.println("Replaced with new tree " + newTree.getReapingFormat());
+        reapForest(height, ReapSink.CONSOLE);
+    }
+
+    /**
+     * Reaps the current forest of trees over a specified height, replacing them in place in a single pass, and sends
+     * each reaped tree and its replacement to a sink instead of printing them.
+     *
+     * @param height The height threshold for reaping trees.
+     * @param sink The sink that receives each reaped tree and its replacement.
+     */
+    public void reapForest(double height, ReapSink sink){
+        beginWrite();
+        ForestMetrics.Sample sample = ForestMetrics.start(ForestMetrics.Operation.REAP, forestName);
+        try {
+            long seed = generator.nextSeed();
+            int currentYear = TreeGenerator.currentYear();
+            applyReap(height, seed, currentYear, sink);
+            sink.flush();
+            record(journal -> journal.logReap(height, seed, currentYear));
+        } finally {
+            sample.finish(trees.size(), 0);
+            endWrite();
+        }
+    }//End of reapForest method
+
+    /**
+     * Appends a tree without journaling it.
+     */
+    void applyAdd(TreeSpecies species, double height, double growthRate, int yearOfPlanting){
+        //The new row goes after every live row, so dead rows can stay where they are
+        liveRows = null;
+        trees.add(species, height, growthRate, yearOfPlanting);
+        if (index != null){
+            index.onAdd(trees.size() - 1);
+        }
+        if (statistics != null){
+            statistics.onAdd(species, height);
+        }
+    }
+
+    /**
+     * Plants random trees without journaling them. The trees are drawn from a generator seeded with the given seed,
+     * so replaying the planting from the journal plants the same trees.
+     */
+    void applyPlanting(int count, long seed, int currentYear){
+        liveRows = null;
+        int first = trees.extend(count);
+        new TreeGenerator(seed).plant(trees, first, first + count, currentYear, growthEngine);
+        for (int row = first; row < first + count && (index != null || statistics != null); row++){
+            if (index != null){
+                index.onAdd(row);
+            }
+            if (statistics != null){
+                statistics.onAdd(trees.getSpecies(row), trees.getHeight(row));
+            }
+        }
+    }
+
+    /**
+     * Cuts a tree without journaling it.
+     */
+    void applyCut(int index){
+        applyCutRange(index, 1);
+    }
+
+    /**
+     * Cuts a run of trees without journaling them, marking their rows dead and compacting once the dead row ratio is
+     * reached.
+     *
+     * @param from The index of the first tree, counting only live trees.
+     * @param count The number of trees to cut.
+     */
+    void applyCutRange(int from, int count){
+        requireCuttable();
+        int row = deadCount == 0 ? from : deadRows.nthClearBit(from);
+        for (int cut = 0; cut < count; cut++){
+            int next = nextLive(row + 1);
+            bury(row);
+            row = next;
+        }
+        compactIfDue();
+    }
+
+    /**
+     * Cuts runs of trees in order without journaling them, walking the rows once.
+     */
+    private void applyCutRuns(CutRuns runs){
+        requireCuttable();
+        int row = nextLive(0);
+        int live = 0;
+        for (int run = 0; run < runs.runs; run++){
+            while (live < runs.starts[run]){
+                row = nextLive(row + 1);
+                live++;
+            }
+            for (int cut = 0; cut < runs.lengths[run]; cut++){
+                int next = nextLive(row + 1);
+                bury(row);
+                row = next;
+                live++;
+            }
+        }
+        compactIfDue();
+    }//End of applyCutRuns method
+
+    /**
+     * Checks that trees can be cut from the forest's store before any row is marked dead.
+     */
+    private void requireCuttable(){
+        if (!(trees instanceof TreeColumns)){
+            throw new UnsupportedOperationException("Trees cannot be cut from a memory-mapped forest");
+        }
+        if (deadRows == null){
+            deadRows = new RowBitmap();
+        }
+    }
+
+    /**
+     * Finds the first live row at or after a row.
+     */
+    private int nextLive(int row){
+        return deadCount == 0 ? row : deadRows.nextClearBit(row);
+    }
+
+    /**
+     * Marks a live row dead, taking its tree out of the statistics straight away.
+     */
+    private void bury(int row){
+        if (statistics != null){
+            statistics.onRemove(trees.getSpecies(row), trees.getHeight(row));
+        }
+        deadRows.set(row);
+        deadCount++;
+        liveRows = null;
+    }
+
+    /**
+     * Compacts the dead rows once they make up the dead row ratio of the forest. Readers of a concurrent forest only
+     * see published columns, so there the rows are compacted before every publish.
+     */
+    private void compactIfDue(){
+        if (deadCount > 0 && (concurrent != null || deadCount >= deadRowRatio * trees.size())){
+            compactRows();
+        }
+    }
+
+    /**
+     * Removes the dead rows from the store and the indexes. A single dead row is removed as a plain cut; more are
+     * removed in one pass. The indexes are renumbered in one pass either way.
+     */
+    void compactRows(){
+        if (deadCount == 0){
+            return;
+        }
+        detachAll();
+        if (deadCount == 1){
+            trees.remove(deadRows.nextSetBit(0));
+        } else {
+            trees.removeAll(deadRows);
+        }
+        if (this.index != null){
+            this.index.onCompact(deadRows);
+        }
+        deadRows = null;
+        deadCount = 0;
+        liveRows = null;
+    }//End of compactRows method
+
+    /**
+     * Grows the forest without journaling it; one year is yearly growth, more is the closed form.
+     */
+    void applyGrowth(int years){
+        compactRows();
+        if (concurrent != null){
+            concurrent.detachHeights();
+        }
+        growthEngine.growYears(trees, years, statistics);
+        if (index != null){
+            index.onGrowth();
+        }
+    }
+
+    /**
+     * Reaps the forest without journaling it. Replacement trees are drawn from a generator seeded with the given seed,
+     * so replaying the same reap from the journal plants the same trees.
+     *
+     * @param height The height threshold for reaping trees.
+     * @param seed The seed for the replacement trees.
+     * @param currentYear The year the replacement trees are planted relative to.
+     * @param sink The sink that receives each reaped and replacement tree.
+     */
+    void applyReap(double height, long seed, int currentYear, ReapSink sink){
+        compactRows();
+        TreeGenerator random = new TreeGenerator(seed);
+        int size = trees.size();
+        Tree tree = new Tree(null, 0, 0, 0);
+        Tree replacement = new Tree(null, 0, 0, 0);
+
+        //An indexed forest only visits the tall trees, in the same order the scan would
+        if (this.index != null){
+            int[] rows = this.index.rowsTallerThan(height);
+            if (rows.length > 0){
+                detachAll();
+            }
+            for (int row : rows){
+                reapRow(row, tree, replacement, random, currentYear, sink);
+            }
+            return;
+        }
+
+        //Skip from one tree taller than the height to the next and reap it in place
+        int first = trees.findTallerThan(0, size, height);
+        if (first < size){
+            detachAll();
+        }
+        for (int index = first; index < size; index = trees.findTallerThan(index + 1, size, height)) {
+            reapRow(index, tree, replacement, random, currentYear, sink);
+        }//End of for loop
+    }//End of applyReap method
+
+    /**
+     * Grows the forest with a yearly reap, one tree at a time, without journaling it.
+     *
+     * @param years The number of years to grow.
+     * @param reapHeight The height threshold for reaping trees after each year.
+     * @param seed The seed for the replacement trees.
+     * @param currentYear The year the replacement trees are planted relative to.
+     * @param sink The sink that receives each reaped and replacement tree.
+     */
+    void applyGrowthAndReap(int years, double reapHeight, long seed, int currentYear, ReapSink sink){
+        compactRows();
+        TreeGenerator random = new TreeGenerator(seed);
+        int size = trees.size();
+        Tree tree = new Tree(null, 0, 0, 0);
+        Tree replacement = new Tree(null, 0, 0, 0);
+        //Every column is copied up front, once, rather than when the first tree is reaped
+        detachAll();
+        ForestStatistics.Accumulator heights = statistics != null ? statistics.newAccumulator() : null;
+
+        //Visit each tree once and run all of its years before moving on
+        for (int index = 0; index < size; index++){
+            double height = trees.getHeight(index);
+            double growthRate = trees.getGrowthRate(index);
+            for (int year = 0; year < years; year++){
+                height = Tree.heightAfterOneYear(height, growthRate);
+                if (height > reapHeight){
+                    trees.setHeight(index, height);
+                    reapRow(index, tree, replacement, random, currentYear, sink);
+                    //Carry on growing the replacement for the remaining years
+                    height = trees.getHeight(index);
+                    growthRate = trees.getGrowthRate(index);
+                }
+            }
+            trees.setHeight(index, height);
+            if (heights != null){
+                heights.add(height);
             }
         }//End of for loop
+        if (this.index != null){
+            this.index.onGrowth();
+        }
+        if (heights != null){
+            statistics.replaceHeights(heights);
+        }
+    }//End of applyGrowthAndReap method
 
-        //Replace reaped tree with new random trees at same index
-        for (int i = 0; i < reapedIndexes.size(); i++){
-            int reapedIndex = reapedIndexes.get(i);
-            //Remove old tree and add the new one at the same index
-            trees.set(reapedIndex, newTrees.get(i));
+    /**
+     * Stops the columns being shared with the readers of a concurrent forest before rows are overwritten. Each
+     * change calls this once before its first write rather than for every row it writes.
+     */
+    private void detachAll(){
+        if (concurrent != null){
+            concurrent.detachAll();
         }
-    }//End of reapForest method
+    }
 
     /**
-     * Generates a new randomly configured tree.
-     * Method creates a tree with randomly chosen species, height, growth rate, and year of planting.
-     * @return A new Tree object with random parameters.
+     * Writes a new random tree over a reaped row and passes both trees to the sink. The caller must have detached the
+     * columns first.
+     *
+     * @param index The row being reaped.
+     * @param reaped A reusable tree for the reaped row.
+     * @param replacement A reusable tree for the replacement.
+     * @param random The generator for the replacement tree.
+     * @param currentYear The year the replacement tree is planted relative to.
+     * @param sink The sink that receives the reaped and replacement tree.
      */
-    private Tree generateRandomTree(){
-        Random random = new Random(); //Create a new instance of Random
+    private void reapRow(int index, Tree reaped, Tree replacement, TreeGenerator random, int currentYear,
+                         ReapSink sink){
+        trees.load(index, reaped);
+        //Generate new random tree and write it over the reaped row
+        random.nextReplacement(replacement, currentYear);
+        if (this.index != null){
+            this.index.beforeReplace(index);
+        }
+        if (statistics != null){
+            statistics.onRemove(reaped.getSpecies(), reaped.getHeight());
+            statistics.onAdd(replacement.getSpecies(), replacement.getHeight());
+        }
+        trees.set(index, replacement.getSpecies(), replacement.getHeight(), replacement.getGrowthRate(),
+                replacement.getYearOfPlanting());
+        if (this.index != null){
+            this.index.afterReplace(index);
+        }
+        sink.treeReaped(reaped, replacement);
+    }//End of reapRow method
 
-        //Select random species from the enum
-        TreeSpecies[] species = TreeSpecies.values();
-        //Get a random species using random
-        TreeSpecies randomSpecies = species[random.nextInt(species.length)];
-        //Get randomYear
-        int randomYear = Year.now().getValue() - random.nextInt(21);
-        //Random initial height
-        double randomHeight = 10.0 + random.nextDouble() * 10.0;
-        //Random growth rate
-        double randomGrowthRate = 0.1 + random.nextDouble() * 0.1;
+    /**
+     * Starts a change to the forest, waiting for any other change in progress when concurrent reads are enabled.
+     */
+    private void beginWrite(){
+        if (concurrent != null){
+            concurrent.beginWrite();
+        }
+    }
 
-        //Return a new tree object
-        return new Tree(randomSpecies, randomHeight, randomGrowthRate, randomYear);
-    }//End of generateRandomTree method
+    /**
+     * Finishes a change to the forest, publishing it to readers when concurrent reads are enabled.
+     */
+    private void endWrite(){
+        if (concurrent != null){
+            concurrent.endWrite(statistics);
+        }
+    }
 
+    /**
+     * Retrieves the store that reads should go to: the latest published view when concurrent reads are enabled,
+     * otherwise the trees themselves, read around the rows of cut trees if any are waiting to be compacted away.
+     * Reads never compact the rows; only changes and saves do.
+     */
+    private TreeStore readable(){
+        ConcurrentColumns concurrent = this.concurrent;
+        if (concurrent != null){
+            return concurrent.view();
+        }
+        if (deadCount == 0){
+            return this.trees;
+        }
+        if (liveRows == null){
+            liveRows = new LiveRows(trees, deadRows, deadCount);
+        }
+        return liveRows;
+    }
 
     /**
-     * Saves the current forest to a file.
+     * Turns rows of the store found by the indexes into indexes of live trees, dropping the rows of cut trees and
+     * counting only live rows before the others, in one walk alongside the dead rows.
+     *
+     * @param rows The rows of the store, in order.
+     * @return The indexes of the live trees among them, in order.
+     */
+    private int[] liveIndexes(int[] rows){
+        if (deadCount == 0){
+            return rows;
+        }
+        int count = 0;
+        int deadBefore = 0;
+        int dead = deadRows.nextSetBit(0);
+        for (int row : rows){
+            while (dead >= 0 && dead < row){
+                deadBefore++;
+                dead = deadRows.nextSetBit(dead + 1);
+            }
+            if (dead != row){
+                rows[count++] = row - deadBefore;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Appends a change to the forest's journal, if it has one. If the journal cannot be written it is dropped, and
+     * the next save writes a full snapshot instead.
+     *
+     * @param change The record to append.
+     */
+    private void record(JournalRecord change){
+        if (journal == null){
+            return;
+        }
+        try {
+            change.writeTo(journal);
+        } catch (IOException e) {
+            System.out.println("Error writing forest journal: " + e.getMessage());
+            journal = null;
+        }
+    }
+
+    /**
+     * A change to append to the journal.
+     */
+    private interface JournalRecord {
+        void writeTo(ForestJournal journal) throws IOException;
+    }
+
+    /**
+     * The trees cut by a bulk cut, as runs of consecutive indexes numbered before the cut.
+     */
+    private static final class CutRuns implements JournalRecord {
+        private int[] starts = new int[8];
+        private int[] lengths = new int[8];
+        private int runs;
+        private int cut;
+
+        /**
+         * Adds the next index to cut, which must be after every index added so far.
+         */
+        void add(int index){
+            if (runs > 0 && starts[runs - 1] + lengths[runs - 1] == index){
+                lengths[runs - 1]++;
+            } else if (runs == 0 || starts[runs - 1] + lengths[runs - 1] < index){
+                if (runs == starts.length){
+                    starts = Arrays.copyOf(starts, runs * 2);
+                    lengths = Arrays.copyOf(lengths, runs * 2);
+                }
+                starts[runs] = index;
+                lengths[runs++] = 1;
+            } else {
+                //Already in the last run
+                return;
+            }
+            cut++;
+        }
+
+        /**
+         * Logs the runs last to first, so replaying each one leaves the indexes of the runs before it unchanged.
+         */
+        @Override
+        public void writeTo(ForestJournal journal) throws IOException {
+            for (int run = runs - 1; run >= 0; run--){
+                journal.logCutRange(starts[run], lengths[run]);
+            }
+        }
+    }//End of CutRuns class
+
+    /**
+     * Saves the current forest to a file in the binary snapshot format.
+     * Once a forest has been saved or loaded, later saves only write the changes made since then to its journal
+     * (forestName.journal), until the journal has grown large enough to be compacted into a fresh snapshot.
      */
     public void saveForest(){
+        save();
+    }//End of saveForest
+
+    /**
+     * Saves the forest as saveForest() does.
+     *
+     * @return True if the forest was saved, false if the error was printed instead.
+     */
+    boolean save(){
         String fileName = forestName + ".db";
-        try (ObjectOutputStream outputStream = new ObjectOutputStream(new FileOutputStream(fileName))) {
-            // Write the current Forest object to the file
-            outputStream.writeObject(this);
+        beginWrite();
+        ForestMetrics.Sample sample = ForestMetrics.start(ForestMetrics.Operation.SAVE, forestName);
+        long bytes = 0;
+        try {
+            if (journal != null && !journal.shouldCompact()){
+                // Only the changes since the last save need writing
+                long before = journal.getSize();
+                journal.commit();
+                bytes = journal.getSize() - before;
+                return true;
+            }
+            // Write the current forest to the file
+            Path file = Paths.get(fileName);
+            ForestSnapshot.write(this, file);
+            bytes = Files.size(file);
+            //Start the journal afresh for the new snapshot; a mapped forest writes its changes into the file instead,
+            //so its journal stays empty
+            ForestJournal fresh = ForestJournal.create(journalPath(forestName), file, trees.size());
+            bytes += fresh.getSize();
+            if (!(trees instanceof MappedTreeStore)){
+                journal = fresh;
+            }
+            return true;
         } catch (IOException e){
             // Handle any IOException
             System.out.println("Error saving forest to file: " + e.getMessage());
+            return false;
+        } finally {
+            sample.finish(trees.size() - deadCount, bytes);
+            endWrite();
         }
-    }//End of saveForest
+    }//End of save method
 
     /**
      * Loads a forest from a file.
+     * Changes saved to the forest's journal since its snapshot was written are replayed onto it; changes written to
+     * the journal after the last save are only counted, and can be recovered with recoverUnsavedChanges().
+     * A .db file written by Java serialization is read once and rewritten in the binary snapshot format.
      *
      * @return The loaded Forest object or null if an error occurred.
      */
     public static Forest loadForest() {
         Scanner scanner = new Scanner(System.in);
         System.out.print("Enter forest name: ");
-        String forestName = scanner.nextLine();
+        return loadForest(scanner.nextLine());
+    }//End of loadForest
 
+    /**
+     * Loads a forest from forestName.db without prompting for its name, replaying its journal as loadForest() does.
+     *
+     * @param forestName The name of the forest to load.
+     * @return The loaded Forest object or null if an error occurred.
+     */
+    public static Forest loadForest(String forestName) {
         String fileName = forestName + ".db";
-        try (ObjectInputStream inputStream = new ObjectInputStream(new FileInputStream(fileName))) {
-            // Read the Forest object from the file
-            Forest forest = (Forest) inputStream.readObject();
+        ForestMetrics.Sample sample = ForestMetrics.start(ForestMetrics.Operation.LOAD, forestName);
+        int treeCount = 0;
+        long bytes = 0;
+        try {
+            // Read the forest from the file
+            Path file = Paths.get(fileName);
+            bytes = Files.size(file);
+            boolean legacy = ForestSnapshot.isLegacy(file);
+            Forest forest = ForestSnapshot.read(file);
+            if (legacy){
+                ForestSnapshot.write(forest, file);
+                System.out.println("Migrated " + fileName + " to the binary snapshot format");
+            }
+            // Replay the changes made since the snapshot
+            forest.journal = ForestJournal.recover(journalPath(forestName), file, forest);
+            if (forest.journal.getRecordCount() > 0){
+                System.out.println("Replayed " + forest.journal.getRecordCount() + " changes from " + forest.journal.getFile());
+            }
+            if (forest.journal.getUnsavedCount() > 0){
+                System.out.println("Found " + forest.journal.getUnsavedCount() + " unsaved changes in "
+                        + forest.journal.getFile());
+            }
             System.out.println("Forest loaded successfully from " + fileName);
+            treeCount = forest.getTreeCount();
+            bytes += forest.journal.getSize();
             return forest;
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (IOException e) {
             System.out.println("Error loading forest from file: " + e.getMessage());
             return null;
+        } finally {
+            sample.finish(treeCount, bytes);
         }
     }//End of loadForest
+
+    /**
+     * Getter method to get the number of changes found in the forest's journal on loading that were made after it was
+     * last saved, such as by a run that stopped without saving, and that can be recovered.
+     *
+     * @return The number of unsaved changes, or 0 once they have been recovered or discarded.
+     */
+    public long getUnsavedChangeCount(){
+        return journal != null ? journal.getUnsavedCount() : 0;
+    }
+
+    /**
+     * Replays the unsaved changes found in the forest's journal on loading, as though they had been saved. This must
+     * be done before the forest is changed, since writing later changes to the journal discards them. If the changes do not fit the
+     * forest the error is printed and the forest is left as it was.
+     *
+     * @return The number of changes recovered.
+     */
+    public long recoverUnsavedChanges(){
+        if (journal == null){
+            return 0;
+        }
+        beginWrite();
+        try {
+            return journal.recoverUnsaved(this);
+        } catch (IOException e){
+            System.out.println("Error recovering unsaved changes: " + e.getMessage());
+            return 0;
+        } finally {
+            endWrite();
+        }
+    }
+
+    /**
+     * Discards the unsaved changes found in the forest's journal on loading, so they are not found again.
+     */
+    public void discardUnsavedChanges(){
+        if (journal == null){
+            return;
+        }
+        try {
+            journal.discardUnsaved();
+        } catch (IOException e){
+            System.out.println("Error writing forest journal: " + e.getMessage());
+            journal = null;
+        }
+    }
+
+    /**
+     * Builds the path of a forest's journal file.
+     */
+    private static Path journalPath(String forestName){
+        return Paths.get(forestName + ".journal");
+    }
+
+    /**
+     * Writes the forest in its original serialized form, a name and a list of trees. Forests are saved as binary
+     * snapshots now; this keeps the serialized form the same as the .db files that are still migrated from it.
+     *
+     * @param outputStream The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeObject(ObjectOutputStream outputStream) throws IOException {
+        compactRows();
+        ArrayList<Tree> treeList = new ArrayList<>(trees.size());
+        for (int index = 0; index < trees.size(); index++){
+            treeList.add(trees.get(index));
+        }
+        ObjectOutputStream.PutField fields = outputStream.putFields();
+        fields.put("forestName", forestName);
+        fields.put("trees", treeList);
+        outputStream.writeFields();
+    }//End of writeObject
+
+    /**
+     * Reads a forest written in the serialized form and copies its list of trees into columns.
+     *
+     * @param inputStream The stream to read from.
+     * @throws IOException If the stream cannot be read.
+     * @throws ClassNotFoundException If a serialized class cannot be found.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream inputStream) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = inputStream.readFields();
+        forestName = (String) fields.get("forestName", null);
+        ArrayList<Tree> treeList = (ArrayList<Tree>) fields.get("trees", null);
+
+        growthEngine = GrowthEngine.DEFAULT;
+        generator = new TreeGenerator();
+        deadRowRatio = DEFAULT_DEAD_ROW_RATIO;
+        TreeColumns columns = new TreeColumns(treeList == null ? 0 : treeList.size());
+        if (treeList != null){
+            for (Tree tree : treeList){
+                columns.add(tree);
+            }
+        }
+        trees = columns;
+    }//End of readObject
 }//End of Forest class
 
 
@@ -0,0 +1,365 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The ForestCache class holds the forests the menu works on, opening each one the first time it is asked for and
+ * keeping only as many in memory as fit in a budget of bytes. get() opens a forest from its .csv file if it has one,
+ * otherwise from its .db snapshot; load() prefers the .db snapshot, as loading a saved forest does. When the forests
+ * in memory outgrow the budget, the least recently used ones are written to spill files of their own and dropped,
+ * and the next time one is asked for it is read back from its spill file with all of its changes, so hundreds of
+ * forests can be worked on in one program. A forest read back keeps the settings it had, such as its seed's draw of
+ * random trees, its growth engine and its indexes, which the cache keeps in memory while its trees are spilled.
+ * Spilling never touches a forest's .db file or journal: only saving the forest does, and a forest read back from a
+ * spill file writes a full snapshot the next time it is saved.
+ * <p>
+ * A forest's size is estimated from its tree count, at the bytes a tree takes in its columns. Forests held by the
+ * cache keep their statistics up to date, so printing one never rescans it. The budget can be set with the
+ * forest.cache.maxBytes system property and defaults to half of the heap; spill files go to the directory named by
+ * the forest.cache.spillDir system property, or the temporary directory, and are deleted when read back or when the
+ * cache is closed.
+ */
+public class ForestCache implements AutoCloseable {
+    /**
+     * Default budget of bytes for the forests held in memory.
+     */
+    public static final long DEFAULT_MAX_BYTES = Long.getLong("forest.cache.maxBytes",
+            Runtime.getRuntime().maxMemory() / 2);
+
+    /**
+     * Default directory for the spill files of evicted forests.
+     */
+    public static final Path DEFAULT_SPILL_DIRECTORY = Paths.get(System.getProperty("forest.cache.spillDir",
+            System.getProperty("java.io.tmpdir")));
+
+    //Bytes a tree takes in the species, height, growth rate and year columns
+    static final int BYTES_PER_TREE = Byte.BYTES + Double.BYTES + Double.BYTES + Integer.BYTES;
+
+    private final long maxBytes;
+    private final Path spillDirectory;
+    //In order of use, so the first forest is the least recently used
+    private final LinkedHashMap<String, Forest> resident = new LinkedHashMap<>(16, 0.75f, true);
+    //The spill file each evicted forest was written to, with the settings its trees were spilled without
+    private final Map<String, Spilled> evicted = new HashMap<>();
+    //Forests that cannot be evicted while an operation over a group of them runs
+    private final Set<Forest> pinned = new HashSet<>();
+    //The forest being worked on, which is never evicted
+    private Forest held;
+    private long evictions;
+
+    /**
+     * Creates a cache with the default budget.
+     */
+    public ForestCache(){
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxBytes The budget of bytes for the forests held in memory. The forest most recently asked for is
+     *                 always held, even if it is larger on its own.
+     */
+    public ForestCache(long maxBytes){
+        this(maxBytes, DEFAULT_SPILL_DIRECTORY);
+    }
+
+    /**
+     * Creates a cache that writes evicted forests to spill files in a given directory.
+     *
+     * @param maxBytes The budget of bytes for the forests held in memory. The forest most recently asked for is
+     *                 always held, even if it is larger on its own.
+     * @param spillDirectory The directory for the spill files.
+     */
+    public ForestCache(long maxBytes, Path spillDirectory){
+        if (maxBytes <= 0){
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Retrieves a forest, opening it if it has not been opened yet or reading it back from its spill file if it has
+     * been evicted, and evicting the least recently used forests if it does not fit beside them.
+     *
+     * @param forestName The name of the forest.
+     * @return The forest, or null if it has no .csv or .db file that can be read.
+     */
+    public Forest get(String forestName){
+        return get(forestName, false);
+    }
+
+    /**
+     * Retrieves a forest as get() does, but opens a forest that has not been opened yet from its .db snapshot if it
+     * has one, and only from its .csv file otherwise.
+     *
+     * @param forestName The name of the forest.
+     * @return The forest, or null if it has no .db or .csv file that can be read.
+     */
+    public Forest load(String forestName){
+        return get(forestName, true);
+    }
+
+    /**
+     * Retrieves a forest as get() does and holds it in memory as the forest being worked on, in place of the one
+     * held before, until another forest is held.
+     *
+     * @param forestName The name of the forest.
+     * @param snapshotFirst Whether to open the forest as load() does rather than as get() does.
+     * @return The forest, or null if it cannot be opened, in which case the forest held before is still held.
+     */
+    public Forest hold(String forestName, boolean snapshotFirst){
+        Forest forest = get(forestName, snapshotFirst);
+        if (forest != null){
+            held = forest;
+        }
+        return forest;
+    }
+
+    /**
+     * Retrieves a forest from memory, its spill file, or its files.
+     */
+    private Forest get(String forestName, boolean snapshotFirst){
+        Forest forest = resident.get(forestName);
+        if (forest == null){
+            Spilled spilled = evicted.get(forestName);
+            forest = spilled != null ? unspill(spilled) : open(forestName, snapshotFirst);
+            if (forest == null){
+                return null;
+            }
+            evicted.remove(forestName);
+            forest.enableStatistics();
+            resident.put(forestName, forest);
+        }
+        evictToFit(forest);
+        return forest;
+    }//End of get method
+
+    /**
+     * Checks whether a forest is held in memory.
+     *
+     * @param forestName The name of the forest.
+     * @return True if the forest is in memory, false if it has not been opened yet or has been evicted.
+     */
+    public boolean isResident(String forestName){
+        return resident.containsKey(forestName);
+    }
+
+    /**
+     * Getter method to get the number of forests held in memory.
+     *
+     * @return The number of forests in memory.
+     */
+    public int getResidentCount(){
+        return resident.size();
+    }
+
+    /**
+     * Estimates the memory taken by the forests held in memory.
+     *
+     * @return The estimated size in bytes.
+     */
+    public long getResidentBytes(){
+        long bytes = 0;
+        for (Forest forest : resident.values()){
+            bytes += sizeOf(forest);
+        }
+        return bytes;
+    }
+
+    /**
+     * Getter method to get the budget of bytes for the forests held in memory.
+     *
+     * @return The budget in bytes.
+     */
+    public long getMaxBytes(){
+        return this.maxBytes;
+    }
+
+    /**
+     * Getter method to get the number of times a forest has been spilled and dropped to stay within the budget.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions(){
+        return this.evictions;
+    }
+
+    /**
+     * Runs an operation over forests a group at a time, each group as many of the forests as fit in the budget
+     * together, so an operation over every forest never needs them all in memory at once. A group's forests stay in
+     * memory until the operation has finished with them; since a forest's size is only known once it is open, the
+     * forest after a group is opened before the group runs, and may take the cache over its budget until then.
+     *
+     * @param forestNames The names of the forests, in order; forests that cannot be opened are left out.
+     * @param operation The operation to run on each group, such as growing every forest in it.
+     * @return The timings returned for every group, in order.
+     */
+    public List<ForestTiming> runInGroups(Collection<String> forestNames,
+                                          Function<List<Forest>, List<ForestTiming>> operation){
+        List<ForestTiming> timings = new ArrayList<>();
+        List<Forest> group = new ArrayList<>();
+        long groupBytes = 0;
+        try {
+            for (String forestName : new LinkedHashSet<>(forestNames)){
+                Forest forest = get(forestName);
+                if (forest == null){
+                    continue;
+                }
+                long size = sizeOf(forest);
+                //Run the group so far once the next forest no longer fits beside it
+                if (!group.isEmpty() && groupBytes + size > maxBytes){
+                    timings.addAll(operation.apply(group));
+                    group.clear();
+                    pinned.clear();
+                    groupBytes = 0;
+                    evictToFit(forest);
+                }
+                group.add(forest);
+                pinned.add(forest);
+                groupBytes += size;
+            }
+            if (!group.isEmpty()){
+                timings.addAll(operation.apply(group));
+            }
+        } finally {
+            pinned.clear();
+        }
+        evictToFit(null);
+        return timings;
+    }//End of runInGroups method
+
+    /**
+     * Opens a forest by name from its .csv file, or from its .db file if it has no .csv file.
+     *
+     * @param forestName The name of the forest.
+     * @return The forest, or null if neither file can be read.
+     */
+    static Forest open(String forestName){
+        return open(forestName, false);
+    }
+
+    /**
+     * Opens a forest by name from its .csv or .db file, trying the one asked for first.
+     *
+     * @param forestName The name of the forest.
+     * @param snapshotFirst Whether to try the .db file before the .csv file.
+     * @return The forest, or null if neither file can be read.
+     */
+    static Forest open(String forestName, boolean snapshotFirst){
+        File csvFile = new File(forestName + ".csv");
+        boolean hasSnapshot = new File(forestName + ".db").exists();
+        if (csvFile.exists() && !(snapshotFirst && hasSnapshot)){
+            Forest forest = new Forest(forestName);
+            for (CsvRowError error : forest.readTreesFromCSV(csvFile)){
+                System.out.println("Invalid data format in " + csvFile.getName() + " " + error);
+            }
+            return forest;
+        }
+        if (hasSnapshot){
+            return Forest.loadForest(forestName);
+        }
+        System.out.println("Error opening/reading " + forestName);
+        return null;
+    }//End of open method
+
+    /**
+     * Writes the least recently used forests to spill files and drops them until the rest fit in the budget. A
+     * forest that cannot be spilled is kept rather than lose its changes.
+     *
+     * @param keep A forest that must stay in memory, or null.
+     */
+    private void evictToFit(Forest keep){
+        long bytes = getResidentBytes();
+        Iterator<Forest> leastRecent = resident.values().iterator();
+        while (bytes > maxBytes && leastRecent.hasNext()){
+            Forest forest = leastRecent.next();
+            if (forest == keep || forest == held || pinned.contains(forest)){
+                continue;
+            }
+            Path spill = null;
+            try {
+                spill = Files.createTempFile(spillDirectory, "forest-", ".spill");
+                ForestSnapshot.write(forest, spill);
+            } catch (IOException e){
+                if (spill != null){
+                    spill.toFile().delete();
+                }
+                System.out.println("Error spilling " + forest.getForestName() + ": " + e.getMessage());
+                System.out.println("Keeping " + forest.getForestName() + " in memory");
+                continue;
+            }
+            bytes -= sizeOf(forest);
+            leastRecent.remove();
+            evicted.put(forest.getForestName(), new Spilled(spill, forest.getSettings()));
+            evictions++;
+        }
+    }//End of evictToFit method
+
+    /**
+     * Reads an evicted forest back from its spill file, gives it back its settings and deletes the file.
+     *
+     * @return The forest, or null if the spill file cannot be read.
+     */
+    private static Forest unspill(Spilled spilled){
+        try {
+            Forest forest = ForestSnapshot.read(spilled.file);
+            forest.applySettings(spilled.settings);
+            Files.deleteIfExists(spilled.file);
+            return forest;
+        } catch (IOException e){
+            System.out.println("Error reading spilled forest from " + spilled.file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the spill files of the forests that have been evicted, dropping the changes made to them since they
+     * were last saved. An evicted forest asked for afterwards is opened from its files again.
+     */
+    @Override
+    public synchronized void close(){
+        for (Spilled spilled : evicted.values()){
+            try {
+                Files.deleteIfExists(spilled.file);
+            } catch (IOException e){
+                System.out.println("Error deleting spill file " + spilled.file + ": " + e.getMessage());
+            }
+        }
+        evicted.clear();
+    }
+
+    /**
+     * Estimates the memory a forest takes.
+     */
+    private static long sizeOf(Forest forest){
+        return (long) forest.getTreeCount() * BYTES_PER_TREE;
+    }
+
+    /**
+     * The spill file an evicted forest's trees were written to and the settings the file does not hold.
+     */
+    private static final class Spilled {
+        private final Path file;
+        private final Forest.Settings settings;
+
+        private Spilled(Path file, Forest.Settings settings){
+            this.file = file;
+            this.settings = settings;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * The ForestEnsemble class runs many replicas of a forest through the same years of growth and reaping, each replica
+ * planting its replacement trees from a seed of its own, and reports the spread of their outcomes year by year.
+ * <p>
+ * Replicas are never copied out of the base forest. Each replica only differs from the base in the trees it reaps
+ * and replants, and since every tree grows on its own, a replica can be run one base row at a time: the row is grown
+ * year by year in registers, replaced from the replica's generator whenever it passes the reaping height, and its
+ * height and species added to the replica's totals for each year. A replica therefore costs a generator and a few
+ * numbers per year however large the forest is, so thousands of them fit in memory together. The rows are walked a
+ * block at a time, with every replica of a task running over one block while it is in cache before moving on.
+ * <p>
+ * Forest.simulateYears(years, height) also runs each tree through all of its years before moving to the next, so a
+ * replica draws its replacements in the same order and ends up with exactly the trees that call would leave in a copy
+ * of the base forest given the same seed: run(1, seed, years, height) matches a copy whose seed was set to seed.
+ * Calling simulateYearlyGrowth() and reapForest(height) once a year instead draws the replacements year by year, which
+ * gives a different but equally likely forest. Replicas are split across the growth engine's pool, and each replica's
+ * results do not depend on which thread ran it.
+ */
+public class ForestEnsemble {
+    //Rows each replica of a task runs over before the next replica takes its turn
+    private static final int BLOCK = 1 << 12;
+    private static final int SPECIES_COUNT = TreeSpecies.values().length;
+
+    private final ForestView base;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an ensemble of a forest, run on the default growth engine's pool.
+     *
+     * @param forest The base forest. It must not change while the ensemble runs, unless it has concurrent reads
+     *               enabled, in which case the ensemble keeps the trees it had when the ensemble was created.
+     */
+    public ForestEnsemble(Forest forest){
+        this(forest, GrowthEngine.DEFAULT);
+    }
+
+    /**
+     * Creates an ensemble of a forest, run on a growth engine's pool.
+     *
+     * @param forest The base forest, which must not change while the ensemble runs unless it is read concurrently.
+     * @param engine The engine whose pool runs the replicas.
+     */
+    public ForestEnsemble(Forest forest, GrowthEngine engine){
+        this.base = forest.snapshot();
+        this.pool = engine.getPool();
+    }
+
+    /**
+     * Runs the replicas and returns their outcomes for each year.
+     *
+     * @param replicas The number of replicas.
+     * @param seed The seed the replicas' own seeds are drawn from, so the same seed gives the same outcomes.
+     * @param years The number of years to grow.
+     * @param reapHeight The height threshold for reaping trees after each year.
+     * @return The outcomes of each year, in order.
+     */
+    public List<EnsembleYear> run(int replicas, long seed, int years, double reapHeight){
+        List<EnsembleYear> outcomes = new ArrayList<>(years);
+        run(replicas, seed, years, reapHeight, outcomes::add);
+        return outcomes;
+    }
+
+    /**
+     * Runs the replicas and passes their outcomes to a consumer one year at a time. Every replica runs all of its
+     * years over a tree before moving to the next, so the years are passed on once the replicas have finished, in
+     * order, each one sorted only as it is passed on.
+     *
+     * @param replicas The number of replicas.
+     * @param seed The seed the replicas' own seeds are drawn from, so the same seed gives the same outcomes.
+     * @param years The number of years to grow.
+     * @param reapHeight The height threshold for reaping trees after each year.
+     * @param consumer The consumer of each year's outcomes.
+     */
+    public void run(int replicas, long seed, int years, double reapHeight, Consumer<EnsembleYear> consumer){
+        if (replicas < 1){
+            throw new IllegalArgumentException("Replicas must be positive: " + replicas);
+        }
+        if (years < 0){
+            throw new IllegalArgumentException("Years must not be negative: " + years);
+        }
+        //Draw every replica's seed before any work starts, so the outcomes do not depend on the threads
+        TreeGenerator seeds = new TreeGenerator(seed);
+        Replica[] all = new Replica[replicas];
+        for (int replica = 0; replica < replicas; replica++){
+            all[replica] = new Replica(seeds.nextSeed(), years);
+        }
+        int currentYear = TreeGenerator.currentYear();
+        int chunk = Math.max(1, replicas / (pool.getParallelism() * 4));
+        pool.invoke(new ReplicaTask(all, 0, replicas, chunk, years, reapHeight, currentYear));
+
+        int trees = base.size();
+        for (int year = 0; year < years; year++){
+            double[] meanHeights = new double[replicas];
+            double[] reaped = new double[replicas];
+            double[][] speciesShares = new double[SPECIES_COUNT][replicas];
+            for (int replica = 0; replica < replicas; replica++){
+                Replica outcome = all[replica];
+                meanHeights[replica] = trees == 0 ? 0 : outcome.heightSums[year] / trees;
+                reaped[replica] = outcome.reaped[year];
+                for (int species = 0; species < SPECIES_COUNT; species++){
+                    speciesShares[species][replica] = trees == 0 ? 0
+                            : (double) outcome.speciesCounts[year * SPECIES_COUNT + species] / trees;
+                }
+            }
+            consumer.accept(new EnsembleYear(year + 1, meanHeights, reaped, speciesShares));
+        }
+    }//End of run method
+
+    /**
+     * Runs some replicas over every row of the base, a block of rows at a time.
+     */
+    private void runReplicas(Replica[] replicas, int from, int to, int years, double reapHeight, int currentYear){
+        Tree replacement = new Tree(null, 0, 0, 0);
+        int size = base.size();
+        for (int block = 0; block < size; block += BLOCK){
+            int end = Math.min(size, block + BLOCK);
+            for (int index = from; index < to; index++){
+                Replica replica = replicas[index];
+                for (int row = block; row < end; row++){
+                    int species = base.getSpecies(row).ordinal();
+                    double height = base.getHeight(row);
+                    double growthRate = base.getGrowthRate(row);
+                    for (int year = 0; year < years; year++){
+                        height = Tree.heightAfterOneYear(height, growthRate);
+                        if (height > reapHeight){
+                            //Replant as the forest would, carrying on with the replacement for the remaining years
+                            replica.random.nextReplacement(replacement, currentYear);
+                            species = replacement.getSpecies().ordinal();
+                            height = replacement.getHeight();
+                            growthRate = replacement.getGrowthRate();
+                            replica.reaped[year]++;
+                        }
+                        replica.heightSums[year] += height;
+                        replica.speciesCounts[year * SPECIES_COUNT + species]++;
+                    }
+                }
+            }
+        }
+    }//End of runReplicas method
+
+    /**
+     * The state of one replica: its generator and its totals for each year.
+     */
+    private static final class Replica {
+        final TreeGenerator random;
+        final double[] heightSums;
+        final int[] reaped;
+        final int[] speciesCounts;
+
+        Replica(long seed, int years){
+            this.random = new TreeGenerator(seed);
+            this.heightSums = new double[years];
+            this.reaped = new int[years];
+            this.speciesCounts = new int[years * SPECIES_COUNT];
+        }
+    }
+
+    /**
+     * Fork-join task that splits a range of replicas in half until it is no larger than one chunk.
+     */
+    private final class ReplicaTask extends RecursiveAction {
+        private static final long serialVersionUID = -8531699129511414324L;
+
+        private final Replica[] replicas;
+        private final int from, to, chunk, years, currentYear;
+        private final double reapHeight;
+
+        ReplicaTask(Replica[] replicas, int from, int to, int chunk, int years, double reapHeight, int currentYear){
+            this.replicas = replicas;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.years = years;
+            this.reapHeight = reapHeight;
+            this.currentYear = currentYear;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from <= chunk){
+                runReplicas(replicas, from, to, years, reapHeight, currentYear);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ReplicaTask(replicas, from, middle, chunk, years, reapHeight, currentYear),
+                    new ReplicaTask(replicas, middle, to, chunk, years, reapHeight, currentYear));
+        }
+    }//End of ReplicaTask class
+}
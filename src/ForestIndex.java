@@ -0,0 +1,571 @@
+import java.util.Arrays;
+
+/**
+ * The ForestIndex class keeps secondary indexes over the trees of a forest so that threshold reaps and species or
+ * planting year queries do not have to scan every tree:
+ * <ul>
+ *   <li>a RowBitmap of rows per species,</li>
+ *   <li>the rows split into chains, each ordered by both height and growth rate,</li>
+ *   <li>the rows ordered by year of planting, as sorted keys packing the year above the row number.</li>
+ * </ul>
+ * Of two growing trees, with positive heights and growth rates of at least 0, the one with the larger height and the
+ * larger growth rate is still the taller after growth, so growth never reorders a chain and costs the index nothing.
+ * Trees that may shrink or turn NaN as they grow are kept out of the chains and checked on every height query. Added
+ * and replaced trees wait in a pending set until the next query, which takes the replaced rows out of place in one
+ * pass and chains only the pending rows, so a reap never re-sorts the trees it left standing. A height query costs a
+ * binary search per chain plus the rows it returns; the chains are rebuilt when merges have left too many of them.
+ */
+public class ForestIndex {
+    private static final int SPECIES_COUNT = TreeSpecies.values().length;
+    private static final long ROW_MASK = 0xFFFFFFFFL;
+
+    private final TreeStore trees;
+    private RowBitmap[] bySpecies = new RowBitmap[SPECIES_COUNT];
+    private int size;
+
+    //The chained rows, one chain after another, each in order of height and growth rate
+    private int[] chains = new int[16];
+    private int chained;
+    //The end of each chain in chains
+    private int[] chainEnds = new int[16];
+    private int chainCount;
+    //The number of chains after the last rebuild, against which merges are measured
+    private int rebuiltChains;
+    //Rows of trees that are not growing, which growth could move out of order, checked on every height query
+    private int[] loose = new int[16];
+    private int looseCount;
+    private final PendingRows heightsPending = new PendingRows();
+
+    private long[] byYear;
+    private int yearCount;
+    private final PendingRows yearsPending = new PendingRows();
+
+    /**
+     * Builds the indexes over the current trees of a store.
+     *
+     * @param trees The store to index.
+     */
+    public ForestIndex(TreeStore trees){
+        this.trees = trees;
+        this.size = trees.size();
+        for (int ordinal = 0; ordinal < SPECIES_COUNT; ordinal++){
+            bySpecies[ordinal] = new RowBitmap();
+        }
+        byYear = new long[Math.max(16, size)];
+        for (int row = 0; row < size; row++){
+            bySpecies[trees.getSpecies(row).ordinal()].set(row);
+            byYear[row] = yearKey(trees.getYearOfPlanting(row), row);
+        }
+        Arrays.sort(byYear, 0, size);
+        yearCount = size;
+        rebuildHeights();
+    }
+
+    /**
+     * Records a tree appended to the end of the store.
+     *
+     * @param row The new row.
+     */
+    void onAdd(int row){
+        bySpecies[trees.getSpecies(row).ordinal()].set(row);
+        size++;
+        heightsPending.add(row, false);
+        yearsPending.add(row, false);
+    }
+
+    /**
+     * Records that the rows of cut trees have been removed from the store and every later row moved down, renumbering
+     * the indexes in one pass.
+     *
+     * @param dead The rows that were removed, numbered as they were before the removal.
+     */
+    void onCompact(RowBitmap dead){
+        int[] moved = new int[size];
+        int live = 0;
+        for (int row = 0; row < size; row++){
+            moved[row] = dead.get(row) ? -1 : live++;
+        }
+        size = live;
+
+        for (int ordinal = 0; ordinal < SPECIES_COUNT; ordinal++){
+            bySpecies[ordinal] = renumber(bySpecies[ordinal], moved);
+        }
+
+        //Chains keep their order, since the rows left in them only move down
+        int out = 0;
+        int chainsOut = 0;
+        int start = 0;
+        for (int chain = 0; chain < chainCount; chain++){
+            int first = out;
+            for (int i = start; i < chainEnds[chain]; i++){
+                int row = moved[chains[i]];
+                if (row >= 0){
+                    chains[out++] = row;
+                }
+            }
+            start = chainEnds[chain];
+            if (out > first){
+                chainEnds[chainsOut++] = out;
+            }
+        }
+        chained = out;
+        chainCount = chainsOut;
+        looseCount = renumber(loose, looseCount, moved);
+
+        //Renumbering keeps the order of the year keys too, since rows only break ties between equal years
+        out = 0;
+        for (int i = 0; i < yearCount; i++){
+            long key = byYear[i];
+            int row = moved[(int) (key & ROW_MASK)];
+            if (row >= 0){
+                byYear[out++] = (key & ~ROW_MASK) | row;
+            }
+        }
+        yearCount = out;
+
+        heightsPending.renumber(moved);
+        yearsPending.renumber(moved);
+    }//End of onCompact method
+
+    /**
+     * Records a tree about to be replaced in place, as reaping does. Must be called before the row is overwritten.
+     *
+     * @param row The row being replaced.
+     */
+    void beforeReplace(int row){
+        bySpecies[trees.getSpecies(row).ordinal()].clear(row);
+    }
+
+    /**
+     * Records a tree that has just been replaced in place.
+     *
+     * @param row The row that was replaced.
+     */
+    void afterReplace(int row){
+        bySpecies[trees.getSpecies(row).ordinal()].set(row);
+        heightsPending.add(row, true);
+        yearsPending.add(row, true);
+    }
+
+    /**
+     * Records growth of the whole forest. Growth keeps every chain in order, and the trees outside the chains are
+     * checked when queried, so there is nothing to update.
+     */
+    void onGrowth(){
+    }
+
+    /**
+     * Finds every tree taller than a height.
+     *
+     * @param height The height threshold.
+     * @return The rows of the trees taller than the threshold, in row order.
+     */
+    public int[] rowsTallerThan(double height){
+        refreshHeights();
+        //Each chain is in height order, so its taller trees are the ones after a binary search
+        int[] firsts = new int[chainCount];
+        int count = 0;
+        int start = 0;
+        for (int chain = 0; chain < chainCount; chain++){
+            int end = chainEnds[chain];
+            firsts[chain] = firstTallerThan(start, end, height);
+            count += end - firsts[chain];
+            start = end;
+        }
+        int[] rows = new int[count + looseCount];
+        count = 0;
+        for (int chain = 0; chain < chainCount; chain++){
+            int end = chainEnds[chain];
+            System.arraycopy(chains, firsts[chain], rows, count, end - firsts[chain]);
+            count += end - firsts[chain];
+        }
+        for (int i = 0; i < looseCount; i++){
+            if (trees.getHeight(loose[i]) > height){
+                rows[count++] = loose[i];
+            }
+        }
+        return inRowOrder(rows, count);
+    }//End of rowsTallerThan method
+
+    /**
+     * Finds every tree of a species planted in a range of years.
+     *
+     * @param species The species to find.
+     * @param fromYear The earliest year of planting, inclusive.
+     * @param toYear The latest year of planting, inclusive.
+     * @return The rows of the matching trees, in row order.
+     */
+    public int[] rowsOf(TreeSpecies species, int fromYear, int toYear){
+        refreshYears();
+        if (fromYear > toYear){
+            return new int[0];
+        }
+        RowBitmap speciesRows = bySpecies[species.ordinal()];
+        int first = lowerBound(byYear, yearCount, yearKey(fromYear, 0));
+        int end = toYear == Integer.MAX_VALUE ? yearCount : lowerBound(byYear, yearCount, yearKey(toYear + 1, 0));
+        int[] rows = new int[end - first];
+        int count = 0;
+        for (int i = first; i < end; i++){
+            int row = (int) (byYear[i] & ROW_MASK);
+            if (speciesRows.get(row)){
+                rows[count++] = row;
+            }
+        }
+        return inRowOrder(rows, count);
+    }//End of rowsOf method
+
+    /**
+     * Finds every tree of a species.
+     *
+     * @param species The species to find.
+     * @return The rows of the matching trees, in row order.
+     */
+    public int[] rowsOf(TreeSpecies species){
+        RowBitmap speciesRows = bySpecies[species.ordinal()];
+        int[] rows = new int[speciesRows.cardinality()];
+        int count = 0;
+        for (int row = speciesRows.nextSetBit(0); row >= 0; row = speciesRows.nextSetBit(row + 1)){
+            rows[count++] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * Brings the chains up to date before a height query: takes the replaced rows out of place in one pass, then
+     * chains the pending rows with their current heights. The chains are rebuilt from scratch instead when a large
+     * share of the forest is pending, and once merges have more than doubled their number.
+     */
+    private void refreshHeights(){
+        //Chaining a large share of the forest again costs about as much as a rebuild, which leaves fewer chains
+        if (heightsPending.count > size >>> 2){
+            rebuildHeights();
+            return;
+        }
+        if (heightsPending.replaced){
+            int out = 0;
+            int chainsOut = 0;
+            int start = 0;
+            for (int chain = 0; chain < chainCount; chain++){
+                int first = out;
+                for (int i = start; i < chainEnds[chain]; i++){
+                    int row = chains[i];
+                    if (!heightsPending.contains(row)){
+                        chains[out++] = row;
+                    }
+                }
+                start = chainEnds[chain];
+                if (out > first){
+                    chainEnds[chainsOut++] = out;
+                }
+            }
+            chained = out;
+            chainCount = chainsOut;
+            out = 0;
+            for (int i = 0; i < looseCount; i++){
+                if (!heightsPending.contains(loose[i])){
+                    loose[out++] = loose[i];
+                }
+            }
+            looseCount = out;
+        }
+        if (heightsPending.count > 0){
+            chain(heightsPending.rows, heightsPending.count);
+            heightsPending.clear();
+            if (chainCount > 2 * rebuiltChains + 16){
+                rebuildHeights();
+            }
+        }
+    }//End of refreshHeights method
+
+    /**
+     * Chains every row of the store afresh.
+     */
+    private void rebuildHeights(){
+        chained = 0;
+        chainCount = 0;
+        looseCount = 0;
+        heightsPending.clear();
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++){
+            rows[row] = row;
+        }
+        chain(rows, size);
+        rebuiltChains = chainCount;
+    }
+
+    /**
+     * Adds rows to the chains as new chains after the existing ones. The rows are sorted by height, then each is put
+     * at the end of the chain whose last growth rate is the largest that is not above its own, starting a new chain
+     * if there is none. The last growth rates of the new chains stay in descending order, so each is found by a
+     * binary search.
+     */
+    private void chain(int[] rows, int count){
+        //Sort on float heights, then finish the order on the exact heights, which the floats rarely leave unsorted
+        long[] keys = new long[count];
+        int ordered = 0;
+        for (int i = 0; i < count; i++){
+            int row = rows[i];
+            double height = trees.getHeight(row);
+            if (!isGrowing(height, trees.getGrowthRate(row))){
+                if (looseCount == loose.length){
+                    loose = Arrays.copyOf(loose, looseCount * 2);
+                }
+                loose[looseCount++] = row;
+            } else {
+                keys[ordered++] = ((long) sortableFloat((float) height) << 32) | row;
+            }
+        }
+        Arrays.sort(keys, 0, ordered);
+        int[] sorted = new int[ordered];
+        double[] heights = new double[ordered];
+        double[] rates = new double[ordered];
+        for (int i = 0; i < ordered; i++){
+            int row = (int) (keys[i] & ROW_MASK);
+            double height = trees.getHeight(row);
+            double rate = trees.getGrowthRate(row);
+            int j = i;
+            while (j > 0 && heights[j - 1] > height){
+                sorted[j] = sorted[j - 1];
+                heights[j] = heights[j - 1];
+                rates[j] = rates[j - 1];
+                j--;
+            }
+            sorted[j] = row;
+            heights[j] = height;
+            rates[j] = rate;
+        }
+
+        //Deal each row onto a chain, keeping the chains' last growth rates in descending order
+        double[] lastRates = new double[16];
+        int newChains = 0;
+        int[] chainOf = new int[ordered];
+        int[] lengths = new int[16];
+        for (int i = 0; i < ordered; i++){
+            double rate = rates[i];
+            int low = 0;
+            int high = newChains;
+            while (low < high){
+                int middle = (low + high) >>> 1;
+                if (lastRates[middle] > rate){
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (low == newChains){
+                if (newChains == lastRates.length){
+                    lastRates = Arrays.copyOf(lastRates, newChains * 2);
+                    lengths = Arrays.copyOf(lengths, newChains * 2);
+                }
+                newChains++;
+            }
+            lastRates[low] = rate;
+            lengths[low]++;
+            chainOf[i] = low;
+        }
+
+        //Lay the new chains out one after another, each holding its rows in the height order they were dealt in
+        if (chained + ordered > chains.length){
+            chains = Arrays.copyOf(chains, Math.max(chains.length * 2, chained + ordered));
+        }
+        if (chainCount + newChains > chainEnds.length){
+            chainEnds = Arrays.copyOf(chainEnds, Math.max(chainEnds.length * 2, chainCount + newChains));
+        }
+        int[] next = new int[newChains];
+        int end = chained;
+        for (int chain = 0; chain < newChains; chain++){
+            next[chain] = end;
+            end += lengths[chain];
+            chainEnds[chainCount + chain] = end;
+        }
+        for (int i = 0; i < ordered; i++){
+            chains[next[chainOf[i]]++] = sorted[i];
+        }
+        chained = end;
+        chainCount += newChains;
+    }//End of chain method
+
+    /**
+     * Brings the year keys up to date before a year query: drops the keys of replaced rows in one pass and merges in
+     * the sorted keys of the pending rows.
+     */
+    private void refreshYears(){
+        if (yearsPending.count == 0){
+            return;
+        }
+        if (yearsPending.replaced){
+            int out = 0;
+            for (int i = 0; i < yearCount; i++){
+                if (!yearsPending.contains((int) (byYear[i] & ROW_MASK))){
+                    byYear[out++] = byYear[i];
+                }
+            }
+            yearCount = out;
+        }
+        long[] added = new long[yearsPending.count];
+        for (int i = 0; i < added.length; i++){
+            int row = yearsPending.rows[i];
+            added[i] = yearKey(trees.getYearOfPlanting(row), row);
+        }
+        Arrays.sort(added);
+        long[] merged = new long[Math.max(byYear.length, yearCount + added.length)];
+        int i = 0;
+        int j = 0;
+        int out = 0;
+        while (i < yearCount && j < added.length){
+            merged[out++] = byYear[i] <= added[j] ? byYear[i++] : added[j++];
+        }
+        while (i < yearCount){
+            merged[out++] = byYear[i++];
+        }
+        while (j < added.length){
+            merged[out++] = added[j++];
+        }
+        byYear = merged;
+        yearCount = out;
+        yearsPending.clear();
+    }//End of refreshYears method
+
+    /**
+     * Checks that a tree only grows, and grows in the same order as every tree with a height and growth rate at least
+     * as large: height + height * growthRate and height * (1 + growthRate)^years never round a larger height or rate
+     * to a smaller result, and a finite positive height with a finite growth rate of at least 0 never reaches NaN.
+     */
+    private static boolean isGrowing(double height, double growthRate){
+        return height > 0 && height < Double.POSITIVE_INFINITY
+                && growthRate >= 0 && growthRate < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Puts found rows in row order: through a bitmap when they are a large share of the forest, otherwise by sorting.
+     */
+    private int[] inRowOrder(int[] rows, int count){
+        if (count < size >>> 6){
+            rows = Arrays.copyOf(rows, count);
+            Arrays.sort(rows);
+            return rows;
+        }
+        RowBitmap found = new RowBitmap();
+        for (int i = 0; i < count; i++){
+            found.set(rows[i]);
+        }
+        int out = 0;
+        for (int row = found.nextSetBit(0); row >= 0; row = found.nextSetBit(row + 1)){
+            rows[out++] = row;
+        }
+        return Arrays.copyOf(rows, out);
+    }
+
+    /**
+     * Finds the first row of a chain taller than a height, or the end of the chain if none is.
+     */
+    private int firstTallerThan(int start, int end, double height){
+        int low = start;
+        int high = end;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (trees.getHeight(chains[middle]) > height){
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Renumbers the rows of a bitmap after rows have been removed, dropping the removed ones.
+     */
+    private static RowBitmap renumber(RowBitmap rows, int[] moved){
+        RowBitmap renumbered = new RowBitmap();
+        for (int row = rows.nextSetBit(0); row >= 0 && row < moved.length; row = rows.nextSetBit(row + 1)){
+            if (moved[row] >= 0){
+                renumbered.set(moved[row]);
+            }
+        }
+        return renumbered;
+    }
+
+    /**
+     * Renumbers a list of rows in place after rows have been removed, dropping the removed ones.
+     *
+     * @return The new number of rows in the list.
+     */
+    private static int renumber(int[] rows, int count, int[] moved){
+        int out = 0;
+        for (int i = 0; i < count; i++){
+            if (moved[rows[i]] >= 0){
+                rows[out++] = moved[rows[i]];
+            }
+        }
+        return out;
+    }
+
+    private static int lowerBound(long[] keys, int count, long key){
+        int low = 0;
+        int high = count;
+        while (low < high){
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long yearKey(int year, int row){
+        return ((long) year << 32) | row;
+    }
+
+    /**
+     * Maps a float to an int whose signed order matches the float's numeric order.
+     */
+    private static int sortableFloat(float value){
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+
+    /**
+     * Rows added or replaced since an index was last brought up to date, each listed once.
+     */
+    private static final class PendingRows {
+        private RowBitmap marked = new RowBitmap();
+        int[] rows = new int[16];
+        int count;
+        //Whether any of the rows was already in the index and must be taken out of its old place
+        boolean replaced;
+
+        void add(int row, boolean replaced){
+            if (!marked.get(row)){
+                marked.set(row);
+                if (count == rows.length){
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = row;
+            }
+            this.replaced |= replaced;
+        }
+
+        boolean contains(int row){
+            return count > 0 && marked.get(row);
+        }
+
+        void clear(){
+            for (int i = 0; i < count; i++){
+                marked.clear(rows[i]);
+            }
+            count = 0;
+            replaced = false;
+        }
+
+        void renumber(int[] moved){
+            count = ForestIndex.renumber(rows, count, moved);
+            marked = new RowBitmap();
+            for (int i = 0; i < count; i++){
+                marked.set(rows[i]);
+            }
+        }
+    }//End of PendingRows class
+}
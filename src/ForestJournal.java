@@ -0,0 +1,659 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * The ForestJournal class is an append-only log of the changes made to a forest since its last snapshot was saved.
+ * Saving a forest that has a journal only has to write the changes made since the last save, and loading it replays
+ * the journal onto the snapshot.
+ * <p>
+ * Records are collected in memory and written ahead of the next save in batches, each one flushed to disk as soon
+ * as it fills, so many changes share one write. commit(), called by saving the forest, writes the records collected
+ * so far followed by a save marker. Loading replays the records up to the last save marker; the changes after it
+ * were made but never saved, and are only replayed if the user asks to recover them, such as after a crash. Changes
+ * still collected in memory when the program stopped are lost. Each batch carries its length and a CRC32C, so a batch
+ * that was only partly written when the program stopped is detected and dropped on replay. The journal is tied to one
+ * snapshot by that snapshot's checksum; a journal for a different snapshot is ignored. Journals of version 1 held
+ * saved batches only, and are read as though each batch ended with a save marker.
+ * <pre>
+ *   header: int magic "CFJL", short version, short reserved, int snapshot checksum, int reserved, long tree count
+ *   batch:  int length, int CRC32C of the records, then the records
+ * </pre>
+ */
+public class ForestJournal {
+    /**
+     * Magic number at the start of every journal, "CFJL" in ASCII.
+     */
+    public static final int MAGIC = 0x4C4A4643;
+
+    /**
+     * Version of the format written by this class.
+     */
+    public static final short VERSION = 2;
+
+    /**
+     * Default size in bytes of the buffer records are collected in before they are written as one batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1 << 16;
+
+    /**
+     * Default ratio of journal size to snapshot size at which saving writes a fresh snapshot instead of the journal.
+     */
+    public static final double DEFAULT_COMPACTION_RATIO = 0.5;
+
+    //Record types
+    static final byte ADD = 1;
+    static final byte CUT = 2;
+    static final byte GROW = 3;
+    static final byte REAP = 4;
+    static final byte GROW_AND_REAP = 5;
+    static final byte PLANT = 6;
+    static final byte CUT_RANGE = 7;
+    static final byte SAVED = 8;
+
+    private static final int HEADER_SIZE = 24;
+    private static final int BATCH_HEADER_SIZE = 8;
+
+    private final Path file;
+    private final double compactionRatio;
+    private final ByteBuffer pending;
+    //Where the next batch is written
+    private long journalSize;
+    //The size of the journal at its last save marker
+    private long savedSize;
+    //The end of the unsaved records found after the last save marker on loading, until they are recovered or dropped
+    private long unsavedEnd;
+    private long unsavedCount;
+    private final long snapshotSize;
+    private long recordCount;
+
+    private ForestJournal(Path file, long journalSize, long snapshotSize, int batchSize, double compactionRatio){
+        this.file = file;
+        this.journalSize = journalSize;
+        this.savedSize = journalSize;
+        this.unsavedEnd = journalSize;
+        this.snapshotSize = snapshotSize;
+        this.compactionRatio = compactionRatio;
+        this.pending = ByteBuffer.allocate(batchSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.pending.position(BATCH_HEADER_SIZE);
+    }
+
+    /**
+     * Starts a new, empty journal for a snapshot that has just been written, replacing any older journal.
+     *
+     * @param file The journal file.
+     * @param snapshotFile The snapshot the journal applies to.
+     * @param treeCount The number of trees in the snapshot.
+     * @return The new journal.
+     * @throws IOException If the journal cannot be written.
+     */
+    public static ForestJournal create(Path file, Path snapshotFile, int treeCount) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) 0)
+                .putInt(ForestSnapshot.checksumOf(snapshotFile)).putInt(0).putLong(treeCount).flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()){
+                channel.write(header);
+            }
+            channel.force(false);
+        }
+        return new ForestJournal(file, HEADER_SIZE, Files.size(snapshotFile), DEFAULT_BATCH_SIZE, DEFAULT_COMPACTION_RATIO);
+    }//End of create method
+
+    /**
+     * Opens the journal of a snapshot that has just been loaded and replays its saved records onto the forest.
+     * A missing journal, or one that belongs to a different snapshot, is replaced with a new, empty one.
+     * A batch that was only partly written is dropped and cut off the end of the file. Records after the last save
+     * marker are left in the file until they are recovered with recoverUnsaved() or dropped.
+     *
+     * @param file The journal file.
+     * @param snapshotFile The snapshot the forest was loaded from.
+     * @param forest The forest loaded from the snapshot.
+     * @return The journal, positioned after its last save marker.
+     * @throws IOException If the journal cannot be read or written.
+     */
+    public static ForestJournal recover(Path file, Path snapshotFile, Forest forest) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < HEADER_SIZE){
+            return create(file, snapshotFile, forest.getTreeCount());
+        }
+        boolean matches;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            matches = header.getInt() == MAGIC;
+            short version = header.getShort();
+            matches &= version == 1 || version == VERSION;
+            header.getShort();
+            matches &= header.getInt() == ForestSnapshot.checksumOf(snapshotFile);
+            header.getInt();
+            matches &= header.getLong() == forest.getTreeCount();
+            if (matches){
+                return replayAll(channel, file, snapshotFile, forest, version);
+            }
+        }
+        //Replaced once the old journal is closed
+        return create(file, snapshotFile, forest.getTreeCount());
+    }//End of recover method
+
+    /**
+     * Checks whether a journal belongs to a snapshot and holds records past its header, saved or not, which a forest
+     * opened from the snapshot alone would miss.
+     *
+     * @param file The journal file.
+     * @param snapshotFile The snapshot the journal would apply to.
+     * @return True if the journal matches the snapshot and has records to replay or recover.
+     * @throws IOException If the journal or snapshot cannot be read.
+     */
+    public static boolean hasRecords(Path file, Path snapshotFile) throws IOException {
+        if (!Files.exists(file) || Files.size(file) <= HEADER_SIZE){
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            int magic = header.getInt();
+            short version = header.getShort();
+            header.getShort();
+            int checksum = header.getInt();
+            return magic == MAGIC && (version == 1 || version == VERSION)
+                    && checksum == ForestSnapshot.checksumOf(snapshotFile)
+                    && readBatch(channel, HEADER_SIZE, channel.size()) != null;
+        }
+    }
+
+    /**
+     * Replays every complete batch up to the last save marker of a journal whose header has been checked, finds the
+     * unsaved records after it, and cuts off a torn batch at the end.
+     */
+    private static ForestJournal replayAll(FileChannel channel, Path file, Path snapshotFile, Forest forest,
+                                           short version) throws IOException {
+
+        //Find the last save marker and the end of the last complete batch
+        long position = HEADER_SIZE;
+        long savedEnd = HEADER_SIZE;
+        long unsaved = 0;
+        long size = channel.size();
+        ByteBuffer batch;
+        while ((batch = readBatch(channel, position, size)) != null){
+            position += BATCH_HEADER_SIZE + batch.remaining();
+            unsaved += countRecords(batch);
+            if (version == 1 || endsSaved(batch)){
+                savedEnd = position;
+                unsaved = 0;
+            }
+        }
+        //Cut off a torn batch so new batches follow the last good one
+        if (position < size){
+            channel.truncate(position);
+        }
+
+        long records = 0;
+        for (long replayed = HEADER_SIZE; replayed < savedEnd; ){
+            batch = readBatch(channel, replayed, savedEnd);
+            replayed += BATCH_HEADER_SIZE + batch.remaining();
+            records += replay(batch, forest);
+        }
+
+        ForestJournal journal = new ForestJournal(file, savedEnd, Files.size(snapshotFile), DEFAULT_BATCH_SIZE,
+                DEFAULT_COMPACTION_RATIO);
+        journal.recordCount = records;
+        journal.unsavedEnd = position;
+        journal.unsavedCount = unsaved;
+        if (version == 1){
+            journal.upgrade(channel);
+        }
+        return journal;
+    }//End of replayAll method
+
+    /**
+     * Rewrites a version 1 journal, whose batches were all saved, as the current version, by ending it with a save
+     * marker before changing the version in its header.
+     */
+    private void upgrade(FileChannel channel) throws IOException {
+        pending.put(SAVED);
+        write(channel);
+        savedSize = journalSize;
+        unsavedEnd = journalSize;
+        ByteBuffer version = ByteBuffer.allocate(Short.BYTES).order(ByteOrder.LITTLE_ENDIAN).putShort(VERSION).flip();
+        while (version.hasRemaining()){
+            channel.write(version, Integer.BYTES + version.position());
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Reads the batch at a position, checking its length and checksum.
+     *
+     * @return The records of the batch, or null if there is no complete batch before the end.
+     */
+    private static ByteBuffer readBatch(FileChannel channel, long position, long end) throws IOException {
+        if (position + BATCH_HEADER_SIZE > end){
+            return null;
+        }
+        ByteBuffer batchHeader = readFully(channel, position, BATCH_HEADER_SIZE);
+        int length = batchHeader.getInt();
+        int expected = batchHeader.getInt();
+        if (length < 0 || position + BATCH_HEADER_SIZE + length > end){
+            return null;
+        }
+        ByteBuffer batch = readFully(channel, position + BATCH_HEADER_SIZE, length);
+        CRC32C checksum = new CRC32C();
+        checksum.update(batch.duplicate());
+        return (int) checksum.getValue() == expected ? batch : null;
+    }
+
+    /**
+     * Counts the changes in a batch, not counting save markers.
+     *
+     * @throws IOException If the batch has a record of unknown type or one cut short.
+     */
+    private static long countRecords(ByteBuffer batch) throws IOException {
+        long records = 0;
+        for (int position = batch.position(); position < batch.limit(); ){
+            byte type = batch.get(position);
+            position += recordSize(type);
+            if (position > batch.limit()){
+                throw new IOException("Forest journal has a record cut short");
+            }
+            if (type != SAVED){
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Checks whether a batch ends with a save marker; commit() always writes the marker last in its batch. The batch
+     * has already been counted, so its records are known to be whole.
+     */
+    private static boolean endsSaved(ByteBuffer batch) throws IOException {
+        byte last = 0;
+        for (int position = batch.position(); position < batch.limit(); position += recordSize(last)){
+            last = batch.get(position);
+        }
+        return last == SAVED;
+    }
+
+    /**
+     * Retrieves the size of a record of a given type, including its type.
+     *
+     * @throws IOException If the type is unknown.
+     */
+    private static int recordSize(byte type) throws IOException {
+        switch (type) {
+            case ADD:
+                return 22;
+            case CUT:
+            case GROW:
+                return 5;
+            case REAP:
+                return 21;
+            case GROW_AND_REAP:
+                return 25;
+            case PLANT:
+                return 17;
+            case CUT_RANGE:
+                return 9;
+            case SAVED:
+                return 1;
+            default:
+                throw new IOException("Forest journal has an unknown record type " + type);
+        }
+    }
+
+    /**
+     * Applies every record of a batch to the forest. Each record is checked against the forest before it is applied,
+     * so a record that does not fit it, such as a cut past the last tree, fails the load rather than the program.
+     *
+     * @return The number of records applied.
+     * @throws IOException If a record is cut short or does not fit the forest.
+     */
+    private static long replay(ByteBuffer batch, Forest forest) throws IOException {
+        TreeSpecies[] species = TreeSpecies.values();
+        long records = 0;
+        try {
+            while (batch.hasRemaining()){
+                byte type = batch.get();
+                switch (type) {
+                    case ADD:
+                        int ordinal = batch.get();
+                        if (ordinal < 0 || ordinal >= species.length){
+                            throw new IOException("Forest journal adds a tree of unknown species " + ordinal);
+                        }
+                        forest.applyAdd(species[ordinal], batch.getDouble(), batch.getDouble(), batch.getInt());
+                        break;
+                    case CUT:
+                        int index = batch.getInt();
+                        checkCut(index, 1, forest.getTreeCount());
+                        forest.applyCut(index);
+                        break;
+                    case GROW:
+                        forest.applyGrowth(checkYears(batch.getInt()));
+                        break;
+                    case REAP:
+                        forest.applyReap(batch.getDouble(), batch.getLong(), batch.getInt(), ReapSink.NONE);
+                        break;
+                    case GROW_AND_REAP:
+                        forest.applyGrowthAndReap(checkYears(batch.getInt()), batch.getDouble(), batch.getLong(),
+                                batch.getInt(), ReapSink.NONE);
+                        break;
+                    case PLANT:
+                        int count = checkPlanting(batch.getInt(), forest.getTreeCount());
+                        forest.applyPlanting(count, batch.getLong(), batch.getInt());
+                        break;
+                    case CUT_RANGE:
+                        int from = batch.getInt();
+                        int cut = batch.getInt();
+                        checkCut(from, cut, forest.getTreeCount());
+                        forest.applyCutRange(from, cut);
+                        break;
+                    case SAVED:
+                        continue;
+                    default:
+                        throw new IOException("Forest journal has an unknown record type " + type);
+                }
+                records++;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Forest journal has a record cut short", e);
+        }
+        return records;
+    }//End of replay method
+
+    /**
+     * Checks that a run of trees to cut lies within the forest.
+     *
+     * @return The number of trees cut.
+     */
+    private static int checkCut(int from, int count, int trees) throws IOException {
+        if (from < 0 || count < 0 || (long) from + count > trees){
+            throw new IOException("Forest journal cuts " + count + " trees from index " + from + " of " + trees);
+        }
+        return count;
+    }
+
+    /**
+     * Checks that a number of trees to plant fits in the forest.
+     *
+     * @return The number of trees planted.
+     */
+    private static int checkPlanting(int count, int trees) throws IOException {
+        if (count < 0 || (long) trees + count > Integer.MAX_VALUE - 8){
+            throw new IOException("Forest journal plants " + count + " trees");
+        }
+        return count;
+    }
+
+    /**
+     * Checks that a number of years to grow is not negative.
+     */
+    private static int checkYears(int years) throws IOException {
+        if (years < 0){
+            throw new IOException("Forest journal grows the forest by " + years + " years");
+        }
+        return years;
+    }
+
+    /**
+     * Replays the unsaved records found after the last save marker onto the forest they were made to, which must be
+     * the forest just loaded with this journal. The records are checked against the forest's tree count before any
+     * is applied, so records that do not fit it leave the forest as it was. Once recovered, the records are saved
+     * along with the changes made after them by the next commit().
+     *
+     * @param forest The forest loaded with this journal.
+     * @return The number of records replayed.
+     * @throws IOException If the records cannot be read or do not fit the forest.
+     */
+    long recoverUnsaved(Forest forest) throws IOException {
+        if (unsavedCount == 0){
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int trees = forest.getTreeCount();
+            for (long position = journalSize; position < unsavedEnd; ){
+                ByteBuffer batch = readBatch(channel, position, unsavedEnd);
+                position += BATCH_HEADER_SIZE + batch.remaining();
+                trees = check(batch, trees);
+            }
+            long records = 0;
+            for (long position = journalSize; position < unsavedEnd; ){
+                ByteBuffer batch = readBatch(channel, position, unsavedEnd);
+                position += BATCH_HEADER_SIZE + batch.remaining();
+                records += replay(batch, forest);
+            }
+            journalSize = unsavedEnd;
+            recordCount += records;
+            unsavedCount = 0;
+            return records;
+        }
+    }//End of recoverUnsaved method
+
+    /**
+     * Checks the records of a batch against the number of trees they start from, without applying them.
+     *
+     * @return The number of trees after the records.
+     * @throws IOException If a record does not fit the trees.
+     */
+    private static int check(ByteBuffer batch, int trees) throws IOException {
+        for (int position = batch.position(); position < batch.limit(); ){
+            byte type = batch.get(position);
+            switch (type) {
+                case ADD:
+                    int ordinal = batch.get(position + 1);
+                    if (ordinal < 0 || ordinal >= TreeSpecies.values().length){
+                        throw new IOException("Forest journal adds a tree of unknown species " + ordinal);
+                    }
+                    trees++;
+                    break;
+                case CUT:
+                    trees -= checkCut(batch.getInt(position + 1), 1, trees);
+                    break;
+                case CUT_RANGE:
+                    trees -= checkCut(batch.getInt(position + 1), batch.getInt(position + 5), trees);
+                    break;
+                case GROW:
+                case GROW_AND_REAP:
+                    checkYears(batch.getInt(position + 1));
+                    break;
+                case PLANT:
+                    trees += checkPlanting(batch.getInt(position + 1), trees);
+                    break;
+                default:
+                    break;
+            }
+            position += recordSize(type);
+        }
+        return trees;
+    }//End of check method
+
+    /**
+     * Drops the unsaved records found after the last save marker, cutting them off the end of the file so that
+     * new batches follow the saved ones.
+     *
+     * @throws IOException If the journal cannot be written.
+     */
+    void discardUnsaved() throws IOException {
+        if (unsavedEnd > journalSize){
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(journalSize);
+                channel.force(false);
+            }
+        }
+        unsavedEnd = journalSize;
+        unsavedCount = 0;
+    }
+
+    /**
+     * Records a tree added to the end of the forest.
+     */
+    void logAdd(TreeSpecies species, double height, double growthRate, int yearOfPlanting) throws IOException {
+        require(22).put(ADD).put((byte) species.ordinal()).putDouble(height).putDouble(growthRate).putInt(yearOfPlanting);
+        recordCount++;
+    }
+
+    /**
+     * Records a tree cut from the forest.
+     */
+    void logCut(int index) throws IOException {
+        require(5).put(CUT).putInt(index);
+        recordCount++;
+    }
+
+    /**
+     * Records a run of consecutive trees cut from the forest at once.
+     */
+    void logCutRange(int from, int count) throws IOException {
+        require(9).put(CUT_RANGE).putInt(from).putInt(count);
+        recordCount++;
+    }
+
+    /**
+     * Records growth of the whole forest; one year is yearly growth, more is the closed form.
+     */
+    void logGrowth(int years) throws IOException {
+        require(5).put(GROW).putInt(years);
+        recordCount++;
+    }
+
+    /**
+     * Records a reap along with the seed and year its replacement trees were generated from.
+     */
+    void logReap(double height, long seed, int currentYear) throws IOException {
+        require(21).put(REAP).putDouble(height).putLong(seed).putInt(currentYear);
+        recordCount++;
+    }
+
+    /**
+     * Records growth fused with a yearly reap.
+     */
+    void logGrowthAndReap(int years, double height, long seed, int currentYear) throws IOException {
+        require(25).put(GROW_AND_REAP).putInt(years).putDouble(height).putLong(seed).putInt(currentYear);
+        recordCount++;
+    }
+
+    /**
+     * Records a bulk planting by the seed and year its trees were generated from, rather than tree by tree.
+     */
+    void logPlanting(int count, long seed, int currentYear) throws IOException {
+        require(17).put(PLANT).putInt(count).putLong(seed).putInt(currentYear);
+        recordCount++;
+    }
+
+    /**
+     * Makes room for a record in the pending batch, writing the batch ahead of the next save if it is full.
+     */
+    private ByteBuffer require(int bytes) throws IOException {
+        if (pending.remaining() < bytes){
+            write();
+        }
+        return pending;
+    }
+
+    /**
+     * Writes the pending records to the journal, followed by a save marker, and flushes them to disk. Replaying the
+     * journal on loading reaches every change recorded so far.
+     *
+     * @throws IOException If the journal cannot be written.
+     */
+    public void commit() throws IOException {
+        discardUnsaved();
+        if (pending.position() == BATCH_HEADER_SIZE && journalSize == savedSize){
+            return;
+        }
+        require(1).put(SAVED);
+        write();
+        savedSize = journalSize;
+    }//End of commit method
+
+    /**
+     * Writes the pending records as one batch after the records already written, cutting off unsaved records found
+     * on loading that were not recovered, and flushes the batch to disk.
+     */
+    private void write() throws IOException {
+        discardUnsaved();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            write(channel);
+        }
+    }
+
+    private void write(FileChannel channel) throws IOException {
+        int length = pending.position() - BATCH_HEADER_SIZE;
+        if (length == 0){
+            return;
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(pending.array(), BATCH_HEADER_SIZE, length);
+        pending.putInt(0, length).putInt(4, (int) checksum.getValue()).flip();
+        while (pending.hasRemaining()){
+            channel.write(pending, journalSize + pending.position());
+        }
+        channel.force(false);
+        journalSize += BATCH_HEADER_SIZE + length;
+        pending.clear().position(BATCH_HEADER_SIZE);
+    }
+
+    /**
+     * Checks whether the journal has grown large enough, compared with its snapshot, that the next save should write a
+     * fresh snapshot instead.
+     *
+     * @return True if the journal should be compacted into a snapshot.
+     */
+    public boolean shouldCompact(){
+        long size = journalSize + pending.position() - BATCH_HEADER_SIZE;
+        return size - HEADER_SIZE > snapshotSize * compactionRatio;
+    }
+
+    /**
+     * Retrieves the number of records in the journal, written or pending, not counting unsaved records found on
+     * loading that have not been recovered.
+     *
+     * @return The number of records since the snapshot.
+     */
+    public long getRecordCount(){
+        return this.recordCount;
+    }
+
+    /**
+     * Retrieves the number of records found after the last save marker on loading, which were made but never saved
+     * and can be recovered with recoverUnsaved().
+     *
+     * @return The number of unsaved records, or 0 once they have been recovered or dropped.
+     */
+    public long getUnsavedCount(){
+        return this.unsavedCount;
+    }
+
+    /**
+     * Retrieves the size of the journal, not counting records still collected in memory or unsaved records found on
+     * loading that have not been recovered.
+     *
+     * @return The size in bytes.
+     */
+    public long getSize(){
+        return this.journalSize;
+    }
+
+    /**
+     * Getter method to get the journal file.
+     *
+     * @return The path of the journal.
+     */
+    public Path getFile(){
+        return this.file;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()){
+            if (channel.read(buffer, position + buffer.position()) < 0){
+                throw new IOException("Unexpected end of forest journal");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,168 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The ForestMetrics class times the forest operations that touch every tree or file: reading a CSV file, growth,
+ * reaping, saving and loading. Each run is recorded in its operation's OperationMetrics (a latency histogram, trees
+ * per second, bytes read or written and bytes allocated), which are registered as MXBeans on the platform MBean
+ * server, and written as a ForestOperationEvent for Java Flight Recorder.
+ * <p>
+ * Timing a run costs two clock reads and two reads of the thread's allocation counter, which is nothing next to a pass
+ * over a forest. Allocations are counted on the calling thread only, so work handed to the growth engine's pool is
+ * not included. Metrics can be turned off with -Dforest.metrics=false.
+ */
+public final class ForestMetrics {
+    /**
+     * Whether operations are timed. It can be turned off with the forest.metrics system property.
+     */
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("forest.metrics"));
+
+    /**
+     * The operations that are timed.
+     */
+    public enum Operation {
+        READ_CSV, GROW, REAP, SAVE, LOAD;
+
+        /**
+         * Retrieves the name the operation is reported and registered under.
+         *
+         * @return The name in lower case, such as read_csv.
+         */
+        public String metricName(){
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final OperationMetrics[] METRICS = new OperationMetrics[Operation.values().length];
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean COUNT_ALLOCATIONS = THREADS instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+            && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+    private static final Sample DISABLED = new Sample(null, null, 0, 0, null);
+
+    static {
+        for (Operation operation : Operation.values()){
+            METRICS[operation.ordinal()] = new OperationMetrics(operation.metricName());
+        }
+        if (ENABLED){
+            register();
+        }
+    }
+
+    private ForestMetrics(){
+    }
+
+    /**
+     * Retrieves the metrics of an operation.
+     *
+     * @param operation The operation.
+     * @return Its metrics, shared by every forest.
+     */
+    public static OperationMetrics get(Operation operation){
+        return METRICS[operation.ordinal()];
+    }
+
+    /**
+     * Summarises every operation that has run, one line each.
+     *
+     * @return The summary, or a note that nothing has run yet.
+     */
+    public static String report(){
+        StringBuilder out = new StringBuilder();
+        for (OperationMetrics metrics : METRICS){
+            if (metrics.getCount() > 0){
+                out.append(metrics).append(System.lineSeparator());
+            }
+        }
+        return out.length() > 0 ? out.toString() : "No forest operations timed yet" + System.lineSeparator();
+    }
+
+    /**
+     * Starts timing a run of an operation.
+     *
+     * @param operation The operation being run.
+     * @param forestName The forest it is run on.
+     * @return The sample to finish once the run is done.
+     */
+    static Sample start(Operation operation, String forestName){
+        if (!ENABLED){
+            return DISABLED;
+        }
+        ForestOperationEvent event = new ForestOperationEvent();
+        event.begin();
+        return new Sample(get(operation), forestName, allocatedBytes(), System.nanoTime(), event);
+    }
+
+    /**
+     * Reads the number of bytes the current thread has allocated so far.
+     */
+    private static long allocatedBytes(){
+        return COUNT_ALLOCATIONS ? ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Registers each operation's metrics with the platform MBean server. A server that refuses them, or a second
+     * copy of the program in the same JVM, only loses the JMX view.
+     */
+    private static void register(){
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (OperationMetrics metrics : METRICS){
+                ObjectName name = new ObjectName("CanadianForests:type=ForestMetrics,operation=" + metrics.getName());
+                if (!server.isRegistered(name)){
+                    server.registerMBean(metrics, name);
+                }
+            }
+        } catch (JMException | SecurityException e) {
+            System.out.println("Forest metrics are not available over JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * One run of an operation being timed.
+     */
+    static final class Sample {
+        private final OperationMetrics metrics;
+        private final String forestName;
+        private final long startAllocated;
+        private final long startNanos;
+        private final ForestOperationEvent event;
+
+        private Sample(OperationMetrics metrics, String forestName, long startAllocated, long startNanos,
+                       ForestOperationEvent event){
+            this.metrics = metrics;
+            this.forestName = forestName;
+            this.startAllocated = startAllocated;
+            this.startNanos = startNanos;
+            this.event = event;
+        }
+
+        /**
+         * Records the run.
+         *
+         * @param trees The number of trees the run handled.
+         * @param bytes The number of bytes the run read or wrote.
+         */
+        void finish(long trees, long bytes){
+            if (metrics == null){
+                return;
+            }
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = allocatedBytes() - startAllocated;
+            metrics.record(nanos, trees, bytes, allocated);
+            event.end();
+            if (event.shouldCommit()){
+                event.forest = forestName;
+                event.operation = metrics.getName();
+                event.trees = trees;
+                event.bytes = bytes;
+                event.allocatedBytes = allocated;
+                event.commit();
+            }
+        }
+    }//End of Sample class
+}
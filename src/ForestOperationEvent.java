@@ -0,0 +1,36 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The ForestOperationEvent class is the Java Flight Recorder event written for each forest operation ForestMetrics
+ * times, so a recording shows when each load, growth, reap and save ran next to the GC and CPU activity around it.
+ * The event is enabled with a recording that includes it, such as java -XX:StartFlightRecording.
+ */
+@Name("canadianforests.ForestOperation")
+@Label("Forest Operation")
+@Category("Canadian Forests")
+@Description("A forest loaded, grown, reaped or saved")
+@StackTrace(false)
+class ForestOperationEvent extends Event {
+    @Label("Forest")
+    String forest;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Trees")
+    long trees;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,368 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The ForestPrinter class renders the rows of a forest as the listing shown by displayForest(), or as CSV or TSV.
+ * Rows are formatted with TreeFormat into one reusable buffer that is handed on only when it fills up, so printing
+ * or exporting a large forest is bound by the output rather than by String.format.
+ * <p>
+ * A printer can be limited to one species, to the tallest trees, and to one page of the rows that remain. The
+ * settings are kept between calls, so one printer can be moved from page to page.
+ */
+public class ForestPrinter {
+    /**
+     * Default number of characters collected before they are written.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The ways a row can be written.
+     */
+    public enum Format {
+        /**
+         * The indented listing of displayForest(), with heights to two decimals and growth rates as percentages.
+         */
+        LISTING,
+        /**
+         * Comma-separated rows as the forest CSV files have them: species, year of planting, height and growth rate
+         * as a percentage. Numbers are written with all of their digits rather than rounded for display, so an
+         * exported forest can be read back with readTreesFromCSV().
+         */
+        CSV,
+        /**
+         * Tab-separated rows, otherwise as CSV.
+         */
+        TSV
+    }
+
+    private final int bufferSize;
+    private final StringBuilder buffer;
+    private Format format = Format.LISTING;
+    private TreeSpecies species;
+    private int top;
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Creates a printer for every row in listing format with a default buffer size.
+     */
+    public ForestPrinter(){
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a printer for every row in listing format.
+     *
+     * @param bufferSize The number of characters to collect before writing them.
+     */
+    public ForestPrinter(int bufferSize){
+        if (bufferSize < 1){
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.buffer = new StringBuilder(bufferSize + 128);
+    }
+
+    /**
+     * Sets the format rows are written in.
+     *
+     * @param format The format to write.
+     * @return This printer.
+     */
+    public ForestPrinter setFormat(Format format){
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Limits the rows to one species.
+     *
+     * @param species The species to keep, or null for every species.
+     * @return This printer.
+     */
+    public ForestPrinter setSpecies(TreeSpecies species){
+        this.species = species;
+        return this;
+    }
+
+    /**
+     * Limits the rows to the tallest trees, tallest first. Trees of the same height keep their forest order.
+     *
+     * @param top The number of trees to keep, or 0 to keep every tree in forest order.
+     * @return This printer.
+     */
+    public ForestPrinter setTop(int top){
+        if (top < 0){
+            throw new IllegalArgumentException("Top must not be negative: " + top);
+        }
+        this.top = top;
+        return this;
+    }
+
+    /**
+     * Limits the rows to one page of those left after the species and top limits.
+     *
+     * @param page The page to write, from 0.
+     * @param pageSize The number of rows on a page.
+     * @return This printer.
+     */
+    public ForestPrinter setPage(int page, int pageSize){
+        if (page < 0 || pageSize < 1){
+            throw new IllegalArgumentException("Invalid page " + page + " of size " + pageSize);
+        }
+        this.offset = (int) Math.min(Integer.MAX_VALUE, (long) page * pageSize);
+        this.limit = pageSize;
+        return this;
+    }
+
+    /**
+     * Removes the page limit.
+     *
+     * @return This printer.
+     */
+    public ForestPrinter clearPage(){
+        this.offset = 0;
+        this.limit = Integer.MAX_VALUE;
+        return this;
+    }
+
+    /**
+     * Counts the rows the printer would write if it had no page limit.
+     *
+     * @param store The trees to count.
+     * @return The number of rows of the chosen species, at most top.
+     */
+    public int countRows(TreeStore store){
+        int count = 0;
+        int size = store.size();
+        if (species == null){
+            count = size;
+        } else {
+            for (int row = 0; row < size; row++){
+                if (store.getSpecies(row) == species){
+                    count++;
+                }
+            }
+        }
+        return top > 0 ? Math.min(top, count) : count;
+    }//End of countRows method
+
+    /**
+     * Selects the rows the printer writes, in the order it writes them.
+     *
+     * @param store The trees to select from.
+     * @return The selected row indexes.
+     */
+    public int[] selectRows(TreeStore store){
+        if (top == 0){
+            return matching(store);
+        }
+        int[] rows = tallest(store);
+        int from = Math.min(rows.length, offset);
+        int to = (int) Math.min(rows.length, (long) from + limit);
+        return from == 0 && to == rows.length ? rows : Arrays.copyOfRange(rows, from, to);
+    }
+
+    /**
+     * Writes the selected rows to an Appendable such as System.out or a Writer.
+     *
+     * @param store The trees to write.
+     * @param out Where to write the rows.
+     * @return The number of rows written.
+     */
+    public int print(TreeStore store, Appendable out){
+        int[] rows = selectRows(store);
+        buffer.setLength(0);
+        for (int row : rows){
+            appendRow(store, row);
+            if (buffer.length() >= bufferSize){
+                append(out);
+            }
+        }
+        append(out);
+        return rows.length;
+    }//End of print method
+
+    /**
+     * Streams the selected rows to a file through a FileChannel, replacing the file.
+     *
+     * @param store The trees to write.
+     * @param file The file to write.
+     * @return The number of bytes written.
+     * @throws IOException If the file cannot be written.
+     */
+    public long export(TreeStore store, Path file) throws IOException {
+        int[] rows = selectRows(store);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(bufferSize + 128);
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.setLength(0);
+            for (int row : rows){
+                appendRow(store, row);
+                if (buffer.length() >= bufferSize){
+                    written += write(channel, bytes);
+                }
+            }
+            written += write(channel, bytes);
+        }
+        return written;
+    }//End of export method
+
+    private void appendRow(TreeStore store, int row){
+        switch (format){
+            case LISTING:
+                //"     %-6s %d  %.2f'  %.1f%%"
+                int start = buffer.append("     ").length();
+                buffer.append(store.getSpecies(row));
+                while (buffer.length() - start < 6){
+                    buffer.append(' ');
+                }
+                buffer.append(' ').append(store.getYearOfPlanting(row)).append("  ");
+                TreeFormat.appendFixed(buffer, store.getHeight(row), 2).append("'  ");
+                TreeFormat.appendFixed(buffer, store.getGrowthRate(row) * 100, 1).append("%\n");
+                break;
+            case CSV:
+            case TSV:
+                char separator = format == Format.CSV ? ',' : '\t';
+                buffer.append(store.getSpecies(row)).append(separator)
+                        .append(store.getYearOfPlanting(row)).append(separator)
+                        .append(store.getHeight(row)).append(separator)
+                        .append(store.getGrowthRate(row) * 100).append('\n');
+                break;
+        }
+    }//End of appendRow method
+
+    private void append(Appendable out){
+        try {
+            out.append(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.setLength(0);
+    }
+
+    /**
+     * Copies the buffered characters, which are all ASCII, into the byte buffer and writes them to the channel.
+     */
+    private int write(FileChannel channel, ByteBuffer bytes) throws IOException {
+        bytes.clear();
+        for (int i = 0; i < buffer.length(); i++){
+            bytes.put((byte) buffer.charAt(i));
+        }
+        bytes.flip();
+        int written = bytes.remaining();
+        while (bytes.hasRemaining()){
+            channel.write(bytes);
+        }
+        buffer.setLength(0);
+        return written;
+    }
+
+    /**
+     * Selects the page of rows of the chosen species in forest order, skipping the rows before the page without
+     * collecting them.
+     */
+    private int[] matching(TreeStore store){
+        int size = store.size();
+        if (species == null){
+            int from = Math.min(size, offset);
+            int[] rows = new int[Math.min(size - from, limit)];
+            for (int i = 0; i < rows.length; i++){
+                rows[i] = from + i;
+            }
+            return rows;
+        }
+        int[] rows = new int[Math.min(limit, 1024)];
+        int count = 0;
+        int skipped = 0;
+        for (int row = 0; row < size && count < limit; row++){
+            if (store.getSpecies(row) != species){
+                continue;
+            }
+            if (skipped < offset){
+                skipped++;
+                continue;
+            }
+            if (count == rows.length){
+                rows = Arrays.copyOf(rows, (int) Math.min(limit, (long) count * 2));
+            }
+            rows[count++] = row;
+        }
+        return Arrays.copyOf(rows, count);
+    }//End of matching method
+
+    /**
+     * Selects the tallest rows of the chosen species, tallest first, keeping only the current top rows in a min-heap
+     * so the forest is passed over once without being sorted.
+     */
+    private int[] tallest(TreeStore store){
+        int[] heap = new int[Math.min(top, store.size())];
+        int count = 0;
+        for (int row = 0, size = store.size(); row < size; row++){
+            if (species != null && store.getSpecies(row) != species){
+                continue;
+            }
+            if (count < heap.length){
+                heap[count] = row;
+                siftUp(store, heap, count++);
+            } else if (heap.length > 0 && shorter(store, heap[0], row)){
+                heap[0] = row;
+                siftDown(store, heap, 0, count);
+            }
+        }
+        //Take the shortest off the heap one at a time, filling the result from the back
+        int[] rows = new int[count];
+        for (int end = count; end > 0; end--){
+            rows[end - 1] = heap[0];
+            heap[0] = heap[end - 1];
+            siftDown(store, heap, 0, end - 1);
+        }
+        return rows;
+    }//End of tallest method
+
+    /**
+     * Checks whether row a comes after row b in the listing: it is shorter, or as tall and later in the forest.
+     */
+    private static boolean shorter(TreeStore store, int a, int b){
+        int compare = Double.compare(store.getHeight(a), store.getHeight(b));
+        return compare < 0 || (compare == 0 && a > b);
+    }
+
+    private static void siftUp(TreeStore store, int[] heap, int at){
+        int row = heap[at];
+        while (at > 0){
+            int parent = (at - 1) >>> 1;
+            if (!shorter(store, row, heap[parent])){
+                break;
+            }
+            heap[at] = heap[parent];
+            at = parent;
+        }
+        heap[at] = row;
+    }
+
+    private static void siftDown(TreeStore store, int[] heap, int at, int count){
+        int row = heap[at];
+        while (true){
+            int child = 2 * at + 1;
+            if (child >= count){
+                break;
+            }
+            if (child + 1 < count && shorter(store, heap[child + 1], heap[child])){
+                child++;
+            }
+            if (!shorter(store, heap[child], row)){
+                break;
+            }
+            heap[at] = heap[child];
+            at = child;
+        }
+        heap[at] = row;
+    }
+}
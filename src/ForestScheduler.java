@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ForestScheduler class runs an operation over many forests at once, such as growing, reaping or saving every
+ * forest of a region, and reports how long each forest took.
+ * <p>
+ * Forests are handed to a fixed pool of threads, one task per forest, so a forest is only ever touched by one thread
+ * at a time and a failure in one forest does not stop the others. Large forests still grow in parallel inside their
+ * task on their own growth engine. run() returns once every forest has finished, so the forests can be used from the
+ * calling thread again afterwards.
+ */
+public class ForestScheduler implements AutoCloseable {
+    /**
+     * Default number of forests worked on at once. It can be overridden with the forest.scheduler.threads system
+     * property.
+     */
+    public static final int DEFAULT_THREADS = Integer.getInteger("forest.scheduler.threads",
+            Runtime.getRuntime().availableProcessors());
+
+    private final ExecutorService executor;
+
+    /**
+     * Creates a scheduler with the default number of threads.
+     */
+    public ForestScheduler(){
+        this(DEFAULT_THREADS);
+    }
+
+    /**
+     * Creates a scheduler that works on at most the given number of forests at once.
+     *
+     * @param threads The number of threads.
+     */
+    public ForestScheduler(int threads){
+        if (threads < 1){
+            throw new IllegalArgumentException("Threads must be positive: " + threads);
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "forest-scheduler-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Grows every forest by a number of years.
+     *
+     * @param forests The forests to grow.
+     * @param years The number of years to grow.
+     * @return The timing of each forest, in the order given.
+     */
+    public List<ForestTiming> growAll(Collection<Forest> forests, int years){
+        return run("grow", forests, forest -> {
+            forest.simulateYears(years);
+            return null;
+        });
+    }
+
+    /**
+     * Reaps every forest of trees over a height. Each forest counts its reaped trees in its own ReapSummary instead
+     * of printing them, since the forests' messages would otherwise be interleaved.
+     *
+     * @param forests The forests to reap.
+     * @param height The height threshold for reaping trees.
+     * @return The timing of each forest, with its reap summary, in the order given.
+     */
+    public List<ForestTiming> reapAll(Collection<Forest> forests, double height){
+        return run("reap", forests, forest -> {
+            ReapSummary summary = new ReapSummary();
+            forest.reapForest(height, summary);
+            return summary.toString();
+        });
+    }
+
+    /**
+     * Saves every forest.
+     *
+     * @param forests The forests to save.
+     * @return The timing of each forest, in the order given.
+     */
+    public List<ForestTiming> saveAll(Collection<Forest> forests){
+        return run("save", forests, forest -> {
+            forest.saveForest();
+            return null;
+        });
+    }
+
+    /**
+     * Runs an operation over every forest and waits for all of them to finish.
+     *
+     * @param operation The name of the operation, for the timings.
+     * @param forests The forests to run the operation on.
+     * @param task The operation, returning a detail for the timing or null.
+     * @return The timing of each forest, in the order given.
+     */
+    public List<ForestTiming> run(String operation, Collection<Forest> forests, ForestTask task){
+        List<Future<ForestTiming>> futures = new ArrayList<>(forests.size());
+        for (Forest forest : forests){
+            futures.add(executor.submit(() -> time(operation, forest, task)));
+        }
+        List<ForestTiming> timings = new ArrayList<>(futures.size());
+        try {
+            for (Future<ForestTiming> future : futures){
+                timings.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            for (Future<ForestTiming> future : futures){
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for forests to " + operation, e);
+        } catch (ExecutionException e) {
+            //time() catches what the task throws, so only an Error gets here
+            throw new IllegalStateException("Forest scheduler failed", e.getCause());
+        }
+        return timings;
+    }//End of run method
+
+    /**
+     * Runs the operation on one forest, catching its failure so the other forests carry on.
+     */
+    private static ForestTiming time(String operation, Forest forest, ForestTask task){
+        long start = System.nanoTime();
+        String detail = null;
+        RuntimeException error = null;
+        try {
+            detail = task.apply(forest);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        return new ForestTiming(forest.getForestName(), operation, System.nanoTime() - start, forest.getTreeCount(),
+                detail, error);
+    }
+
+    /**
+     * Stops the scheduler's threads once the operations already submitted have finished.
+     */
+    @Override
+    public void close(){
+        executor.shutdown();
+    }
+
+    /**
+     * An operation run on one forest.
+     */
+    public interface ForestTask {
+        /**
+         * Runs the operation.
+         *
+         * @param forest The forest to run it on.
+         * @return A detail to report with the forest's timing, or null.
+         */
+        String apply(Forest forest);
+    }
+}
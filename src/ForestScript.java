@@ -0,0 +1,346 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The ForestScript class is a list of forest commands run back to back without the interactive menu, such as
+ * "grow 25; reap 80; save". Commands are separated by semicolons or new lines, and # starts a comment.
+ * <pre>
+ *   grow [years]                  grow for a number of years (default 1) in one closed-form pass
+ *   grow years reap height        grow year by year, reaping over the height after each year
+ *   reap height                   reap trees over the height
+ *   add [count]                   add random trees (default 1)
+ *   cut index|species             cut down the tree at an index, or every tree of a species
+ *   seed value                    reseed the forest's random trees
+ *   print [top n] [species]       display the forest, or only its n tallest trees or one species
+ *   export file [top n] [species] write the trees to a CSV file, or TSV if the name ends in .tsv; {forest} in
+ *                                 the name is replaced with the forest's name
+ *   save                          save the forest
+ * </pre>
+ * A script leaves a forest exactly as the same commands given through the menu would, so consecutive commands are
+ * only fused where that holds: repeated saves become one, and a seed followed by another seed becomes the second.
+ * Grows, reaps and adds are never merged, since splitting a grow changes the last bits of a height and every grow,
+ * reap or add draws its own seed. "grow years reap height" is the one command that passes over the forest once for
+ * several years of growth and reaping; it grows the same trees, but draws the replacement for each reaped tree as it
+ * reaches that tree rather than year by year, so a seeded forest ends with different, equally likely replacements
+ * than "grow 1; reap height" repeated. Reaped trees are counted rather than printed one by one.
+ */
+public class ForestScript {
+    private final List<Step> steps;
+
+    private ForestScript(List<Step> steps){
+        this.steps = steps;
+    }
+
+    /**
+     * Parses a script and fuses the consecutive commands whose result does not change when fused.
+     *
+     * @param text The commands.
+     * @return The parsed script.
+     * @throws IllegalArgumentException If a command is not recognised or has invalid arguments.
+     */
+    public static ForestScript parse(String text){
+        List<Step> steps = new ArrayList<>();
+        int number = 0;
+        for (String line : text.split("\\R")){
+            int comment = line.indexOf('#');
+            if (comment >= 0){
+                line = line.substring(0, comment);
+            }
+            for (String command : line.split(";")){
+                command = command.trim();
+                if (command.isEmpty()){
+                    continue;
+                }
+                number++;
+                try {
+                    push(steps, parseCommand(command.split("\\s+")));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Command " + number + " \"" + command + "\": " + e.getMessage(), e);
+                }
+            }
+        }
+        return new ForestScript(steps);
+    }//End of parse method
+
+    private static Step parseCommand(String[] original){
+        //Keywords are matched in any case, but file names are kept as written
+        String[] words = new String[original.length];
+        for (int i = 0; i < original.length; i++){
+            words[i] = original[i].toLowerCase(Locale.ROOT);
+        }
+        switch (words[0]){
+            case "grow":
+                if (words.length == 4 && words[2].equals("reap")){
+                    return new Step(Operation.GROW_AND_REAP, count(words[1]), height(words[3]));
+                }
+                expectArguments(words, 0, 1);
+                return new Step(Operation.GROW, words.length > 1 ? count(words[1]) : 1, 0);
+            case "reap":
+                expectArguments(words, 1, 1);
+                return new Step(Operation.REAP, 0, height(words[1]));
+            case "add":
+                expectArguments(words, 0, 1);
+                return new Step(Operation.ADD, words.length > 1 ? count(words[1]) : 1, 0);
+            case "cut":
+                expectArguments(words, 1, 1);
+                if (!words[1].isEmpty() && Character.isLetter(words[1].charAt(0))){
+                    return new Step(Operation.CUT, 0, 0, species(words[1]), null);
+                }
+                return new Step(Operation.CUT, count(words[1]), 0);
+            case "seed":
+                expectArguments(words, 1, 1);
+                try {
+                    return new Step(Operation.SEED, Long.parseLong(words[1]), 0);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("seed must be a whole number");
+                }
+            case "print":
+                expectArguments(words, 0, 3);
+                return parseRows(Operation.PRINT, words, 1, null);
+            case "export":
+                expectArguments(words, 1, 4);
+                return parseRows(Operation.EXPORT, words, 2, original[1]);
+            case "save":
+                expectArguments(words, 0, 0);
+                return new Step(Operation.SAVE, 0, 0);
+            default:
+                throw new IllegalArgumentException("unknown command");
+        }
+    }//End of parseCommand method
+
+    /**
+     * Parses the "top n" and species options of a print or export.
+     */
+    private static Step parseRows(Operation operation, String[] words, int from, String file){
+        int top = 0;
+        TreeSpecies species = null;
+        for (int i = from; i < words.length; i++){
+            if (words[i].equals("top") && i + 1 < words.length){
+                top = count(words[++i]);
+            } else if (species == null){
+                species = species(words[i]);
+            } else {
+                throw new IllegalArgumentException("unexpected " + words[i]);
+            }
+        }
+        return new Step(operation, top, 0, species, file);
+    }
+
+    /**
+     * Appends a step, fusing it into the steps before it where the forest ends up the same.
+     */
+    private static void push(List<Step> steps, Step step){
+        while (!steps.isEmpty()){
+            Step fused = fuse(steps.get(steps.size() - 1), step);
+            if (fused == null){
+                break;
+            }
+            steps.remove(steps.size() - 1);
+            step = fused;
+        }
+        steps.add(step);
+    }
+
+    /**
+     * Fuses two consecutive steps into one.
+     *
+     * @return The fused step, or null if the steps cannot be fused.
+     */
+    private static Step fuse(Step first, Step second){
+        if (first.operation == Operation.SAVE && second.operation == Operation.SAVE){
+            return first;
+        }
+        //A seed replaces the generator outright, so nothing is drawn from the first one
+        if (first.operation == Operation.SEED && second.operation == Operation.SEED){
+            return second;
+        }
+        return null;
+    }//End of fuse method
+
+    /**
+     * Runs the script on a forest.
+     *
+     * @param forest The forest to run the commands on.
+     * @return A report of what each command did, one line per command, with the listing each print writes after
+     *         its line.
+     */
+    public String run(Forest forest){
+        StringBuilder report = new StringBuilder();
+        ReapSummary summary = new ReapSummary();
+        //The listing a print writes, which follows the print's line of the report
+        StringBuilder listing = new StringBuilder();
+        for (Step step : steps){
+            report.append(forest.getForestName()).append(": ").append(step);
+            switch (step.operation){
+                case GROW:
+                    forest.simulateYears(Math.toIntExact(step.count));
+                    break;
+                case GROW_AND_REAP:
+                    summary.reset();
+                    forest.simulateYears(Math.toIntExact(step.count), step.height, summary);
+                    report.append(": ").append(summary);
+                    break;
+                case REAP:
+                    summary.reset();
+                    forest.reapForest(step.height, summary);
+                    report.append(": ").append(summary);
+                    break;
+                case ADD:
+                    forest.addRandomTrees(Math.toIntExact(step.count));
+                    break;
+                case CUT:
+                    if (step.species != null){
+                        report.append(": ").append(forest.cutTrees(TreeFilter.species(step.species))).append(" cut");
+                    } else {
+                        forest.cutTreeByIndex(Math.toIntExact(step.count));
+                    }
+                    break;
+                case SEED:
+                    forest.setSeed(step.count);
+                    break;
+                case PRINT:
+                    //Into the report rather than System.out, so forests run in parallel print in one piece each
+                    forest.displayForest(step.printer(), listing);
+                    break;
+                case EXPORT:
+                    ForestPrinter printer = step.printer().setFormat(step.file.toLowerCase(Locale.ROOT).endsWith(".tsv")
+                            ? ForestPrinter.Format.TSV : ForestPrinter.Format.CSV);
+                    String file = step.file.replace("{forest}", forest.getForestName());
+                    try {
+                        report.append(": ").append(forest.exportForest(Paths.get(file), printer)).append(" bytes");
+                    } catch (IOException e) {
+                        report.append(": error writing ").append(file).append(": ").append(e.getMessage());
+                    }
+                    break;
+                case SAVE:
+                    forest.saveForest();
+                    break;
+            }
+            report.append(": ").append(forest.getTreeCount()).append(" trees").append(System.lineSeparator());
+            report.append(listing);
+            listing.setLength(0);
+        }
+        return report.toString();
+    }//End of run method
+
+    /**
+     * Returns the fused commands, as they will run.
+     *
+     * @return The commands separated by semicolons.
+     */
+    public String toString(){
+        StringBuilder out = new StringBuilder();
+        for (Step step : steps){
+            if (out.length() > 0){
+                out.append("; ");
+            }
+            out.append(step);
+        }
+        return out.toString();
+    }
+
+    private static void expectArguments(String[] words, int min, int max){
+        int arguments = words.length - 1;
+        if (arguments < min || arguments > max){
+            throw new IllegalArgumentException(min == max ? "expected " + min + " arguments"
+                    : "expected " + min + " to " + max + " arguments");
+        }
+    }
+
+    private static int count(String word){
+        try {
+            int count = Integer.parseInt(word);
+            if (count >= 0){
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            //Reported below
+        }
+        throw new IllegalArgumentException("expected a whole number of at least 0, not " + word);
+    }
+
+    private static TreeSpecies species(String word){
+        for (TreeSpecies species : TreeSpecies.values()){
+            if (species.name().equalsIgnoreCase(word)){
+                return species;
+            }
+        }
+        throw new IllegalArgumentException("unknown species " + word);
+    }
+
+    private static double height(String word){
+        try {
+            double height = Double.parseDouble(word);
+            if (height >= 0){
+                return height;
+            }
+        } catch (NumberFormatException e) {
+            //Reported below
+        }
+        throw new IllegalArgumentException("expected a height of at least 0, not " + word);
+    }
+
+    /**
+     * The commands a script can run.
+     */
+    private enum Operation {
+        GROW, GROW_AND_REAP, REAP, ADD, CUT, SEED, PRINT, EXPORT, SAVE
+    }
+
+    /**
+     * One command, with its count (years, trees, index, seed or the number of tallest trees to print), height, and
+     * the species to cut, print or export and the file to export to.
+     */
+    private static final class Step {
+        final Operation operation;
+        final long count;
+        final double height;
+        final TreeSpecies species;
+        final String file;
+
+        Step(Operation operation, long count, double height){
+            this(operation, count, height, null, null);
+        }
+
+        Step(Operation operation, long count, double height, TreeSpecies species, String file){
+            this.operation = operation;
+            this.count = count;
+            this.height = height;
+            this.species = species;
+            this.file = file;
+        }
+
+        /**
+         * Creates a printer for the rows this print or export writes.
+         */
+        ForestPrinter printer(){
+            return new ForestPrinter().setTop((int) count).setSpecies(species);
+        }
+
+        @Override
+        public String toString(){
+            switch (operation){
+                case GROW_AND_REAP:
+                    return "grow " + count + " reap " + height;
+                case REAP:
+                    return "reap " + height;
+                case PRINT:
+                case EXPORT:
+                    String command = operation == Operation.PRINT ? "print" : "export " + file;
+                    if (count > 0){
+                        command += " top " + count;
+                    }
+                    return species == null ? command : command + " " + species.name().toLowerCase(Locale.ROOT);
+                case SAVE:
+                    return operation.name().toLowerCase(Locale.ROOT);
+                case CUT:
+                    return species == null ? "cut " + count : "cut " + species.name().toLowerCase(Locale.ROOT);
+                default:
+                    return operation.name().toLowerCase(Locale.ROOT) + " " + count;
+            }
+        }
+    }
+}
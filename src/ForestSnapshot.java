@@ -0,0 +1,478 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * The ForestSnapshot class reads and writes the binary .db snapshot format of a forest.
+ * All values are little-endian. A snapshot is laid out as:
+ * <pre>
+ *   int    magic "CFDB"
+ *   short  format version
+ *   short  flags (reserved, 0)
+ *   long   number of trees
+ *   int    forest name length, then the name in UTF-8
+ *   short  number of species, then for each: short name length and the name in ASCII
+ *   padding to an 8-byte boundary
+ *   double heights[trees]
+ *   double growthRates[trees]
+ *   int    yearsOfPlanting[trees]
+ *   byte   species[trees], an index into the species dictionary
+ *   int    CRC32C of every byte above
+ * </pre>
+ * Columns are written and read in bulk through NIO buffers, so the cost is linear in the number of trees.
+ * Files written by Java serialization before this format existed are recognised and read through the old path.
+ */
+public final class ForestSnapshot {
+    /**
+     * Magic number at the start of every snapshot, "CFDB" in ASCII.
+     */
+    public static final int MAGIC = 0x42444643;
+
+    /**
+     * Version of the format written by this class.
+     */
+    public static final short VERSION = 1;
+
+    //First two bytes of a Java serialization stream, used by .db files from before this format
+    private static final int LEGACY_MAGIC = 0xACED;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final TreeSpecies[] SPECIES = TreeSpecies.values();
+
+    private ForestSnapshot(){
+    }
+
+    /**
+     * Writes a forest to a snapshot file. The snapshot is written to a temporary file first and moved over the
+     * target, so a failed save never leaves a half-written file behind. A memory-mapped forest is synced in place
+     * instead, and copied if the target is a different file.
+     *
+     * @param forest The forest to write.
+     * @param file The file to write to.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Forest forest, Path file) throws IOException {
+        if (forest.trees instanceof MappedTreeStore){
+            //The mapped file already holds the columns; bring it up to date and copy it if saving elsewhere
+            MappedTreeStore mapped = (MappedTreeStore) forest.trees;
+            mapped.sync();
+            if (!(Files.exists(file) && Files.isSameFile(mapped.getFile(), file))){
+                Files.copy(mapped.getFile(), file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+        }
+        //Cut trees waiting to be compacted away are not written
+        forest.compactRows();
+        TreeColumns trees = (TreeColumns) forest.trees;
+        int size = trees.size();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ColumnWriter writer = new ColumnWriter(channel);
+            ByteBuffer buffer = writer.buffer;
+
+            //Header
+            byte[] name = forest.getForestName().getBytes(StandardCharsets.UTF_8);
+            writer.require(16);
+            buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(size);
+            writer.putBytes(lengthPrefixed(name), 0, name.length + 4);
+
+            //Species dictionary, in ordinal order so stored species bytes are ordinals
+            writer.require(2);
+            buffer.putShort((short) SPECIES.length);
+            for (TreeSpecies species : SPECIES){
+                byte[] speciesName = species.name().getBytes(StandardCharsets.US_ASCII);
+                writer.require(2);
+                buffer.putShort((short) speciesName.length);
+                writer.putBytes(speciesName, 0, speciesName.length);
+            }
+            writer.padTo(8);
+
+            //Columns
+            writer.putDoubles(trees.heights, size);
+            writer.putDoubles(trees.growthRates, size);
+            writer.putInts(trees.years, size);
+            writer.putBytes(trees.species, 0, size);
+
+            //Checksum
+            writer.flush();
+            buffer.putInt((int) writer.checksum.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }//End of write method
+
+    /**
+     * Reads a forest from a snapshot file, or from a .db file written by Java serialization.
+     *
+     * @param file The file to read.
+     * @return The forest stored in the file.
+     * @throws IOException If the file cannot be read or is not a valid snapshot.
+     */
+    public static Forest read(Path file) throws IOException {
+        if (isLegacy(file)){
+            return readLegacy(file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            if (header.rowCount > Integer.MAX_VALUE - 8){
+                throw new IOException(file + " holds " + header.rowCount + " trees, too many to load on-heap");
+            }
+            int size = (int) header.rowCount;
+            if (channel.size() != header.checksumOffset() + 4){
+                throw new IOException(file + " is truncated or has trailing data");
+            }
+
+            //The checksum covers the header and its padding as well as the columns
+            CRC32C checksum = new CRC32C();
+            checksum.update(header.bytes);
+            checksum.update(new byte[header.dataOffset - header.bytes.length]);
+
+            TreeColumns trees = new TreeColumns(size);
+            ColumnReader reader = new ColumnReader(channel, header.dataOffset, header.checksumOffset(), checksum);
+            reader.getDoubles(trees.heights, size);
+            reader.getDoubles(trees.growthRates, size);
+            reader.getInts(trees.years, size);
+            reader.getBytes(trees.species, size);
+            trees.size = size;
+
+            long expected = readInt(channel, header.checksumOffset()) & 0xFFFFFFFFL;
+            if (checksum.getValue() != expected){
+                throw new IOException(file + " failed its checksum");
+            }
+
+            header.remapSpecies(trees.species, size);
+            return new Forest(header.forestName, trees);
+        }
+    }//End of read method
+
+    /**
+     * Reads the checksum stored at the end of a snapshot file, which identifies the snapshot's contents.
+     *
+     * @param file The snapshot file.
+     * @return The CRC32C stored in the snapshot's trailer.
+     * @throws IOException If the file cannot be read.
+     */
+    public static int checksumOf(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < 4){
+                throw new IOException(file + " is too short to be a forest snapshot");
+            }
+            return readInt(channel, channel.size() - 4);
+        }
+    }
+
+    /**
+     * Checks whether a .db file was written by Java serialization rather than in the snapshot format.
+     *
+     * @param file The file to check.
+     * @return True if the file starts with a Java serialization header.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isLegacy(Path file) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            int first = inputStream.read();
+            int second = inputStream.read();
+            return ((first << 8) | second) == LEGACY_MAGIC;
+        }
+    }
+
+    /**
+     * Reads a .db file written by Java serialization.
+     */
+    private static Forest readLegacy(Path file) throws IOException {
+        try (ObjectInputStream inputStream = new ObjectInputStream(Files.newInputStream(file))) {
+            return (Forest) inputStream.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(file + " is not a forest: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads and validates the header of a snapshot.
+     *
+     * @param channel The channel of the snapshot file.
+     * @return The parsed header.
+     * @throws IOException If the header cannot be read or is not valid.
+     */
+    static Header readHeader(FileChannel channel) throws IOException {
+        ByteBuffer fixed = readBytes(channel, 0, 20);
+        if (fixed.getInt() != MAGIC){
+            throw new IOException("Not a forest snapshot");
+        }
+        short version = fixed.getShort();
+        if (version != VERSION){
+            throw new IOException("Unsupported forest snapshot version " + version);
+        }
+        fixed.getShort();
+        long rowCount = fixed.getLong();
+        int nameLength = fixed.getInt();
+        if (rowCount < 0 || nameLength < 0 || nameLength > channel.size()){
+            throw new IOException("Corrupt forest snapshot header");
+        }
+        long position = 20;
+        String forestName = StandardCharsets.UTF_8.decode(readBytes(channel, position, nameLength)).toString();
+        position += nameLength;
+
+        //Map each stored species index onto the species of this version of the program
+        int speciesCount = readBytes(channel, position, 2).getShort();
+        position += 2;
+        byte[] ordinals = new byte[speciesCount];
+        for (int code = 0; code < speciesCount; code++){
+            int length = readBytes(channel, position, 2).getShort();
+            String speciesName = StandardCharsets.US_ASCII.decode(readBytes(channel, position + 2, length)).toString();
+            position += 2 + length;
+            try {
+                ordinals[code] = (byte) TreeSpecies.valueOf(speciesName).ordinal();
+            } catch (IllegalArgumentException e){
+                throw new IOException("Forest snapshot uses unknown species " + speciesName, e);
+            }
+        }
+
+        ByteBuffer bytes = readBytes(channel, 0, (int) position);
+        return new Header(forestName, rowCount, ordinals, (int) ((position + 7) & ~7L), bytes.array());
+    }//End of readHeader method
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        return readBytes(channel, position, 4).getInt();
+    }
+
+    /**
+     * Reads exactly the given number of bytes at a position into a little-endian heap buffer.
+     */
+    private static ByteBuffer readBytes(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()){
+            if (channel.read(buffer, position + buffer.position()) < 0){
+                throw new IOException("Unexpected end of forest snapshot");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static byte[] lengthPrefixed(byte[] bytes){
+        byte[] prefixed = new byte[bytes.length + 4];
+        ByteBuffer.wrap(prefixed).order(ByteOrder.LITTLE_ENDIAN).putInt(bytes.length).put(bytes);
+        return prefixed;
+    }
+
+    /**
+     * The header of a snapshot and the positions of its columns.
+     */
+    static final class Header {
+        final String forestName;
+        final long rowCount;
+        final byte[] speciesOrdinals;
+        final int dataOffset;
+        final byte[] bytes;
+
+        Header(String forestName, long rowCount, byte[] speciesOrdinals, int dataOffset, byte[] bytes){
+            this.forestName = forestName;
+            this.rowCount = rowCount;
+            this.speciesOrdinals = speciesOrdinals;
+            this.dataOffset = dataOffset;
+            this.bytes = bytes;
+        }
+
+        long heightsOffset(){
+            return dataOffset;
+        }
+
+        long growthRatesOffset(){
+            return dataOffset + 8 * rowCount;
+        }
+
+        long yearsOffset(){
+            return dataOffset + 16 * rowCount;
+        }
+
+        long speciesOffset(){
+            return dataOffset + 20 * rowCount;
+        }
+
+        long checksumOffset(){
+            return dataOffset + 21 * rowCount;
+        }
+
+        /**
+         * Rewrites stored species indexes as ordinals of TreeSpecies, if the two differ.
+         */
+        void remapSpecies(byte[] species, int size) throws IOException {
+            boolean identity = true;
+            for (int code = 0; code < speciesOrdinals.length; code++){
+                identity &= speciesOrdinals[code] == code;
+            }
+            for (int index = 0; index < size; index++){
+                int code = species[index];
+                if (code < 0 || code >= speciesOrdinals.length){
+                    throw new IOException("Forest snapshot has an invalid species at tree " + index);
+                }
+                if (!identity){
+                    species[index] = speciesOrdinals[code];
+                }
+            }
+        }
+    }//End of Header class
+
+    /**
+     * Writes columns through one reusable direct buffer, keeping a running checksum of everything written.
+     */
+    private static final class ColumnWriter {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        final CRC32C checksum = new CRC32C();
+        long written;
+
+        ColumnWriter(FileChannel channel){
+            this.channel = channel;
+        }
+
+        void require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes){
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            checksum.update(buffer.duplicate());
+            while (buffer.hasRemaining()){
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void padTo(int alignment) throws IOException {
+            long position = written + buffer.position();
+            int padding = (int) ((alignment - position % alignment) % alignment);
+            require(padding);
+            for (int i = 0; i < padding; i++){
+                buffer.put((byte) 0);
+            }
+        }
+
+        void putDoubles(double[] values, int count) throws IOException {
+            int offset = 0;
+            while (offset < count){
+                require(8);
+                int chunk = Math.min(count - offset, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * 8);
+                offset += chunk;
+            }
+        }
+
+        void putInts(int[] values, int count) throws IOException {
+            int offset = 0;
+            while (offset < count){
+                require(4);
+                int chunk = Math.min(count - offset, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * 4);
+                offset += chunk;
+            }
+        }
+
+        void putBytes(byte[] values, int offset, int count) throws IOException {
+            int end = offset + count;
+            while (offset < end){
+                require(1);
+                int chunk = Math.min(end - offset, buffer.remaining());
+                buffer.put(values, offset, chunk);
+                offset += chunk;
+            }
+        }
+    }//End of ColumnWriter class
+
+    /**
+     * Reads columns through one reusable direct buffer between two positions of the file, adding every byte read
+     * to a running checksum.
+     */
+    private static final class ColumnReader {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        final CRC32C checksum;
+        long position;
+        final long end;
+
+        ColumnReader(FileChannel channel, long start, long end, CRC32C checksum){
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+            this.checksum = checksum;
+            buffer.limit(0);
+        }
+
+        /**
+         * Makes sure at least the given number of bytes are buffered.
+         */
+        void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes){
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes){
+                int room = (int) Math.min(buffer.remaining(), end - position);
+                if (room <= 0){
+                    throw new IOException("Unexpected end of forest snapshot");
+                }
+                ByteBuffer window = buffer.duplicate();
+                window.limit(window.position() + room);
+                int read = channel.read(window, position);
+                if (read < 0){
+                    throw new IOException("Unexpected end of forest snapshot");
+                }
+                window.flip().position(buffer.position());
+                checksum.update(window);
+                position += read;
+                buffer.position(buffer.position() + read);
+            }
+            buffer.flip();
+        }
+
+        void getDoubles(double[] values, int count) throws IOException {
+            int offset = 0;
+            while (offset < count){
+                require(8);
+                int chunk = Math.min(count - offset, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().get(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * 8);
+                offset += chunk;
+            }
+        }
+
+        void getInts(int[] values, int count) throws IOException {
+            int offset = 0;
+            while (offset < count){
+                require(4);
+                int chunk = Math.min(count - offset, buffer.remaining() / 4);
+                buffer.asIntBuffer().get(values, offset, chunk);
+                buffer.position(buffer.position() + chunk * 4);
+                offset += chunk;
+            }
+        }
+
+        void getBytes(byte[] values, int count) throws IOException {
+            int offset = 0;
+            while (offset < count){
+                require(1);
+                int chunk = Math.min(count - offset, buffer.remaining());
+                buffer.get(values, offset, chunk);
+                offset += chunk;
+            }
+        }
+    }//End of ColumnReader class
+}
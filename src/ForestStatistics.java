@@ -0,0 +1,431 @@
+import java.util.Arrays;
+
+/**
+ * The ForestStatistics class keeps a forest's summary figures up to date as the forest changes, so that a summary
+ * costs the same however many trees there are. Adding, cutting and reaping a tree adjust the count, total height,
+ * species counts and histogram by that tree alone. Growth changes every height, so the growth pass itself collects
+ * the new heights into an Accumulator as it goes and the height figures are replaced with it.
+ * <p>
+ * The smallest and largest height cannot be adjusted when the tree holding one of them is removed, so each histogram
+ * bin keeps its own smallest and largest height, and removing a tree only leaves its bin's range to be found again.
+ * That only matters for the lowest and highest bins holding trees; a reap that empties the top bins needs nothing
+ * found again unless it stopped part way through a bin. A bin whose range has to be found again is scanned for once
+ * and keeps its trees' heights from then on, so later removals from it only go over that bin's heights, until growth
+ * replaces every height.
+ */
+public class ForestStatistics {
+    /**
+     * Default range of heights covered by one histogram bin.
+     */
+    public static final double DEFAULT_BIN_WIDTH = 10.0;
+
+    /**
+     * Default number of histogram bins; the last one counts every taller tree.
+     */
+    public static final int DEFAULT_BINS = 20;
+
+    private static final int SPECIES_COUNT = TreeSpecies.values().length;
+
+    private final TreeStore trees;
+    private final double binWidth;
+    private final int[] speciesCounts = new int[SPECIES_COUNT];
+    private long[] histogram;
+    private HeightBin[] bins;
+    private int count;
+    private double totalHeight;
+    //NaN heights are counted in the first bin but kept out of its range; any one makes the range NaN
+    private int nanCount;
+
+    /**
+     * Collects the statistics of a store's trees with the default histogram bins.
+     *
+     * @param trees The store to summarise.
+     */
+    public ForestStatistics(TreeStore trees){
+        this(trees, DEFAULT_BIN_WIDTH, DEFAULT_BINS);
+    }
+
+    /**
+     * Collects the statistics of a store's trees.
+     *
+     * @param trees The store to summarise.
+     * @param binWidth The range of heights covered by one histogram bin.
+     * @param bins The number of histogram bins.
+     */
+    public ForestStatistics(TreeStore trees, double binWidth, int bins){
+        if (!(binWidth > 0) || bins < 1){
+            throw new IllegalArgumentException("Histogram needs a positive bin width and at least one bin");
+        }
+        this.trees = trees;
+        this.binWidth = binWidth;
+        this.histogram = new long[bins];
+        Accumulator heights = newAccumulator();
+        for (int row = 0; row < trees.size(); row++){
+            speciesCounts[trees.getSpecies(row).ordinal()]++;
+            heights.add(trees.getHeight(row));
+        }
+        replaceHeights(heights);
+    }
+
+    /**
+     * Records a tree added to the forest.
+     */
+    void onAdd(TreeSpecies species, double height){
+        speciesCounts[species.ordinal()]++;
+        int bin = bin(height);
+        histogram[bin]++;
+        totalHeight += height;
+        count++;
+        if (Double.isNaN(height)){
+            nanCount++;
+        } else {
+            bins[bin].add(height);
+        }
+    }
+
+    /**
+     * Records a tree removed from the forest.
+     */
+    void onRemove(TreeSpecies species, double height){
+        speciesCounts[species.ordinal()]--;
+        int bin = bin(height);
+        histogram[bin]--;
+        totalHeight -= height;
+        count--;
+        if (Double.isNaN(height)){
+            nanCount--;
+        } else {
+            bins[bin].remove(height);
+        }
+    }
+
+    /**
+     * Starts collecting the heights of a pass that changes every height.
+     *
+     * @return An empty accumulator with the same bins as these statistics.
+     */
+    Accumulator newAccumulator(){
+        return new Accumulator(binWidth, histogram.length);
+    }
+
+    /**
+     * Replaces the height figures with those collected over every tree by a pass that changed all of them.
+     */
+    void replaceHeights(Accumulator heights){
+        count = heights.count;
+        totalHeight = heights.totalHeight;
+        nanCount = heights.nanCount;
+        histogram = heights.histogram;
+        bins = new HeightBin[histogram.length];
+        for (int bin = 0; bin < bins.length; bin++){
+            long live = histogram[bin] - (bin == 0 ? nanCount : 0);
+            bins[bin] = new HeightBin((int) live, heights.binMin[bin], heights.binMax[bin]);
+        }
+    }
+
+    /**
+     * Takes a summary of the statistics, finding the range of the lowest and highest bins first if removals have
+     * left it to be found again.
+     *
+     * @return The summary.
+     */
+    public ForestSummary summary(){
+        return summary(this.trees);
+    }
+
+    /**
+     * Takes a summary of the statistics, scanning a store for a bin's heights if that bin's range has to be found
+     * again and it has not kept them, such as the live rows of a forest whose cut trees are still waiting to be
+     * compacted away.
+     *
+     * @param trees The store holding the trees the statistics describe.
+     * @return The summary.
+     */
+    ForestSummary summary(TreeStore trees){
+        double min = Double.NaN;
+        double max = Double.NaN;
+        if (count > 0 && nanCount == 0){
+            min = resolve(firstBin(), trees).min;
+            max = resolve(lastBin(), trees).max;
+        }
+        return new ForestSummary(count, totalHeight, min, max, speciesCounts.clone(), binWidth, histogram.clone());
+    }//End of summary method
+
+    /**
+     * Takes a summary to publish with a view of the forest's trees. No bin is gone over here: if removals have left
+     * the range to be found again, the summary finds it from the view's heights the first time a reader asks for it.
+     *
+     * @param view The published trees the statistics describe.
+     * @return The summary.
+     */
+    ForestSummary publishedSummary(TreeStore view){
+        if (count == 0 || nanCount > 0 || (!bins[firstBin()].stale && !bins[lastBin()].stale)){
+            return summary(view);
+        }
+        return new ForestSummary(count, totalHeight, speciesCounts.clone(), binWidth, histogram.clone(), view);
+    }
+
+    /**
+     * Calculates the average height of the trees.
+     *
+     * @return The average height, or 0 if there are no trees.
+     */
+    public double getAverageHeight(){
+        return count == 0 ? 0 : totalHeight / count;
+    }
+
+    /**
+     * Finds a bin's range again if removals have left it unknown: from the heights the bin keeps if it has them,
+     * otherwise by scanning the store once for the heights in the bin, which the bin then keeps.
+     */
+    private HeightBin resolve(int index, TreeStore trees){
+        HeightBin bin = bins[index];
+        if (!bin.stale){
+            return bin;
+        }
+        if (bin.heights != null){
+            bin.tidy();
+            return bin;
+        }
+        double[] heights = new double[bin.live];
+        int size = 0;
+        for (int row = 0; row < trees.size(); row++){
+            double height = trees.getHeight(row);
+            if (bin(height) == index && !Double.isNaN(height)){
+                heights[size++] = height;
+            }
+        }
+        bin.keep(heights, size);
+        return bin;
+    }//End of resolve method
+
+    /**
+     * Finds the lowest bin holding a height other than NaN. Only called when there is one.
+     */
+    private int firstBin(){
+        int bin = 0;
+        while (bins[bin].live == 0){
+            bin++;
+        }
+        return bin;
+    }
+
+    private int lastBin(){
+        int bin = bins.length - 1;
+        while (bins[bin].live == 0){
+            bin--;
+        }
+        return bin;
+    }
+
+    private int bin(double height){
+        return bin(height, binWidth, histogram.length);
+    }
+
+    private static int bin(double height, double binWidth, int bins){
+        //Negative and NaN heights go in the first bin, heights past the last bin in the last one
+        int bin = (int) (height / binWidth);
+        return bin < 0 ? 0 : Math.min(bin, bins - 1);
+    }
+
+    /**
+     * Collects the count, total, histogram and the range of each bin of a set of heights. Accumulators for separate
+     * ranges of rows can be filled on separate threads and merged.
+     */
+    static final class Accumulator {
+        private final double binWidth;
+        private final long[] histogram;
+        private final double[] binMin;
+        private final double[] binMax;
+        private int count;
+        private double totalHeight;
+        private int nanCount;
+
+        Accumulator(double binWidth, int bins){
+            this.binWidth = binWidth;
+            this.histogram = new long[bins];
+            this.binMin = new double[bins];
+            this.binMax = new double[bins];
+            Arrays.fill(binMin, Double.POSITIVE_INFINITY);
+            Arrays.fill(binMax, Double.NEGATIVE_INFINITY);
+        }
+
+        void add(double height){
+            int bin = bin(height, binWidth, histogram.length);
+            histogram[bin]++;
+            totalHeight += height;
+            count++;
+            if (Double.isNaN(height)){
+                nanCount++;
+            } else {
+                binMin[bin] = Math.min(binMin[bin], height);
+                binMax[bin] = Math.max(binMax[bin], height);
+            }
+        }
+
+        /**
+         * Adds the heights of a range of rows.
+         */
+        void addRange(TreeStore trees, int from, int to){
+            for (int row = from; row < to; row++){
+                add(trees.getHeight(row));
+            }
+        }
+
+        /**
+         * Adds the heights collected by another accumulator with the same bins.
+         */
+        void merge(Accumulator other){
+            if (other.count == 0){
+                return;
+            }
+            for (int bin = 0; bin < histogram.length; bin++){
+                histogram[bin] += other.histogram[bin];
+                binMin[bin] = Math.min(binMin[bin], other.binMin[bin]);
+                binMax[bin] = Math.max(binMax[bin], other.binMax[bin]);
+            }
+            totalHeight += other.totalHeight;
+            nanCount += other.nanCount;
+            count += other.count;
+        }
+    }//End of Accumulator class
+
+    /**
+     * The number of trees in one histogram bin and their smallest and largest height. Once the bin's range has had to
+     * be found again, the bin also keeps its trees' heights, along with the heights of the trees removed since it was
+     * last tidied.
+     */
+    private static final class HeightBin {
+        private static final double[] NONE = new double[0];
+
+        private int live;
+        private double min;
+        private double max;
+        //Set when the shortest or tallest height was removed, until the range is found again
+        private boolean stale;
+        //The heights kept once the range has had to be found again, including removed ones until the bin is tidied
+        private double[] heights;
+        private int size;
+        private double[] removed = NONE;
+        private int removedCount;
+        //The number of heights kept since the bin was last tidied
+        private int added;
+
+        HeightBin(int live, double min, double max){
+            this.live = live;
+            this.min = min;
+            this.max = max;
+        }
+
+        void add(double height){
+            if (heights != null){
+                if (size == heights.length){
+                    heights = Arrays.copyOf(heights, Math.max(16, size * 2));
+                }
+                heights[size++] = height;
+                added++;
+            }
+            if (live++ == 0){
+                min = height;
+                max = height;
+                stale = false;
+            } else if (!stale){
+                min = Math.min(min, height);
+                max = Math.max(max, height);
+            }
+        }
+
+        void remove(double height){
+            if (--live == 0){
+                heights = null;
+                size = 0;
+                removed = NONE;
+                removedCount = 0;
+                stale = false;
+                return;
+            }
+            if (height <= min || height >= max){
+                stale = true;
+            }
+            if (heights == null){
+                return;
+            }
+            if (removedCount == removed.length){
+                removed = Arrays.copyOf(removed, Math.max(16, removedCount * 2));
+            }
+            removed[removedCount++] = height;
+            //Tidy the bin once removed heights outnumber the live ones and the bin has kept as many new heights, so
+            //it never holds more than a few times its trees yet a bin being emptied is not gone over on the way down
+            if (removedCount > live && added > live){
+                tidy();
+            }
+        }
+
+        /**
+         * Keeps the heights scanned for the bin and takes its range from them.
+         */
+        void keep(double[] heights, int size){
+            this.heights = heights;
+            this.size = size;
+            this.added = 0;
+            findRange();
+        }
+
+        /**
+         * Takes the removed heights out of the kept ones and finds the range again, in one pass over the bin. The
+         * removed heights are counted in a hash table keyed by their bits, since a removed height always has exactly
+         * the bits it was added with.
+         */
+        void tidy(){
+            int capacity = Integer.highestOneBit(Math.max(8, removedCount) * 4 - 1);
+            long[] keys = new long[capacity];
+            int[] counts = new int[capacity];
+            for (int i = 0; i < removedCount; i++){
+                long bits = Double.doubleToRawLongBits(removed[i]);
+                int slot = slot(bits, capacity);
+                while (counts[slot] != 0 && keys[slot] != bits){
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                keys[slot] = bits;
+                counts[slot]++;
+            }
+            int kept = 0;
+            for (int i = 0; i < size; i++){
+                double height = heights[i];
+                long bits = Double.doubleToRawLongBits(height);
+                int slot = slot(bits, capacity);
+                while (counts[slot] != 0 && keys[slot] != bits){
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                //Each removed height takes out one copy; a used-up slot is marked -1 rather than emptied, so the
+                //probes that pass over it still find the keys beyond it
+                if (counts[slot] > 0){
+                    counts[slot] = counts[slot] == 1 ? -1 : counts[slot] - 1;
+                } else {
+                    heights[kept++] = height;
+                }
+            }
+            size = kept;
+            removed = NONE;
+            removedCount = 0;
+            added = 0;
+            findRange();
+        }//End of tidy method
+
+        private void findRange(){
+            double min = heights[0];
+            double max = heights[0];
+            for (int i = 1; i < size; i++){
+                min = Math.min(min, heights[i]);
+                max = Math.max(max, heights[i]);
+            }
+            this.min = min;
+            this.max = max;
+            stale = false;
+        }
+
+        private static int slot(long bits, int capacity){
+            return (int) ((bits * 0x9E3779B97F4A7C15L) >>> 40) & (capacity - 1);
+        }
+    }//End of HeightBin class
+}
@@ -0,0 +1,198 @@
+import java.util.Arrays;
+
+/**
+ * The ForestSummary class is an unchanging summary of a forest's trees at one moment: how many there are, their
+ * total, smallest and largest height, how many there are of each species, and a histogram of their heights.
+ * A summary published with a view of a concurrent forest may leave its range to be found from the view's heights by
+ * the first reader that asks for it, rather than by the writer.
+ */
+public class ForestSummary {
+    private final int count;
+    private final double totalHeight;
+    private double minHeight;
+    private double maxHeight;
+    private final int[] speciesCounts;
+    private final double binWidth;
+    private final long[] histogram;
+    //The trees to scan for the range, until a reader has scanned them
+    private TreeStore rangeSource;
+
+    ForestSummary(int count, double totalHeight, double minHeight, double maxHeight, int[] speciesCounts,
+                  double binWidth, long[] histogram){
+        this.count = count;
+        this.totalHeight = totalHeight;
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+        this.speciesCounts = speciesCounts;
+        this.binWidth = binWidth;
+        this.histogram = histogram;
+    }
+
+    /**
+     * Creates a summary whose range is found from the given trees the first time it is asked for.
+     */
+    ForestSummary(int count, double totalHeight, int[] speciesCounts, double binWidth, long[] histogram,
+                  TreeStore rangeSource){
+        this(count, totalHeight, Double.NaN, Double.NaN, speciesCounts, binWidth, histogram);
+        this.rangeSource = rangeSource;
+    }
+
+    /**
+     * Combines the summaries of several forests, or of several parts of one forest, into one.
+     *
+     * @param summaries The summaries to combine, all with the same histogram bins.
+     * @return The summary of all their trees together.
+     * @throws IllegalArgumentException If the summaries have different histogram bins.
+     */
+    public static ForestSummary combine(Iterable<ForestSummary> summaries){
+        int count = 0;
+        double totalHeight = 0;
+        double minHeight = Double.POSITIVE_INFINITY;
+        double maxHeight = Double.NEGATIVE_INFINITY;
+        int[] speciesCounts = new int[TreeSpecies.values().length];
+        double binWidth = ForestStatistics.DEFAULT_BIN_WIDTH;
+        long[] histogram = null;
+        for (ForestSummary summary : summaries){
+            if (histogram == null){
+                binWidth = summary.binWidth;
+                histogram = new long[summary.histogram.length];
+            } else if (summary.binWidth != binWidth || summary.histogram.length != histogram.length){
+                throw new IllegalArgumentException("Summaries with different histogram bins cannot be combined");
+            }
+            for (int bin = 0; bin < histogram.length; bin++){
+                histogram[bin] += summary.histogram[bin];
+            }
+            for (int species = 0; species < speciesCounts.length; species++){
+                speciesCounts[species] += summary.speciesCounts[species];
+            }
+            if (summary.count > 0){
+                count += summary.count;
+                totalHeight += summary.totalHeight;
+                minHeight = Math.min(minHeight, summary.getMinHeight());
+                maxHeight = Math.max(maxHeight, summary.getMaxHeight());
+            }
+        }
+        if (histogram == null){
+            histogram = new long[ForestStatistics.DEFAULT_BINS];
+        }
+        if (count == 0){
+            minHeight = Double.NaN;
+            maxHeight = Double.NaN;
+        }
+        return new ForestSummary(count, totalHeight, minHeight, maxHeight, speciesCounts, binWidth, histogram);
+    }//End of combine method
+
+    /**
+     * Getter method to get the number of trees.
+     *
+     * @return The number of trees.
+     */
+    public int getCount(){
+        return this.count;
+    }
+
+    /**
+     * Getter method to get the total height of the trees.
+     *
+     * @return The sum of the heights.
+     */
+    public double getTotalHeight(){
+        return this.totalHeight;
+    }
+
+    /**
+     * Calculates the average height of the trees.
+     *
+     * @return The average height, or 0 if there are no trees.
+     */
+    public double getAverageHeight(){
+        return this.count == 0 ? 0 : this.totalHeight / this.count;
+    }
+
+    /**
+     * Getter method to get the height of the shortest tree.
+     *
+     * @return The smallest height, or NaN if there are no trees.
+     */
+    public double getMinHeight(){
+        findRange();
+        return this.minHeight;
+    }
+
+    /**
+     * Getter method to get the height of the tallest tree.
+     *
+     * @return The largest height, or NaN if there are no trees.
+     */
+    public double getMaxHeight(){
+        findRange();
+        return this.maxHeight;
+    }
+
+    /**
+     * Scans the trees for the range if it was left to be found, once for all readers.
+     */
+    private synchronized void findRange(){
+        TreeStore trees = this.rangeSource;
+        if (trees == null){
+            return;
+        }
+        double min = trees.getHeight(0);
+        double max = min;
+        for (int row = 1; row < trees.size(); row++){
+            double height = trees.getHeight(row);
+            min = Math.min(min, height);
+            max = Math.max(max, height);
+        }
+        this.minHeight = min;
+        this.maxHeight = max;
+        this.rangeSource = null;
+    }
+
+    /**
+     * Getter method to get the number of trees of a species.
+     *
+     * @param species The species to count.
+     * @return The number of trees of that species.
+     */
+    public int getSpeciesCount(TreeSpecies species){
+        return this.speciesCounts[species.ordinal()];
+    }
+
+    /**
+     * Getter method to get the width of each histogram bin.
+     *
+     * @return The range of heights covered by one bin.
+     */
+    public double getBinWidth(){
+        return this.binWidth;
+    }
+
+    /**
+     * Getter method to get the height histogram. Bin i counts the trees from i * binWidth up to (i + 1) * binWidth;
+     * the first bin also counts shorter trees and the last bin every taller tree.
+     *
+     * @return A copy of the bin counts.
+     */
+    public long[] getHistogram(){
+        return this.histogram.clone();
+    }
+
+    /**
+     * Returns the summary on one line.
+     *
+     * @return The count, average, range and species counts of the trees.
+     */
+    public String toString(){
+        StringBuilder out = new StringBuilder().append(count).append(" trees, average height ");
+        TreeFormat.appendFixed(out, getAverageHeight(), 2);
+        if (count > 0){
+            TreeFormat.appendFixed(out.append(", from "), getMinHeight(), 2);
+            TreeFormat.appendFixed(out.append(" to "), getMaxHeight(), 2);
+        }
+        for (TreeSpecies species : TreeSpecies.values()){
+            out.append(", ").append(species).append(' ').append(speciesCounts[species.ordinal()]);
+        }
+        return out.append(", histogram ").append(Arrays.toString(histogram)).toString();
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * The ForestTiming class reports how one forest fared when a ForestScheduler ran an operation over many forests.
+ */
+public class ForestTiming {
+    private final String forestName;
+    private final String operation;
+    private final long nanos;
+    private final int treeCount;
+    private final String detail;
+    private final RuntimeException error;
+
+    /**
+     * Creates the report for one forest.
+     *
+     * @param forestName The name of the forest.
+     * @param operation The name of the operation.
+     * @param nanos How long the operation took, in nanoseconds.
+     * @param treeCount The number of trees in the forest afterwards.
+     * @param detail What the operation reported, or null.
+     * @param error The exception the operation failed with, or null if it succeeded.
+     */
+    public ForestTiming(String forestName, String operation, long nanos, int treeCount, String detail,
+                        RuntimeException error){
+        this.forestName = forestName;
+        this.operation = operation;
+        this.nanos = nanos;
+        this.treeCount = treeCount;
+        this.detail = detail;
+        this.error = error;
+    }
+
+    /**
+     * Getter method to get the name of the forest.
+     *
+     * @return The name of the forest.
+     */
+    public String getForestName(){
+        return this.forestName;
+    }
+
+    /**
+     * Getter method to get the name of the operation.
+     *
+     * @return The name of the operation.
+     */
+    public String getOperation(){
+        return this.operation;
+    }
+
+    /**
+     * Getter method to get how long the operation took.
+     *
+     * @return The time taken, in nanoseconds.
+     */
+    public long getNanos(){
+        return this.nanos;
+    }
+
+    /**
+     * Getter method to get the number of trees in the forest after the operation.
+     *
+     * @return The number of trees.
+     */
+    public int getTreeCount(){
+        return this.treeCount;
+    }
+
+    /**
+     * Getter method to get what the operation reported, such as a reap summary.
+     *
+     * @return The detail, or null if there is none.
+     */
+    public String getDetail(){
+        return this.detail;
+    }
+
+    /**
+     * Getter method to get the exception the operation failed with.
+     *
+     * @return The exception, or null if the operation succeeded.
+     */
+    public RuntimeException getError(){
+        return this.error;
+    }
+
+    /**
+     * Returns a one-line report of the operation on the forest.
+     *
+     * @return The forest name, operation, time taken, tree count, and detail or error.
+     */
+    public String toString(){
+        StringBuilder out = new StringBuilder(forestName).append(' ').append(operation).append(": ");
+        TreeFormat.appendFixed(out, nanos / 1e6, 2).append(" ms, ").append(treeCount).append(" trees");
+        if (error != null){
+            out.append(", failed: ").append(error);
+        } else if (detail != null){
+            out.append(", ").append(detail);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * The ForestView class is a read-only snapshot of a forest's trees at one epoch, as published by ConcurrentColumns.
+ * It holds the column arrays as they were when it was published and a fixed number of rows, so it keeps reading the
+ * same trees while writers carry on changing the forest.
+ */
+public class ForestView implements TreeStore {
+    private static final TreeSpecies[] SPECIES = TreeSpecies.values();
+
+    private final byte[] species;
+    private final double[] heights;
+    private final double[] growthRates;
+    private final int[] years;
+    private final int size;
+    private final long epoch;
+    private final ForestSummary summary;
+
+    ForestView(byte[] species, double[] heights, double[] growthRates, int[] years, int size, long epoch,
+               ForestSummary summary){
+        this.species = species;
+        this.heights = heights;
+        this.growthRates = growthRates;
+        this.years = years;
+        this.size = size;
+        this.epoch = epoch;
+        this.summary = summary;
+    }
+
+    /**
+     * Getter method to get the epoch of the view; each change to the forest publishes a new epoch.
+     *
+     * @return The epoch number.
+     */
+    public long getEpoch(){
+        return this.epoch;
+    }
+
+    /**
+     * Getter method to get the summary of the forest published with the view.
+     *
+     * @return The summary, or null if the forest keeps no statistics.
+     */
+    public ForestSummary getSummary(){
+        return this.summary;
+    }
+
+    @Override
+    public int size(){
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return this.size == 0;
+    }
+
+    @Override
+    public TreeSpecies getSpecies(int index){
+        return SPECIES[species[checkIndex(index)]];
+    }
+
+    @Override
+    public double getHeight(int index){
+        return heights[checkIndex(index)];
+    }
+
+    @Override
+    public double getGrowthRate(int index){
+        return growthRates[checkIndex(index)];
+    }
+
+    @Override
+    public int getYearOfPlanting(int index){
+        return years[checkIndex(index)];
+    }
+
+    @Override
+    public double sumHeights(int from, int to){
+        return ColumnKernels.DEFAULT.sum(heights, from, to);
+    }
+
+    @Override
+    public int findTallerThan(int from, int to, double height){
+        return ColumnKernels.DEFAULT.findTallerThan(heights, from, to, height);
+    }
+
+    @Override
+    public Tree load(int index, Tree flyweight){
+        checkIndex(index);
+        flyweight.setSpecies(SPECIES[species[index]]);
+        flyweight.setHeight(heights[index]);
+        flyweight.setGrowthRate(growthRates[index]);
+        flyweight.setYearOfPlanting(years[index]);
+        return flyweight;
+    }
+
+    @Override
+    public Tree get(int index){
+        return load(index, new Tree(null, 0, 0, 0));
+    }
+
+    @Override
+    public void add(TreeSpecies species, double height, double growthRate, int yearOfPlanting){
+        throw readOnly();
+    }
+
+    @Override
+    public int extend(int count){
+        throw readOnly();
+    }
+
+    @Override
+    public void set(int index, TreeSpecies species, double height, double growthRate, int yearOfPlanting){
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int index){
+        throw readOnly();
+    }
+
+    @Override
+    public void removeAll(RowBitmap rows){
+        throw readOnly();
+    }
+
+    @Override
+    public void setHeight(int index, double height){
+        throw readOnly();
+    }
+
+    @Override
+    public void growRange(int from, int to){
+        throw readOnly();
+    }
+
+    @Override
+    public void growRange(int from, int to, int years){
+        throw readOnly();
+    }
+
+    /**
+     * Rejects rows past the end of the view, which the shared arrays may hold for a later epoch.
+     */
+    private int checkIndex(int index){
+        if (index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Tree " + index + " is outside a view of " + size + " trees");
+        }
+        return index;
+    }
+
+    private static UnsupportedOperationException readOnly(){
+        return new UnsupportedOperationException("A forest view cannot be changed");
+    }
+}
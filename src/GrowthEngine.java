@@ -0,0 +1,166 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The GrowthEngine class applies growth to the trees of a forest.
+ * Small forests are grown on the calling thread; forests at or above the parallelism threshold are split into
+ * chunks and grown on a ForkJoinPool. Every row is updated with the same formula either way, so the parallel
+ * path gives exactly the same heights as the sequential one.
+ */
+public class GrowthEngine {
+    /**
+     * Default number of trees at which growth switches to the parallel path. It can be overridden with the
+     * forest.growth.parallelThreshold system property.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = Integer.getInteger("forest.growth.parallelThreshold", 1 << 16);
+
+    /**
+     * Engine shared by forests that are not given their own.
+     */
+    public static final GrowthEngine DEFAULT = new GrowthEngine();
+
+    //Smallest chunk worth handing to another worker
+    private static final int MIN_CHUNK = 1 << 12;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+
+    /**
+     * Creates an engine on the common pool with the default parallelism threshold.
+     */
+    public GrowthEngine(){
+        this(ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Creates an engine on the specified pool.
+     *
+     * @param pool The pool that runs parallel growth.
+     * @param parallelThreshold The number of trees at which growth switches to the parallel path.
+     */
+    public GrowthEngine(ForkJoinPool pool, int parallelThreshold){
+        if (parallelThreshold < 1){
+            throw new IllegalArgumentException("Parallelism threshold must be positive: " + parallelThreshold);
+        }
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Getter method to get the number of trees at which growth switches to the parallel path.
+     *
+     * @return The parallelism threshold.
+     */
+    public int getParallelThreshold(){
+        return this.parallelThreshold;
+    }
+
+    /**
+     * Getter method to get the pool that runs parallel work.
+     *
+     * @return The engine's pool.
+     */
+    public ForkJoinPool getPool(){
+        return this.pool;
+    }
+
+    /**
+     * Grows every tree in the store by one year.
+     *
+     * @param columns The store to grow.
+     */
+    public void growOneYear(TreeStore columns){
+        growYears(columns, 1);
+    }
+
+    /**
+     * Grows every tree in the store by several years in one pass, using the closed form for more than one year.
+     *
+     * @param columns The store to grow.
+     * @param years The number of years to grow.
+     */
+    public void growYears(TreeStore columns, int years){
+        int size = columns.size();
+        if (size < this.parallelThreshold || this.pool.getParallelism() < 2){
+            columns.growRange(0, size, years);
+            return;
+        }
+        //Aim for a few chunks per worker so uneven workers can steal the rest
+        int chunk = Math.max(MIN_CHUNK, size / (this.pool.getParallelism() * 4));
+        this.pool.invoke(new GrowthTask(columns, 0, size, chunk, years, null));
+    }//End of growYears method
+
+    /**
+     * Grows every tree in the store as growYears(columns, years) does, and collects the new heights into the
+     * forest's statistics in the same pass: each chunk is summarised right after it is grown, while its rows are
+     * still in cache.
+     *
+     * @param columns The store to grow.
+     * @param years The number of years to grow.
+     * @param statistics The statistics to refresh, or null to only grow.
+     */
+    public void growYears(TreeStore columns, int years, ForestStatistics statistics){
+        if (statistics == null){
+            growYears(columns, years);
+            return;
+        }
+        int size = columns.size();
+        ForestStatistics.Accumulator heights;
+        if (size < this.parallelThreshold || this.pool.getParallelism() < 2){
+            heights = statistics.newAccumulator();
+            for (int from = 0; from < size; from += MIN_CHUNK){
+                int to = Math.min(size, from + MIN_CHUNK);
+                columns.growRange(from, to, years);
+                heights.addRange(columns, from, to);
+            }
+        } else {
+            int chunk = Math.max(MIN_CHUNK, size / (this.pool.getParallelism() * 4));
+            GrowthTask task = new GrowthTask(columns, 0, size, chunk, years, statistics);
+            this.pool.invoke(task);
+            heights = task.heights;
+        }
+        statistics.replaceHeights(heights);
+    }//End of growYears method
+
+    /**
+     * Fork-join task that splits a range of rows in half until it is no larger than one chunk.
+     */
+    private static final class GrowthTask extends RecursiveAction {
+        private static final long serialVersionUID = 8261657684473197624L;
+
+        private final TreeStore columns;
+        private final int from, to, chunk, years;
+        private final ForestStatistics statistics;
+        //The heights of this task's rows after growing, when statistics are collected
+        ForestStatistics.Accumulator heights;
+
+        GrowthTask(TreeStore columns, int from, int to, int chunk, int years, ForestStatistics statistics){
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.years = years;
+            this.statistics = statistics;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from <= chunk){
+                columns.growRange(from, to, years);
+                if (statistics != null){
+                    heights = statistics.newAccumulator();
+                    heights.addRange(columns, from, to);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            GrowthTask left = new GrowthTask(columns, from, middle, chunk, years, statistics);
+            GrowthTask right = new GrowthTask(columns, middle, to, chunk, years, statistics);
+            invokeAll(left, right);
+            if (statistics != null){
+                heights = left.heights;
+                heights.merge(right.heights);
+            }
+        }
+    }//End of GrowthTask class
+}
@@ -0,0 +1,134 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class counts durations in log-linear buckets, as HdrHistogram does: every power of two is
+ * split into 32 equal buckets, so any recorded value is known to within about 3% from 64 nanoseconds to the longest
+ * duration a long can hold, in a fixed array of counters. Durations can be recorded from many threads at once
+ * without locking.
+ */
+public class LatencyHistogram {
+    //Bits of each value kept below its highest set bit
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    //Values below this have a bucket each
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration in nanoseconds; negative durations are counted as 0.
+     */
+    public void record(long nanos){
+        nanos = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Getter method to get the number of durations recorded.
+     *
+     * @return The number of durations.
+     */
+    public long getCount(){
+        return count.get();
+    }
+
+    /**
+     * Getter method to get the sum of the durations recorded.
+     *
+     * @return The total in nanoseconds.
+     */
+    public long getTotal(){
+        return total.get();
+    }
+
+    /**
+     * Getter method to get the longest duration recorded.
+     *
+     * @return The longest duration in nanoseconds, or 0 if none has been recorded.
+     */
+    public long getMax(){
+        return max.get();
+    }
+
+    /**
+     * Retrieves the mean of the durations recorded.
+     *
+     * @return The mean in nanoseconds, or 0 if none has been recorded.
+     */
+    public double getMean(){
+        long count = getCount();
+        return count == 0 ? 0 : (double) getTotal() / count;
+    }
+
+    /**
+     * Retrieves the duration that a percentage of the recorded durations are at or below, to the precision of its
+     * bucket.
+     *
+     * @param percentile The percentage, from 0 to 100.
+     * @return The duration in nanoseconds, or 0 if none has been recorded.
+     */
+    public long getValueAtPercentile(double percentile){
+        if (percentile < 0 || percentile > 100){
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        long count = getCount();
+        if (count == 0){
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++){
+            seen += counts.get(bucket);
+            if (seen >= target){
+                return Math.min(highestValueIn(bucket), getMax());
+            }
+        }
+        return getMax();
+    }//End of getValueAtPercentile method
+
+    /**
+     * Forgets every duration recorded so far.
+     */
+    public void reset(){
+        for (int bucket = 0; bucket < BUCKETS; bucket++){
+            counts.set(bucket, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Finds the bucket of a value: values below 64 have one each, larger values keep the five bits after their
+     * highest set bit.
+     */
+    static int bucketOf(long value){
+        if (value < LINEAR_LIMIT){
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Finds the largest value that falls in a bucket.
+     */
+    static long highestValueIn(int bucket){
+        if (bucket < LINEAR_LIMIT){
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * The LiveRows class is a read-only view of a store whose cut trees have only been marked dead, numbering the live
+ * rows from 0 in order as if the dead rows had already been compacted away. Reads go straight through to the store,
+ * so the view stays valid as trees grow or are replaced in place, but not once a row is cut, added or compacted.
+ */
+final class LiveRows implements TreeStore {
+    private final TreeStore trees;
+    //The store row of each live row
+    private final int[] rows;
+
+    /**
+     * Numbers the live rows of a store in one pass over its dead rows.
+     *
+     * @param trees The store to read.
+     * @param deadRows The rows of cut trees.
+     * @param deadCount The number of rows in deadRows.
+     */
+    LiveRows(TreeStore trees, RowBitmap deadRows, int deadCount){
+        this.trees = trees;
+        this.rows = new int[trees.size() - deadCount];
+        int row = deadRows.nextClearBit(0);
+        for (int live = 0; live < rows.length; live++){
+            rows[live] = row;
+            row = deadRows.nextClearBit(row + 1);
+        }
+    }
+
+    /**
+     * Getter method to get the store row behind a live row.
+     *
+     * @param index The index of the live row.
+     * @return The row of the store.
+     */
+    int row(int index){
+        if (index < 0 || index >= rows.length){
+            throw new IndexOutOfBoundsException("Tree " + index + " is outside a forest of " + rows.length + " trees");
+        }
+        return rows[index];
+    }
+
+    @Override
+    public int size(){
+        return rows.length;
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return rows.length == 0;
+    }
+
+    @Override
+    public TreeSpecies getSpecies(int index){
+        return trees.getSpecies(row(index));
+    }
+
+    @Override
+    public double getHeight(int index){
+        return trees.getHeight(row(index));
+    }
+
+    @Override
+    public double getGrowthRate(int index){
+        return trees.getGrowthRate(row(index));
+    }
+
+    @Override
+    public int getYearOfPlanting(int index){
+        return trees.getYearOfPlanting(row(index));
+    }
+
+    @Override
+    public double sumHeights(int from, int to){
+        //Add up the runs of live rows that sit next to each other in the store
+        double sum = 0;
+        int start = from;
+        for (int index = from + 1; index <= to; index++){
+            if (index == to || rows[index] != rows[index - 1] + 1){
+                sum += trees.sumHeights(rows[start], rows[index - 1] + 1);
+                start = index;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public int findTallerThan(int from, int to, double height){
+        for (int index = from; index < to; index++){
+            if (trees.getHeight(rows[index]) > height){
+                return index;
+            }
+        }
+        return to;
+    }
+
+    @Override
+    public Tree load(int index, Tree flyweight){
+        return trees.load(row(index), flyweight);
+    }
+
+    @Override
+    public Tree get(int index){
+        return trees.get(row(index));
+    }
+
+    @Override
+    public void add(TreeSpecies species, double height, double growthRate, int yearOfPlanting){
+        throw readOnly();
+    }
+
+    @Override
+    public int extend(int count){
+        throw readOnly();
+    }
+
+    @Override
+    public void set(int index, TreeSpecies species, double height, double growthRate, int yearOfPlanting){
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int index){
+        throw readOnly();
+    }
+
+    @Override
+    public void removeAll(RowBitmap rows){
+        throw readOnly();
+    }
+
+    @Override
+    public void setHeight(int index, double height){
+        throw readOnly();
+    }
+
+    @Override
+    public void growRange(int from, int to){
+        throw readOnly();
+    }
+
+    @Override
+    public void growRange(int from, int to, int years){
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly(){
+        return new UnsupportedOperationException("The live rows of a forest cannot be changed through a view");
+    }
+}
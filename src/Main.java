@@ -1,4 +1,7 @@
-import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -9,13 +12,17 @@ import java.util.*;
  * @version 1.0
  */
 public class Main {
+    //Number of trees printed at a time by the P option
+    private static final int PAGE_SIZE = Integer.getInteger("forest.display.pageSize", 50);
     private static Scanner keyboard = new Scanner(System.in);
 
     /**
      * The main method of the Forestry Simulation program.
-     * It reads command-line arguments, initializes forests, and presents a menu for user interaction.
+     * It reads command-line arguments, opens each forest the first time it is used, and presents a menu for user
+     * interaction.
      *
-     * @param args The command-line arguments representing the names of the forests to simulate.
+     * @param args The command-line arguments representing the names of the forests to simulate, optionally
+     *             preceded by --run "commands" or --script file to run without the menu.
      */
     public static void main(String[] args) {
         //if statement to check if there is any command line data
@@ -24,37 +31,40 @@ public class Main {
             return;
         } //End of if statement
 
-        // HashMap to store the forest objects
-        LinkedHashMap<String, Forest> forests = new LinkedHashMap<>();
+        if (args[0].equals("--run") || args[0].equals("--script")){
+            runScript(args);
+            return;
+        }
 
-        //For loop to check for csv files
-        for (String forestName : args){
-            //Create a new forest object
-            Forest forest = new Forest(forestName);
+        //Forests are only read when first used, and the least recently used are spilled and dropped to bound memory;
+        //the current forest is held so it is never dropped while commands work on it
+        ForestCache forests = new ForestCache();
+        //Delete the spill files however the program ends
+        Runtime.getRuntime().addShutdownHook(new Thread(forests::close));
 
-            //File object
-            File csvFile  = new File(forestName + ".csv");
-            if (csvFile.exists()){
-                forest.readTreesFromCSV(csvFile);
+        //Start with the first forest that can be opened
+        Forest currentForest = null;
+        for (String forestName : args){
+            currentForest = forests.hold(forestName, false);
+            if (currentForest != null){
+                offerRecovery(currentForest);
+                break;
             }
-
-            //Store the forest in hashmap
-            forests.put(forestName, forest);
         }// End of for loop
 
-        //Check if there are forests in Hashmap
-        if (!forests.isEmpty()){
-            //Get first forest
-            Forest currentForest = forests.values().iterator().next();
+        //Check if there is a forest to start with
+        if (currentForest != null){
+            //Runs commands over every forest at once
+            ForestScheduler scheduler = new ForestScheduler();
 
             //User input loop
             while (true){
-                System.out.print("\n(P)rint, (A)dd, (C)ut, (G)row, (R)eap, (S)ave, (L)oad, (N)ext, e(X)it: ");
+                System.out.print("\n(P)rint, (A)dd, (C)ut, (G)row, (R)eap, (S)ave, (L)oad, (N)ext, (E)very forest, (M)etrics, e(X)it: ");
                 String choice = keyboard.nextLine().toUpperCase();
 
                 switch (choice) {
                     case "P":
-                        currentForest.displayForest();
+                        displayForest(currentForest);
                         break;
                     case "A":
                         currentForest.addRandomTree();
@@ -65,7 +75,7 @@ public class Main {
                             String input = keyboard.nextLine();
                             try {
                                 int indexToCut = Integer.parseInt(input);
-                                if (indexToCut >= 0 && indexToCut < currentForest.trees.size()){
+                                if (indexToCut >= 0 && indexToCut < currentForest.getTreeCount()){
                                     currentForest.cutTreeByIndex(indexToCut);
                                     break;
                                 } else {
@@ -81,22 +91,7 @@ public class Main {
                         currentForest.simulateYearlyGrowth();
                         break;
                     case "R":
-                        while(true){
-                            System.out.print("Height to reap from: ");
-                            String input = keyboard.nextLine();
-
-                            try {
-                                double heightToReap = Double.parseDouble(input);
-                                if (heightToReap >= 0){
-                                    currentForest.reapForest(heightToReap);
-                                    break;
-                                } else {
-                                    System.out.println("Invalid height. Please enter a positive number.");
-                                }
-                            } catch (NumberFormatException e){
-                                System.out.println("Invalid input. Please enter a valid number. ");
-                            }
-                        }
+                        currentForest.reapForest(readReapHeight());
                         break;
                     case "S":
                         currentForest.saveForest();
@@ -104,8 +99,11 @@ public class Main {
                     case "L":
                         System.out.print("Enter forest name: ");
                         String forestToLoad = keyboard.nextLine();
-                        if (forests.containsKey(forestToLoad)) {
-                            currentForest = forests.get(forestToLoad);
+                        //Loading prefers the saved snapshot; a .csv file is only read if there is none
+                        Forest loadedForest = forests.hold(forestToLoad, true);
+                        if (loadedForest != null) {
+                            currentForest = loadedForest;
+                            offerRecovery(currentForest);
                         } else {
                             System.out.println("Error opening/reading " + forestToLoad + ".db");
                             System.out.println("Old forest retained");
@@ -117,32 +115,55 @@ public class Main {
 
                        if (nextForestName != null) {
                             System.out.println("Moving to the next forest");
-                            System.out.println("Initializing from " + nextForestName);
-
-                            File csvFile = new File(nextForestName + ".csv");
-                            if (csvFile.exists()){
-                                currentForest = forests.get(nextForestName);
-                            } else {
-                                System.out.println("Error opening/reading " + nextForestName + ".csv");
 
-                                while (!csvFile.exists()){
+                            //Try the forests after the current one in turn, going round the list at most once
+                            Forest nextForest = null;
+                            for (int tried = 0; tried < args.length && nextForest == null; tried++){
+                                System.out.println("Initializing from " + nextForestName);
+                                nextForest = forests.hold(nextForestName, false);
+                                if (nextForest == null){
                                     nextForestName = getNextForestName(nextForestName, args);
-                                    if (nextForestName == null) {
-                                        System.out.println("No more forests to process.");
-                                        break;
-                                    }
-                                    csvFile = new File(nextForestName + ".csv");
                                 }
+                            }
 
-                                if (nextForestName != null ) {
-                                    System.out.println("Initializing from " + nextForestName);
-                                    currentForest = forests.get(nextForestName);
-                                }
+                            if (nextForest != null) {
+                                currentForest = nextForest;
+                                offerRecovery(currentForest);
+                            } else {
+                                System.out.println("No more forests to process.");
                             }
                        } else {
                             System.out.println("No more forests to process.");
                         }
                         break;
+                    case "E":
+                        System.out.print("For every forest, (G)row, (R)eap or (S)ave: ");
+                        String operation = keyboard.nextLine().toUpperCase();
+                        List<ForestTiming> timings;
+                        long start = System.nanoTime();
+                        //Forests are worked on as many at a time as fit in memory together
+                        List<String> forestNames = Arrays.asList(args);
+                        if (operation.equals("G")){
+                            timings = forests.runInGroups(forestNames, group -> scheduler.growAll(group, 1));
+                        } else if (operation.equals("R")){
+                            double heightToReap = readReapHeight();
+                            start = System.nanoTime();
+                            timings = forests.runInGroups(forestNames, group -> scheduler.reapAll(group, heightToReap));
+                        } else if (operation.equals("S")){
+                            timings = forests.runInGroups(forestNames, scheduler::saveAll);
+                        } else {
+                            System.out.println("Invalid menu option, try again");
+                            break;
+                        }
+                        long elapsed = System.nanoTime() - start;
+                        for (ForestTiming timing : timings){
+                            System.out.println(timing);
+                        }
+                        System.out.printf("%d forests in %.2f ms\n", timings.size(), elapsed / 1e6);
+                        break;
+                    case "M":
+                        System.out.print(ForestMetrics.report());
+                        break;
                     case "X":
                         System.out.println("Exiting the Forestry Simulation");
                         System.exit(0);
@@ -156,6 +177,136 @@ public class Main {
         }
     }//End of main method
 
+    /**
+     * Runs a script over every named forest without the interactive menu, for example
+     * {@code Main --run "grow 25; reap 80; save" Acadian Montane}, or {@code Main --script nightly.txt Acadian} with
+     * the commands read from a file, or from standard input if the file is -. Adding --parallel after the script runs
+     * the forests at the same time. Each forest is read from its .csv file if there is one, otherwise from its .db
+     * file. A script leaves each forest as the same commands given through the menu would, except that
+     * "grow years reap height" draws each reaped tree's replacement as it reaches that tree rather than year by year.
+     *
+     * @param args The command-line arguments: --run or --script, the commands or file, options, then forest names.
+     */
+    private static void runScript(String[] args){
+        if (args.length < 3){
+            System.out.println("Usage: Main --run \"commands\" | --script file [--parallel] forest...");
+            return;
+        }
+        ForestScript script;
+        try {
+            String text;
+            if (args[0].equals("--run")){
+                text = args[1];
+            } else if (args[1].equals("-")){
+                text = new String(System.in.readAllBytes(), StandardCharsets.UTF_8);
+            } else {
+                text = Files.readString(Paths.get(args[1]));
+            }
+            script = ForestScript.parse(text);
+        } catch (IOException e) {
+            System.out.println("Error reading script " + args[1] + ": " + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid script: " + e.getMessage());
+            return;
+        }
+
+        int first = 2;
+        boolean parallel = args[first].equals("--parallel");
+        if (parallel){
+            first++;
+        }
+        List<Forest> forests = new ArrayList<>();
+        for (String forestName : Arrays.copyOfRange(args, first, args.length)){
+            Forest forest = ForestCache.open(forestName);
+            if (forest != null){
+                forests.add(forest);
+            }
+        }
+        System.out.println("Running " + script + " on " + forests.size() + " forests");
+
+        if (parallel){
+            try (ForestScheduler scheduler = new ForestScheduler()){
+                for (ForestTiming timing : scheduler.run("script", forests, script::run)){
+                    if (timing.getDetail() != null){
+                        System.out.print(timing.getDetail());
+                    }
+                    System.out.println(timing.getError() == null ? timing.getForestName() + " finished"
+                            : timing.getForestName() + " failed: " + timing.getError());
+                }
+            }
+        } else {
+            for (Forest forest : forests){
+                System.out.print(script.run(forest));
+            }
+        }
+    }//End of runScript method
+
+    /**
+     * Displays a forest a page at a time, asking after each page whether to show the next one. The forest's name is
+     * shown once before the first page and its totals once the listing ends.
+     *
+     * @param forest The forest to display.
+     */
+    private static void displayForest(Forest forest){
+        ForestPrinter printer = new ForestPrinter();
+        System.out.println("Forest name: " + forest.getForestName());
+        for (int page = 0; ; page++){
+            forest.displayRows(printer.setPage(page, PAGE_SIZE));
+            int shown = (int) Math.min(forest.getTreeCount(), (page + 1L) * PAGE_SIZE);
+            if (shown >= forest.getTreeCount()){
+                break;
+            }
+            System.out.print("Shown " + shown + " of " + forest.getTreeCount() + " trees, Enter for more or (Q)uit: ");
+            if (keyboard.nextLine().trim().equalsIgnoreCase("Q")){
+                break;
+            }
+        }
+        forest.displayTotals();
+    }//End of displayForest method
+
+    /**
+     * Asks whether to recover the changes a forest's journal holds from a run that stopped without saving them, and
+     * recovers or discards them.
+     *
+     * @param forest The forest just opened.
+     */
+    private static void offerRecovery(Forest forest){
+        long unsaved = forest.getUnsavedChangeCount();
+        if (unsaved == 0){
+            return;
+        }
+        System.out.print("Recover " + unsaved + " unsaved changes to " + forest.getForestName() + "? (Y/N): ");
+        if (keyboard.nextLine().trim().equalsIgnoreCase("Y")){
+            System.out.println("Recovered " + forest.recoverUnsavedChanges() + " changes");
+        } else {
+            forest.discardUnsavedChanges();
+        }
+    }
+
+    /**
+     * Asks for a height to reap from until a valid, non-negative one is entered.
+     *
+     * @return The height to reap from.
+     */
+    private static double readReapHeight(){
+        while(true){
+            System.out.print("Height to reap from: ");
+            String input = keyboard.nextLine();
+
+            try {
+                double heightToReap = Double.parseDouble(input);
+                if (heightToReap >= 0){
+                    return heightToReap;
+                } else {
+                    System.out.println("Invalid height. Please enter a positive number.");
+                }
+            } catch (NumberFormatException e){
+                System.out.println("Invalid input. Please enter a valid number. ");
+            }
+        }
+    }//End of readReapHeight method
+
     /**
      * Retrieves the name of the next forest in the set of forest names.
      *
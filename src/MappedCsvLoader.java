@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * The MappedCsvLoader class loads large tree CSV files by memory-mapping them, splitting the file into segments that
+ * start and end on row boundaries, and parsing the segments concurrently. The segments are then appended to the
+ * forest in file order, so the result is the same as reading the file row by row.
+ */
+public class MappedCsvLoader {
+    /**
+     * Default file size in bytes at which Forest switches from streaming to mapped loading. It can be overridden with
+     * the forest.csv.mappedThreshold system property.
+     */
+    public static final long DEFAULT_MAPPED_THRESHOLD = Long.getLong("forest.csv.mappedThreshold", 8L << 20);
+
+    //Segments are kept between these sizes, well under the 2 GB limit of a single mapping
+    private static final long MIN_SEGMENT_SIZE = 1L << 20;
+    private static final long MAX_SEGMENT_SIZE = 1L << 28;
+
+    private final ForkJoinPool pool;
+    private final List<CsvRowError> errors = new ArrayList<>();
+
+    /**
+     * Creates a loader that parses on the common pool.
+     */
+    public MappedCsvLoader(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a loader that parses on the specified pool.
+     *
+     * @param pool The pool that parses the segments.
+     */
+    public MappedCsvLoader(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Reads every row of a CSV file and appends the trees to the columns.
+     *
+     * @param csvFile The CSV file to read.
+     * @param trees The columns to add the trees to.
+     * @throws IOException If the file cannot be mapped or read.
+     */
+    public void read(Path csvFile, TreeColumns trees) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize == 0){
+                return;
+            }
+
+            //Split into a few segments per worker, then start each one just after a newline
+            long targetSize = Math.min(MAX_SEGMENT_SIZE, Math.max(MIN_SEGMENT_SIZE, fileSize / (pool.getParallelism() * 4L)));
+            List<Long> boundaries = new ArrayList<>();
+            boundaries.add(0L);
+            long position = targetSize;
+            while (position < fileSize){
+                long lineStart = nextLineStart(channel, position, fileSize);
+                if (lineStart >= fileSize){
+                    break;
+                }
+                boundaries.add(lineStart);
+                position = lineStart + targetSize;
+            }
+            boundaries.add(fileSize);
+
+            //Parse every segment concurrently
+            List<ForkJoinTask<Segment>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.size(); i++){
+                long start = boundaries.get(i);
+                long size = boundaries.get(i + 1) - start;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                boolean first = start == 0;
+                tasks.add(pool.submit(() -> parseSegment(buffer, first)));
+            }
+
+            //Merge in file order, shifting each segment's line numbers by the lines before it
+            List<Segment> segments = new ArrayList<>(tasks.size());
+            int totalRows = trees.size();
+            for (ForkJoinTask<Segment> task : tasks){
+                Segment segment = task.join();
+                segments.add(segment);
+                totalRows += segment.trees.size();
+            }
+            trees.ensureCapacity(totalRows);
+            long linesBefore = 0;
+            for (Segment segment : segments){
+                trees.addAll(segment.trees);
+                for (CsvRowError error : segment.errors){
+                    errors.add(new CsvRowError(error.getLineNumber() + linesBefore, error.getMessage(), error.getLine()));
+                }
+                linesBefore += segment.lines;
+            }
+        }
+    }//End of read method
+
+    /**
+     * Retrieves the malformed rows found so far, in file order.
+     *
+     * @return The list of row errors.
+     */
+    public List<CsvRowError> getErrors(){
+        return this.errors;
+    }
+
+    /**
+     * Finds the start of the first row that begins at or after the given position.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long fileSize) throws IOException {
+        //Look at the byte before the position so a segment never starts in the middle of a row
+        long scanFrom = position - 1;
+        int window = (int) Math.min(1 << 16, fileSize - scanFrom);
+        while (scanFrom < fileSize){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, scanFrom, Math.min(window, fileSize - scanFrom));
+            for (int i = 0; i < buffer.limit(); i++){
+                if (buffer.get(i) == '\n'){
+                    return scanFrom + i + 1;
+                }
+            }
+            scanFrom += buffer.limit();
+        }
+        return fileSize;
+    }//End of nextLineStart method
+
+    /**
+     * Parses one segment of the file with line numbers counted from the start of the segment.
+     */
+    private static Segment parseSegment(MappedByteBuffer buffer, boolean startOfFile){
+        Segment segment = new Segment(buffer.limit() / 16);
+        int limit = buffer.limit();
+        int lineStart = 0;
+        //Skip a UTF-8 byte order mark at the start of the file
+        if (startOfFile && limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF){
+            lineStart = 3;
+        }
+        for (int i = lineStart; i < limit; i++){
+            if (buffer.get(i) == '\n'){
+                CsvRowParser.parseRow(buffer, lineStart, i, ++segment.lines, segment.trees, segment.errors);
+                lineStart = i + 1;
+            }
+        }
+        //The last row of the file may not end with a newline
+        if (lineStart < limit){
+            CsvRowParser.parseRow(buffer, lineStart, limit, ++segment.lines, segment.trees, segment.errors);
+        }
+        return segment;
+    }//End of parseSegment method
+
+    /**
+     * The trees and errors parsed from one segment, and the number of lines it held.
+     */
+    private static final class Segment {
+        final TreeColumns trees;
+        final List<CsvRowError> errors = new ArrayList<>();
+        long lines;
+
+        Segment(int expectedRows){
+            this.trees = new TreeColumns(expectedRows);
+        }
+    }//End of Segment class
+}
@@ -0,0 +1,286 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * The MappedTreeStore class serves the trees of a forest straight out of a memory-mapped snapshot file instead of
+ * loading them onto the heap. Each column of the snapshot is mapped in pages of a million rows; the operating system
+ * only faults in the parts of a page that are actually touched, so opening a forest costs nothing per tree and an
+ * aggregate such as the average height only reads the height column.
+ * Growth and reaping write rows back into the mapping in place. The number of trees is fixed by the snapshot, so
+ * trees cannot be added or cut. sync() brings the checksum up to date and flushes the mapping to disk.
+ */
+public class MappedTreeStore implements TreeStore {
+    private static final int PAGE_SHIFT = 20;
+    private static final int PAGE_ROWS = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_ROWS - 1;
+    private static final TreeSpecies[] SPECIES = TreeSpecies.values();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ForestSnapshot.Header header;
+    private final int size;
+    private final byte[] codeToOrdinal;
+    private final byte[] ordinalToCode;
+    private final MappedByteBuffer[] heightPages, growthRatePages, yearPages, speciesPages;
+
+    private MappedTreeStore(Path file, FileChannel channel, ForestSnapshot.Header header) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.header = header;
+        this.size = (int) header.rowCount;
+
+        //Translate between the snapshot's species dictionary and TreeSpecies ordinals
+        this.codeToOrdinal = header.speciesOrdinals;
+        this.ordinalToCode = new byte[SPECIES.length];
+        Arrays.fill(this.ordinalToCode, (byte) -1);
+        for (int code = 0; code < codeToOrdinal.length; code++){
+            this.ordinalToCode[codeToOrdinal[code]] = (byte) code;
+        }
+
+        this.heightPages = mapColumn(header.heightsOffset(), 8);
+        this.growthRatePages = mapColumn(header.growthRatesOffset(), 8);
+        this.yearPages = mapColumn(header.yearsOffset(), 4);
+        this.speciesPages = mapColumn(header.speciesOffset(), 1);
+    }
+
+    /**
+     * Opens a snapshot file as a memory-mapped store. Files written by Java serialization have to be loaded and saved
+     * once with Forest.loadForest() before they can be mapped.
+     *
+     * @param file The snapshot file to open.
+     * @return The mapped store.
+     * @throws IOException If the file cannot be opened or is not a valid snapshot.
+     */
+    public static MappedTreeStore open(Path file) throws IOException {
+        if (ForestSnapshot.isLegacy(file)){
+            throw new IOException(file + " uses the old serialized format; load and save it once to migrate it");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ForestSnapshot.Header header = ForestSnapshot.readHeader(channel);
+            if (header.rowCount > Integer.MAX_VALUE){
+                throw new IOException(file + " holds " + header.rowCount + " trees, more than a forest can index");
+            }
+            if (channel.size() != header.checksumOffset() + 4){
+                throw new IOException(file + " is truncated or has trailing data");
+            }
+            return new MappedTreeStore(file, channel, header);
+        } catch (IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+    }//End of open method
+
+    /**
+     * Maps one column in pages of PAGE_ROWS rows.
+     */
+    private MappedByteBuffer[] mapColumn(long offset, int width) throws IOException {
+        int pageCount = (int) ((size + (long) PAGE_ROWS - 1) >>> PAGE_SHIFT);
+        MappedByteBuffer[] pages = new MappedByteBuffer[pageCount];
+        for (int page = 0; page < pageCount; page++){
+            long firstRow = (long) page << PAGE_SHIFT;
+            long rows = Math.min(PAGE_ROWS, size - firstRow);
+            pages[page] = channel.map(FileChannel.MapMode.READ_WRITE, offset + firstRow * width, rows * width);
+            pages[page].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return pages;
+    }
+
+    /**
+     * Getter method to get the snapshot file behind the store.
+     *
+     * @return The mapped file.
+     */
+    public Path getFile(){
+        return this.file;
+    }
+
+    /**
+     * Getter method to get the name of the forest stored in the snapshot.
+     *
+     * @return The forest name from the snapshot header.
+     */
+    public String getForestName(){
+        return this.header.forestName;
+    }
+
+    @Override
+    public int size(){
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty(){
+        return this.size == 0;
+    }
+
+    @Override
+    public void add(TreeSpecies species, double height, double growthRate, int yearOfPlanting){
+        throw new UnsupportedOperationException("Trees cannot be added to a memory-mapped forest");
+    }
+
+    @Override
+    public int extend(int count){
+        throw new UnsupportedOperationException("Trees cannot be added to a memory-mapped forest");
+    }
+
+    @Override
+    public void remove(int index){
+        throw new UnsupportedOperationException("Trees cannot be cut from a memory-mapped forest");
+    }
+
+    @Override
+    public void removeAll(RowBitmap rows){
+        throw new UnsupportedOperationException("Trees cannot be cut from a memory-mapped forest");
+    }
+
+    @Override
+    public void set(int index, TreeSpecies species, double height, double growthRate, int yearOfPlanting){
+        byte code = ordinalToCode[species.ordinal()];
+        if (code < 0){
+            throw new IllegalArgumentException("Species " + species + " is not in the snapshot's species dictionary");
+        }
+        checkIndex(index);
+        int offset = index & PAGE_MASK;
+        int page = index >>> PAGE_SHIFT;
+        speciesPages[page].put(offset, code);
+        heightPages[page].putDouble(offset << 3, height);
+        growthRatePages[page].putDouble(offset << 3, growthRate);
+        yearPages[page].putInt(offset << 2, yearOfPlanting);
+    }
+
+    @Override
+    public TreeSpecies getSpecies(int index){
+        checkIndex(index);
+        return SPECIES[codeToOrdinal[speciesPages[index >>> PAGE_SHIFT].get(index & PAGE_MASK)]];
+    }
+
+    @Override
+    public double getHeight(int index){
+        checkIndex(index);
+        return heightPages[index >>> PAGE_SHIFT].getDouble((index & PAGE_MASK) << 3);
+    }
+
+    @Override
+    public void setHeight(int index, double height){
+        checkIndex(index);
+        heightPages[index >>> PAGE_SHIFT].putDouble((index & PAGE_MASK) << 3, height);
+    }
+
+    @Override
+    public double getGrowthRate(int index){
+        checkIndex(index);
+        return growthRatePages[index >>> PAGE_SHIFT].getDouble((index & PAGE_MASK) << 3);
+    }
+
+    @Override
+    public int getYearOfPlanting(int index){
+        checkIndex(index);
+        return yearPages[index >>> PAGE_SHIFT].getInt((index & PAGE_MASK) << 2);
+    }
+
+    @Override
+    public void growRange(int from, int to){
+        growRange(from, to, 1);
+    }
+
+    @Override
+    public void growRange(int from, int to, int years){
+        //Walk the range a page at a time so the inner loop works on a single buffer
+        while (from < to){
+            int page = from >>> PAGE_SHIFT;
+            //In long, as the end of the last page can be past Integer.MAX_VALUE
+            int end = (int) Math.min(to, (page + 1L) << PAGE_SHIFT);
+            MappedByteBuffer heights = heightPages[page];
+            MappedByteBuffer growthRates = growthRatePages[page];
+            for (int offset = (from & PAGE_MASK) << 3, last = ((end - 1) & PAGE_MASK) << 3; offset <= last; offset += 8){
+                heights.putDouble(offset, Tree.heightAfterYears(heights.getDouble(offset), growthRates.getDouble(offset), years));
+            }
+            from = end;
+        }
+    }
+
+    @Override
+    public int findTallerThan(int from, int to, double height){
+        for (int index = from; index < to; index++){
+            if (getHeight(index) > height){
+                return index;
+            }
+        }
+        return to;
+    }
+
+    @Override
+    public double sumHeights(int from, int to){
+        double total = 0;
+        while (from < to){
+            int page = from >>> PAGE_SHIFT;
+            int end = (int) Math.min(to, (page + 1L) << PAGE_SHIFT);
+            MappedByteBuffer heights = heightPages[page];
+            for (int offset = (from & PAGE_MASK) << 3, last = ((end - 1) & PAGE_MASK) << 3; offset <= last; offset += 8){
+                total += heights.getDouble(offset);
+            }
+            from = end;
+        }
+        return total;
+    }
+
+    @Override
+    public Tree load(int index, Tree flyweight){
+        flyweight.setSpecies(getSpecies(index));
+        flyweight.setHeight(getHeight(index));
+        flyweight.setGrowthRate(getGrowthRate(index));
+        flyweight.setYearOfPlanting(getYearOfPlanting(index));
+        return flyweight;
+    }
+
+    @Override
+    public Tree get(int index){
+        return load(index, new Tree(null, 0, 0, 0));
+    }
+
+    /**
+     * Recomputes the snapshot checksum over the mapped columns and flushes every change to disk, leaving the file a
+     * valid snapshot again. This reads every column once.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public void sync() throws IOException {
+        CRC32C checksum = new CRC32C();
+        checksum.update(header.bytes);
+        checksum.update(new byte[header.dataOffset - header.bytes.length]);
+        for (MappedByteBuffer[] column : new MappedByteBuffer[][] {heightPages, growthRatePages, yearPages, speciesPages}){
+            for (MappedByteBuffer page : column){
+                checksum.update(page.duplicate().clear());
+                page.force();
+            }
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) checksum.getValue()).flip();
+        while (trailer.hasRemaining()){
+            channel.write(trailer, header.checksumOffset() + trailer.position());
+        }
+        channel.force(false);
+    }//End of sync method
+
+    /**
+     * Closes the file behind the store. The mapping itself is released once the store is no longer referenced.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void checkIndex(int index){
+        if (index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Tree index " + index + " out of bounds for " + size + " trees");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The OperationMetrics class collects the metrics of one forest operation, such as growth or saving, across every
+ * forest: a latency histogram, and the trees handled, bytes read or written and bytes allocated by each run.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder trees = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    OperationMetrics(String name){
+        this.name = name;
+    }
+
+    /**
+     * Records one run of the operation.
+     *
+     * @param nanos How long the run took, in nanoseconds.
+     * @param trees The number of trees the run handled.
+     * @param bytes The number of bytes the run read or wrote.
+     * @param allocatedBytes The number of bytes the run allocated, or 0 if unknown.
+     */
+    void record(long nanos, long trees, long bytes, long allocatedBytes){
+        this.latency.record(nanos);
+        this.trees.add(trees);
+        this.bytes.add(bytes);
+        this.allocatedBytes.add(allocatedBytes);
+    }
+
+    /**
+     * Getter method to get the name of the operation.
+     *
+     * @return The name, such as grow.
+     */
+    public String getName(){
+        return this.name;
+    }
+
+    /**
+     * Getter method to get the histogram of how long each run took.
+     *
+     * @return The latency histogram.
+     */
+    public LatencyHistogram getLatency(){
+        return this.latency;
+    }
+
+    @Override
+    public long getCount(){
+        return latency.getCount();
+    }
+
+    @Override
+    public long getTrees(){
+        return trees.sum();
+    }
+
+    @Override
+    public long getBytes(){
+        return bytes.sum();
+    }
+
+    @Override
+    public long getAllocatedBytes(){
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public double getTreesPerSecond(){
+        long total = latency.getTotal();
+        return total == 0 ? 0 : getTrees() * 1e9 / total;
+    }
+
+    @Override
+    public double getMeanMillis(){
+        return latency.getMean() / 1e6;
+    }
+
+    @Override
+    public double getMedianMillis(){
+        return getMillisAtPercentile(50);
+    }
+
+    @Override
+    public double getP99Millis(){
+        return getMillisAtPercentile(99);
+    }
+
+    @Override
+    public double getMaxMillis(){
+        return latency.getMax() / 1e6;
+    }
+
+    @Override
+    public double getMillisAtPercentile(double percentile){
+        return latency.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    @Override
+    public void reset(){
+        latency.reset();
+        trees.reset();
+        bytes.reset();
+        allocatedBytes.reset();
+    }
+
+    /**
+     * Summarises the operation on one line: runs, median, 99th percentile and longest time, trees per second, bytes
+     * and allocations.
+     *
+     * @return The summary.
+     */
+    public String toString(){
+        StringBuilder out = new StringBuilder(name).append(": ").append(getCount()).append(" runs, median ");
+        TreeFormat.appendFixed(out, getMedianMillis(), 2).append(" ms, p99 ");
+        TreeFormat.appendFixed(out, getP99Millis(), 2).append(" ms, max ");
+        TreeFormat.appendFixed(out, getMaxMillis(), 2).append(" ms, ");
+        TreeFormat.appendFixed(out, getTreesPerSecond(), 0).append(" trees/s, ");
+        return out.append(getBytes()).append(" bytes, ").append(getAllocatedBytes()).append(" bytes allocated")
+                .toString();
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * The OperationMetricsMXBean interface is the management view of one forest operation's metrics, registered with the
+ * platform MBean server as CanadianForests:type=ForestMetrics,operation=name so that JConsole, VisualVM or any JMX
+ * client can read it from a running simulation.
+ */
+public interface OperationMetricsMXBean {
+    /**
+     * @return The number of times the operation has run.
+     */
+    long getCount();
+
+    /**
+     * @return The number of trees loaded, grown, reaped over or saved, summed over every run.
+     */
+    long getTrees();
+
+    /**
+     * @return The number of bytes read or written, summed over every run.
+     */
+    long getBytes();
+
+    /**
+     * @return The number of bytes allocated by the calling thread, summed over every run.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * @return The number of trees handled per second of time spent in the operation.
+     */
+    double getTreesPerSecond();
+
+    /**
+     * @return The mean duration in milliseconds.
+     */
+    double getMeanMillis();
+
+    /**
+     * @return The median duration in milliseconds.
+     */
+    double getMedianMillis();
+
+    /**
+     * @return The 99th percentile duration in milliseconds.
+     */
+    double getP99Millis();
+
+    /**
+     * @return The longest duration in milliseconds.
+     */
+    double getMaxMillis();
+
+    /**
+     * Retrieves the duration that a percentage of the runs took at most.
+     *
+     * @param percentile The percentage, from 0 to 100.
+     * @return The duration in milliseconds.
+     */
+    double getMillisAtPercentile(double percentile);
+
+    /**
+     * Forgets every run recorded so far.
+     */
+    void reset();
+}
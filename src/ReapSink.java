@@ -0,0 +1,32 @@
+/**
+ * The ReapSink interface receives each tree replaced while a forest is reaped. The trees passed in are reused from
+ * one call to the next, so a sink that keeps them must copy their values.
+ */
+public interface ReapSink {
+    /**
+     * A sink that ignores every reaped tree.
+     */
+    ReapSink NONE = (reaped, replacement) -> { };
+
+    /**
+     * A sink that prints each reaped tree and its replacement on their own lines, as reaping always has.
+     */
+    ReapSink CONSOLE = (reaped, replacement) -> {
+        System.out.println("Reaping the tall tree  " + reaped.getReapingFormat());
+        System.out.println("Replaced with new tree " + replacement.getReapingFormat());
+    };
+
+    /**
+     * Receives a reaped tree and the tree that replaced it.
+     *
+     * @param reaped The tree that was reaped.
+     * @param replacement The new tree written over its row.
+     */
+    void treeReaped(Tree reaped, Tree replacement);
+
+    /**
+     * Called once a reap has finished, so buffered sinks can write out what they hold.
+     */
+    default void flush(){
+    }
+}
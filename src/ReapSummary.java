@@ -0,0 +1,83 @@
+import java.util.Arrays;
+
+/**
+ * The ReapSummary class is a sink that only counts reaped trees, by species, instead of reporting each one.
+ */
+public class ReapSummary implements ReapSink {
+    private static final TreeSpecies[] SPECIES = TreeSpecies.values();
+
+    private final long[] reaped = new long[SPECIES.length];
+    private final long[] planted = new long[SPECIES.length];
+    private long count;
+    private double reapedHeight;
+
+    @Override
+    public void treeReaped(Tree reaped, Tree replacement){
+        this.reaped[reaped.getSpecies().ordinal()]++;
+        this.planted[replacement.getSpecies().ordinal()]++;
+        this.reapedHeight += reaped.getHeight();
+        this.count++;
+    }
+
+    /**
+     * Retrieves the number of trees reaped.
+     *
+     * @return The number of reaped trees.
+     */
+    public long getCount(){
+        return this.count;
+    }
+
+    /**
+     * Retrieves the number of trees of a species that were reaped.
+     *
+     * @param species The species to count.
+     * @return The number of reaped trees of that species.
+     */
+    public long getReaped(TreeSpecies species){
+        return this.reaped[species.ordinal()];
+    }
+
+    /**
+     * Retrieves the number of replacement trees of a species that were planted.
+     *
+     * @param species The species to count.
+     * @return The number of planted trees of that species.
+     */
+    public long getPlanted(TreeSpecies species){
+        return this.planted[species.ordinal()];
+    }
+
+    /**
+     * Retrieves the total height of the reaped trees.
+     *
+     * @return The sum of the reaped heights.
+     */
+    public double getReapedHeight(){
+        return this.reapedHeight;
+    }
+
+    /**
+     * Clears the counts so the summary can be reused for another reap.
+     */
+    public void reset(){
+        Arrays.fill(this.reaped, 0);
+        Arrays.fill(this.planted, 0);
+        this.count = 0;
+        this.reapedHeight = 0;
+    }
+
+    /**
+     * Returns a one-line summary of the reap.
+     *
+     * @return The counts of reaped and planted trees by species.
+     */
+    public String toString(){
+        StringBuilder out = new StringBuilder("Reaped ").append(count).append(" trees");
+        for (TreeSpecies species : SPECIES){
+            out.append(", ").append(species).append(' ').append(reaped[species.ordinal()])
+                    .append(" -> ").append(planted[species.ordinal()]);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,307 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The RegionalForest class is a forest laid out on a grid of stands. Each tree belongs to the stand it grows in, and
+ * each stand's trees are kept in a shard of their own: a Forest with its own columns, statistics, journal and .db
+ * file, named after the forest and the stand (forestName_x_y). Growing, reaping, summarising or searching a set of
+ * stands only touches those stands' shards, so working on one stand of a large forest costs as much as the stand,
+ * not the whole forest.
+ * <p>
+ * Growth, reaps and saves run on a ForestScheduler, one task per stand, so stands are worked on in parallel while
+ * each shard is still only touched by one thread at a time. The list of stands is saved next to the shards in
+ * forestName.stands.
+ * <p>
+ * This class is for programs that build on the simulation as a library; the menu and scripts in Main work on whole
+ * forests and do not use it.
+ */
+public class RegionalForest {
+    private final String forestName;
+    private final ForestScheduler scheduler;
+    private final TreeMap<Stand, Forest> shards = new TreeMap<>();
+
+    /**
+     * Creates a regional forest with no stands.
+     *
+     * @param forestName The name of the forest.
+     * @param scheduler The scheduler to run work across stands on.
+     */
+    public RegionalForest(String forestName, ForestScheduler scheduler){
+        this.forestName = forestName;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Getter method to get the name of the forest.
+     *
+     * @return The name of the forest.
+     */
+    public String getForestName(){
+        return this.forestName;
+    }
+
+    /**
+     * Retrieves the stands that have a shard, in order.
+     *
+     * @return The stands, which cannot be changed through the returned set.
+     */
+    public NavigableSet<Stand> getStands(){
+        return Collections.unmodifiableNavigableSet(shards.navigableKeySet());
+    }
+
+    /**
+     * Retrieves the shard of a stand, creating an empty one if the stand has none yet. New shards keep their
+     * statistics up to date, so stand summaries never scan the stand.
+     *
+     * @param stand The stand.
+     * @return The forest holding the stand's trees.
+     */
+    public Forest region(Stand stand){
+        Forest shard = shards.get(stand);
+        if (shard == null){
+            shard = new Forest(shardName(stand));
+            shard.enableStatistics();
+            shards.put(stand, shard);
+        }
+        return shard;
+    }
+
+    /**
+     * Retrieves the shard of a stand.
+     *
+     * @param stand The stand.
+     * @return The forest holding the stand's trees, or null if the stand has none.
+     */
+    public Forest getRegion(Stand stand){
+        return shards.get(stand);
+    }
+
+    /**
+     * Finds the stands with a shard inside a rectangle of the grid.
+     *
+     * @param fromX The first column.
+     * @param fromY The first row.
+     * @param toX The last column.
+     * @param toY The last row.
+     * @return The stands from fromX,fromY to toX,toY inclusive, in order.
+     */
+    public List<Stand> standsWithin(int fromX, int fromY, int toX, int toY){
+        List<Stand> stands = new ArrayList<>();
+        if (fromX > toX || fromY > toY || toX < 0 || toY < 0){
+            return stands;
+        }
+        //Stands are ordered by column, so only the columns in range are visited
+        for (Stand stand : shards.navigableKeySet().subSet(new Stand(Math.max(0, fromX), 0), true,
+                new Stand(toX, Integer.MAX_VALUE), true)){
+            if (stand.getY() >= fromY && stand.getY() <= toY){
+                stands.add(stand);
+            }
+        }
+        return stands;
+    }//End of standsWithin method
+
+    /**
+     * Reads trees from a CSV file into a stand.
+     *
+     * @param stand The stand the trees grow in.
+     * @param csvFile The CSV file containing tree data.
+     * @return The malformed rows, with their line numbers, in file order.
+     */
+    public List<CsvRowError> readTreesFromCSV(Stand stand, File csvFile){
+        return region(stand).readTreesFromCSV(csvFile);
+    }
+
+    /**
+     * Plants random trees in a stand.
+     *
+     * @param stand The stand to plant.
+     * @param count The number of trees to plant.
+     */
+    public void addRandomTrees(Stand stand, int count){
+        region(stand).addRandomTrees(count);
+    }
+
+    /**
+     * Counts the trees in every stand.
+     *
+     * @return The number of trees in the forest.
+     */
+    public long getTreeCount(){
+        return getTreeCount(shards.keySet());
+    }
+
+    /**
+     * Counts the trees in some stands.
+     *
+     * @param stands The stands to count.
+     * @return The number of trees in those stands.
+     */
+    public long getTreeCount(Collection<Stand> stands){
+        long count = 0;
+        for (Forest shard : shardsOf(stands)){
+            count += shard.getTreeCount();
+        }
+        return count;
+    }
+
+    /**
+     * Grows some stands by a number of years, in parallel.
+     *
+     * @param stands The stands to grow.
+     * @param years The number of years to grow.
+     * @return The timing of each stand's shard, in stand order.
+     */
+    public List<ForestTiming> grow(Collection<Stand> stands, int years){
+        return scheduler.growAll(shardsOf(stands), years);
+    }
+
+    /**
+     * Reaps some stands of trees over a height, in parallel, counting the reaped trees of each stand.
+     *
+     * @param stands The stands to reap.
+     * @param height The height threshold for reaping trees.
+     * @return The timing of each stand's shard, with its reap summary, in stand order.
+     */
+    public List<ForestTiming> reap(Collection<Stand> stands, double height){
+        return scheduler.reapAll(shardsOf(stands), height);
+    }
+
+    /**
+     * Summarises some stands by combining their statistics, without scanning their trees.
+     *
+     * @param stands The stands to summarise.
+     * @return The summary of the trees in those stands.
+     */
+    public ForestSummary getSummary(Collection<Stand> stands){
+        List<ForestSummary> summaries = new ArrayList<>();
+        for (Forest shard : shardsOf(stands)){
+            summaries.add(shard.getSummary());
+        }
+        return ForestSummary.combine(summaries);
+    }
+
+    /**
+     * Finds the trees in some stands taller than a height.
+     *
+     * @param stands The stands to search.
+     * @param height The height to look for trees over.
+     * @return The rows found in each stand's shard, by stand, leaving out stands where none were found.
+     */
+    public Map<Stand, int[]> findTreesTallerThan(Collection<Stand> stands, double height){
+        Map<Stand, int[]> found = new LinkedHashMap<>();
+        for (Stand stand : sorted(stands)){
+            Forest shard = shards.get(stand);
+            int[] rows = shard == null ? new int[0] : shard.findTreesTallerThan(height);
+            if (rows.length > 0){
+                found.put(stand, rows);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the trees of a species planted within a range of years in some stands.
+     *
+     * @param stands The stands to search.
+     * @param species The species to look for.
+     * @param fromYear The earliest year of planting.
+     * @param toYear The latest year of planting.
+     * @return The rows found in each stand's shard, by stand, leaving out stands where none were found.
+     */
+    public Map<Stand, int[]> findTrees(Collection<Stand> stands, TreeSpecies species, int fromYear, int toYear){
+        Map<Stand, int[]> found = new LinkedHashMap<>();
+        for (Stand stand : sorted(stands)){
+            Forest shard = shards.get(stand);
+            int[] rows = shard == null ? new int[0] : shard.findTrees(species, fromYear, toYear);
+            if (rows.length > 0){
+                found.put(stand, rows);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Saves every stand's shard in parallel, then the list of stands.
+     *
+     * @return The timing of each stand's shard, in stand order.
+     * @throws IOException If the list of stands cannot be written.
+     */
+    public List<ForestTiming> saveAll() throws IOException {
+        List<ForestTiming> timings = scheduler.saveAll(shards.values());
+        List<String> lines = new ArrayList<>(shards.size());
+        for (Stand stand : shards.keySet()){
+            lines.add(stand.toString());
+        }
+        Files.write(standsPath(forestName), lines, StandardCharsets.UTF_8);
+        return timings;
+    }
+
+    /**
+     * Loads a regional forest saved with saveAll(): the list of stands, then each stand's shard.
+     *
+     * @param forestName The name of the forest.
+     * @param scheduler The scheduler to run work across stands on.
+     * @return The forest, without any stand whose shard could not be loaded.
+     * @throws IOException If the list of stands cannot be read.
+     */
+    public static RegionalForest load(String forestName, ForestScheduler scheduler) throws IOException {
+        RegionalForest forest = new RegionalForest(forestName, scheduler);
+        for (String line : Files.readAllLines(standsPath(forestName), StandardCharsets.UTF_8)){
+            if (line.isBlank()){
+                continue;
+            }
+            Stand stand = Stand.parse(line);
+            Forest shard = Forest.loadForest(forest.shardName(stand));
+            if (shard != null){
+                shard.enableStatistics();
+                forest.shards.put(stand, shard);
+            }
+        }
+        return forest;
+    }//End of load method
+
+    /**
+     * Builds the name of a stand's shard, which is also the name of its files.
+     */
+    private String shardName(Stand stand){
+        return forestName + "_" + stand.getX() + "_" + stand.getY();
+    }
+
+    private static Path standsPath(String forestName){
+        return Paths.get(forestName + ".stands");
+    }
+
+    /**
+     * Collects the shards of the stands that have one, in stand order.
+     */
+    private List<Forest> shardsOf(Collection<Stand> stands){
+        List<Forest> selected = new ArrayList<>(stands.size());
+        for (Stand stand : sorted(stands)){
+            Forest shard = shards.get(stand);
+            if (shard != null){
+                selected.add(shard);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Puts stands in order without repeats.
+     */
+    private static Collection<Stand> sorted(Collection<Stand> stands){
+        return new TreeSet<>(stands);
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+/**
+ * The RowBitmap class is a growable set of row indexes stored one bit per row. Unlike java.util.BitSet it can remove
+ * a row and shift every later row down by one, which is what cutting a tree does to the rows after it.
+ */
+public class RowBitmap {
+    private long[] words = new long[1];
+
+    /**
+     * Adds a row to the set.
+     *
+     * @param row The row to add.
+     */
+    public void set(int row){
+        int word = row >>> 6;
+        if (word >= words.length){
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+        }
+        words[word] |= 1L << row;
+    }
+
+    /**
+     * Removes a row from the set.
+     *
+     * @param row The row to remove.
+     */
+    public void clear(int row){
+        int word = row >>> 6;
+        if (word < words.length){
+            words[word] &= ~(1L << row);
+        }
+    }
+
+    /**
+     * Checks whether a row is in the set.
+     *
+     * @param row The row to check.
+     * @return True if the row is in the set.
+     */
+    public boolean get(int row){
+        int word = row >>> 6;
+        return word < words.length && (words[word] & (1L << row)) != 0;
+    }
+
+    /**
+     * Removes a row and moves every later row down by one, matching a row removed from the forest.
+     *
+     * @param row The row being removed.
+     */
+    public void removeAndShift(int row){
+        int word = row >>> 6;
+        if (word >= words.length){
+            return;
+        }
+        //Keep the bits below the row, then shift the rest of its word down by one
+        long low = words[word] & ((1L << row) - 1);
+        long high = (words[word] >>> 1) & ~((1L << row) - 1);
+        words[word] = low | high;
+        //Pull the lowest bit of every later word into the top of the word before it
+        for (int i = word + 1; i < words.length; i++){
+            words[i - 1] |= (words[i] & 1L) << 63;
+            words[i] >>>= 1;
+        }
+    }//End of removeAndShift method
+
+    /**
+     * Finds the first row in the set at or after the given row.
+     *
+     * @param from The row to start from.
+     * @return The next row in the set, or -1 if there is none.
+     */
+    public int nextSetBit(int from){
+        int word = from >>> 6;
+        if (word >= words.length){
+            return -1;
+        }
+        long bits = words[word] & (-1L << from);
+        while (true){
+            if (bits != 0){
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == words.length){
+                return -1;
+            }
+            bits = words[word];
+        }
+    }
+
+    /**
+     * Finds the first row not in the set at or after the given row.
+     *
+     * @param from The row to start from.
+     * @return The next row not in the set.
+     */
+    public int nextClearBit(int from){
+        int word = from >>> 6;
+        if (word >= words.length){
+            return from;
+        }
+        long bits = ~words[word] & (-1L << from);
+        while (true){
+            if (bits != 0){
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == words.length){
+                return word << 6;
+            }
+            bits = ~words[word];
+        }
+    }
+
+    /**
+     * Finds the row not in the set that has a given number of rows not in the set before it, counting whole words at
+     * a time.
+     *
+     * @param n The number of rows not in the set to skip, from 0.
+     * @return The (n + 1)th row not in the set.
+     */
+    public int nthClearBit(int n){
+        for (int word = 0; word < words.length; word++){
+            long bits = ~words[word];
+            int clear = Long.bitCount(bits);
+            if (n < clear){
+                //Drop the lowest n clear bits of the word
+                for (int i = 0; i < n; i++){
+                    bits &= bits - 1;
+                }
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            n -= clear;
+        }
+        return (words.length << 6) + n;
+    }//End of nthClearBit method
+
+    /**
+     * Counts the rows in the set.
+     *
+     * @return The number of rows in the set.
+     */
+    public int cardinality(){
+        int count = 0;
+        for (long word : words){
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * The Stand class is the grid position of one stand of a RegionalForest: a cell of the forest's grid, numbered from
+ * 0,0, whose trees are kept together in their own shard. Stands are ordered by column and then row.
+ */
+public final class Stand implements Comparable<Stand> {
+    private final int x;
+    private final int y;
+
+    /**
+     * Creates the stand at a grid position.
+     *
+     * @param x The column of the stand, from 0.
+     * @param y The row of the stand, from 0.
+     */
+    public Stand(int x, int y){
+        if (x < 0 || y < 0){
+            throw new IllegalArgumentException("Stand coordinates must not be negative: " + x + "," + y);
+        }
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Parses a stand written as "x,y", as toString() writes it.
+     *
+     * @param text The stand's coordinates.
+     * @return The stand.
+     * @throws IllegalArgumentException If the text is not two whole numbers separated by a comma.
+     */
+    public static Stand parse(String text){
+        int comma = text.indexOf(',');
+        if (comma < 0){
+            throw new IllegalArgumentException("Expected a stand as x,y, not " + text);
+        }
+        try {
+            return new Stand(Integer.parseInt(text.substring(0, comma).trim()),
+                    Integer.parseInt(text.substring(comma + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a stand as x,y, not " + text, e);
+        }
+    }
+
+    /**
+     * Getter method to get the column of the stand.
+     *
+     * @return The column, from 0.
+     */
+    public int getX(){
+        return this.x;
+    }
+
+    /**
+     * Getter method to get the row of the stand.
+     *
+     * @return The row, from 0.
+     */
+    public int getY(){
+        return this.y;
+    }
+
+    @Override
+    public int compareTo(Stand other){
+        int compare = Integer.compare(this.x, other.x);
+        return compare != 0 ? compare : Integer.compare(this.y, other.y);
+    }
+
+    @Override
+    public boolean equals(Object other){
+        return other instanceof Stand && ((Stand) other).x == this.x && ((Stand) other).y == this.y;
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * this.x + this.y;
+    }
+
+    /**
+     * Returns the stand's coordinates as "x,y".
+     *
+     * @return The coordinates.
+     */
+    public String toString(){
+        return this.x + "," + this.y;
+    }
+}
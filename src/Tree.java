@@ -10,8 +10,13 @@ enum TreeSpecies {
 /**
  * The Tree class represents a tree object with properties such as species, height, growth rate, and year of planting.
  * It provides methods to manipulate and retrieve the tree's properties.
+ * Forests store their trees in TreeColumns; a Tree is a standalone copy of one row, or a reusable flyweight
+ * that TreeColumns loads rows into.
  */
 public class Tree implements Serializable {
+    //Pinned so trees inside existing .db files keep deserializing as the class gains methods
+    private static final long serialVersionUID = -6536887772876190539L;
+
     //Private variables
     private TreeSpecies species;
     private double height, growthRate;
@@ -36,7 +41,35 @@ public class Tree implements Serializable {
      * Simulates the growth of the tree for one year by updating its height based on the growth rate.
      */
     public void growthForOneYear(){
-        height += height * growthRate;
+        height = heightAfterOneYear(height, growthRate);
+    }
+
+    /**
+     * Calculates the height of a tree after one year of growth. Every growth path uses this formula so that they
+     * all produce the same heights.
+     *
+     * @param height The current height of the tree.
+     * @param growthRate The growth rate of the tree.
+     * @return The height after one year.
+     */
+    static double heightAfterOneYear(double height, double growthRate){
+        return height + height * growthRate;
+    }
+
+    /**
+     * Calculates the height of a tree after several years of growth with the closed form
+     * height * (1 + growthRate)^years. A single year uses heightAfterOneYear so that it matches yearly growth exactly.
+     *
+     * @param height The current height of the tree.
+     * @param growthRate The growth rate of the tree.
+     * @param years The number of years to grow.
+     * @return The height after the given number of years.
+     */
+    static double heightAfterYears(double height, double growthRate, int years){
+        if (years == 1){
+            return heightAfterOneYear(height, growthRate);
+        }
+        return height * Math.pow(1 + growthRate, years);
     }
 
     /**
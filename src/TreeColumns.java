@@ -0,0 +1,330 @@
+import java.util.Arrays;
+
+/**
+ * The TreeColumns class stores the trees of a forest as parallel primitive columns (struct-of-arrays)
+ * instead of a list of Tree objects. Each tree is a row: its species ordinal, height, growth rate and year
+ * of planting live at the same index of four arrays, so whole-forest passes walk contiguous memory.
+ */
+public class TreeColumns implements TreeStore {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final TreeSpecies[] SPECIES = TreeSpecies.values();
+
+    //Package-private columns so forest passes can run directly over the primitives
+    byte[] species;
+    double[] heights;
+    double[] growthRates;
+    int[] years;
+    int size;
+
+    /**
+     * Creates an empty set of columns with a default capacity.
+     */
+    public TreeColumns(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty set of columns able to hold the given number of trees before growing.
+     *
+     * @param capacity The initial number of rows.
+     */
+    public TreeColumns(int capacity){
+        capacity = Math.max(capacity, 1);
+        this.species = new byte[capacity];
+        this.heights = new double[capacity];
+        this.growthRates = new double[capacity];
+        this.years = new int[capacity];
+    }
+
+    /**
+     * Retrieves the number of trees stored.
+     *
+     * @return The number of rows in use.
+     */
+    @Override
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * Checks whether there are no trees stored.
+     *
+     * @return True if no rows are in use.
+     */
+    @Override
+    public boolean isEmpty(){
+        return this.size == 0;
+    }
+
+    /**
+     * Makes sure the columns can hold at least the given number of rows without growing again.
+     *
+     * @param minCapacity The number of rows required.
+     */
+    public void ensureCapacity(int minCapacity){
+        int capacity = this.heights.length;
+        if (minCapacity <= capacity){
+            return;
+        }
+        //Grow by half again, or to the requested size if that is larger
+        int newCapacity = Math.max(minCapacity, capacity + (capacity >> 1));
+        this.species = Arrays.copyOf(this.species, newCapacity);
+        this.heights = Arrays.copyOf(this.heights, newCapacity);
+        this.growthRates = Arrays.copyOf(this.growthRates, newCapacity);
+        this.years = Arrays.copyOf(this.years, newCapacity);
+    }//End of ensureCapacity method
+
+    /**
+     * Appends a tree to the end of the columns.
+     *
+     * @param species The species of the tree.
+     * @param height The height of the tree.
+     * @param growthRate The growth rate of the tree.
+     * @param yearOfPlanting The year the tree was planted.
+     */
+    @Override
+    public void add(TreeSpecies species, double height, double growthRate, int yearOfPlanting){
+        ensureCapacity(this.size + 1);
+        set(this.size, species, height, growthRate, yearOfPlanting);
+        this.size++;
+    }
+
+    /**
+     * Appends rows to the end of the columns for the caller to fill in with set().
+     *
+     * @param count The number of rows to append.
+     * @return The index of the first new row.
+     */
+    @Override
+    public int extend(int count){
+        ensureCapacity(this.size + count);
+        int first = this.size;
+        this.size += count;
+        return first;
+    }
+
+    /**
+     * Appends a tree to the end of the columns.
+     *
+     * @param tree The tree whose values are copied into the new row.
+     */
+    public void add(Tree tree){
+        add(tree.getSpecies(), tree.getHeight(), tree.getGrowthRate(), tree.getYearOfPlanting());
+    }
+
+    /**
+     * Appends every row of another set of columns to the end of these columns.
+     *
+     * @param other The columns whose rows are copied.
+     */
+    public void addAll(TreeColumns other){
+        int count = other.size;
+        ensureCapacity(this.size + count);
+        System.arraycopy(other.species, 0, this.species, this.size, count);
+        System.arraycopy(other.heights, 0, this.heights, this.size, count);
+        System.arraycopy(other.growthRates, 0, this.growthRates, this.size, count);
+        System.arraycopy(other.years, 0, this.years, this.size, count);
+        this.size += count;
+    }//End of addAll method
+
+    /**
+     * Overwrites the row at the specified index.
+     *
+     * @param index The row to overwrite.
+     * @param species The species of the tree.
+     * @param height The height of the tree.
+     * @param growthRate The growth rate of the tree.
+     * @param yearOfPlanting The year the tree was planted.
+     */
+    @Override
+    public void set(int index, TreeSpecies species, double height, double growthRate, int yearOfPlanting){
+        this.species[index] = (byte) species.ordinal();
+        this.heights[index] = height;
+        this.growthRates[index] = growthRate;
+        this.years[index] = yearOfPlanting;
+    }
+
+    /**
+     * Removes the row at the specified index, shifting later rows down by one.
+     *
+     * @param index The row to remove.
+     */
+    @Override
+    public void remove(int index){
+        int moved = this.size - index - 1;
+        if (moved > 0){
+            System.arraycopy(this.species, index + 1, this.species, index, moved);
+            System.arraycopy(this.heights, index + 1, this.heights, index, moved);
+            System.arraycopy(this.growthRates, index + 1, this.growthRates, index, moved);
+            System.arraycopy(this.years, index + 1, this.years, index, moved);
+        }
+        this.size--;
+    }//End of remove method
+
+    /**
+     * Removes every row in a set in a single pass, copying each run of kept rows down over the removed ones.
+     *
+     * @param rows The rows to remove.
+     */
+    @Override
+    public void removeAll(RowBitmap rows){
+        int kept = rows.nextSetBit(0);
+        if (kept < 0 || kept >= this.size){
+            return;
+        }
+        int from = rows.nextClearBit(kept);
+        while (from < this.size){
+            int to = rows.nextSetBit(from);
+            if (to < 0 || to > this.size){
+                to = this.size;
+            }
+            int length = to - from;
+            System.arraycopy(this.species, from, this.species, kept, length);
+            System.arraycopy(this.heights, from, this.heights, kept, length);
+            System.arraycopy(this.growthRates, from, this.growthRates, kept, length);
+            System.arraycopy(this.years, from, this.years, kept, length);
+            kept += length;
+            from = to < this.size ? rows.nextClearBit(to) : this.size;
+        }
+        this.size = kept;
+    }//End of removeAll method
+
+    /**
+     * Retrieves the species stored at the specified row.
+     *
+     * @param index The row to read.
+     * @return The species of the tree.
+     */
+    @Override
+    public TreeSpecies getSpecies(int index){
+        return SPECIES[this.species[index]];
+    }
+
+    /**
+     * Retrieves the height stored at the specified row.
+     *
+     * @param index The row to read.
+     * @return The height of the tree.
+     */
+    @Override
+    public double getHeight(int index){
+        return this.heights[index];
+    }
+
+    /**
+     * Sets the height stored at the specified row.
+     *
+     * @param index The row to update.
+     * @param height The height to set.
+     */
+    @Override
+    public void setHeight(int index, double height){
+        this.heights[index] = height;
+    }
+
+    /**
+     * Retrieves the growth rate stored at the specified row.
+     *
+     * @param index The row to read.
+     * @return The growth rate of the tree.
+     */
+    @Override
+    public double getGrowthRate(int index){
+        return this.growthRates[index];
+    }
+
+    /**
+     * Retrieves the year of planting stored at the specified row.
+     *
+     * @param index The row to read.
+     * @return The year of planting of the tree.
+     */
+    @Override
+    public int getYearOfPlanting(int index){
+        return this.years[index];
+    }
+
+    /**
+     * Grows the trees in a range of rows by one year.
+     *
+     * @param from The first row to grow.
+     * @param to The row after the last one to grow.
+     */
+    @Override
+    public void growRange(int from, int to){
+        ColumnKernels.DEFAULT.grow(this.heights, this.growthRates, from, to);
+    }
+
+    /**
+     * Grows the trees in a range of rows by several years using the closed form height * (1 + growthRate)^years.
+     *
+     * @param from The first row to grow.
+     * @param to The row after the last one to grow.
+     * @param years The number of years to grow.
+     */
+    @Override
+    public void growRange(int from, int to, int years){
+        if (years == 1){
+            growRange(from, to);
+            return;
+        }
+        double[] heights = this.heights;
+        double[] growthRates = this.growthRates;
+        for (int index = from; index < to; index++){
+            heights[index] = Tree.heightAfterYears(heights[index], growthRates[index], years);
+        }
+    }
+
+    /**
+     * Adds up the heights in a range of rows.
+     *
+     * @param from The first row to add.
+     * @param to The row after the last one to add.
+     * @return The total height of the rows.
+     */
+    @Override
+    public double sumHeights(int from, int to){
+        return ColumnKernels.DEFAULT.sum(this.heights, from, to);
+    }
+
+    /**
+     * Finds the first row in a range taller than a height.
+     *
+     * @param from The first row to look at.
+     * @param to The row after the last one to look at.
+     * @param height The height to look for trees over.
+     * @return The first row taller than the height, or to if there is none.
+     */
+    @Override
+    public int findTallerThan(int from, int to, double height){
+        return ColumnKernels.DEFAULT.findTallerThan(this.heights, from, to, height);
+    }
+
+    /**
+     * Loads the row at the specified index into a reusable Tree, so callers can walk the columns
+     * through the Tree API without allocating one object per row.
+     *
+     * @param index The row to read.
+     * @param flyweight The tree to overwrite with the row's values.
+     * @return The same tree that was passed in.
+     */
+    @Override
+    public Tree load(int index, Tree flyweight){
+        flyweight.setSpecies(SPECIES[this.species[index]]);
+        flyweight.setHeight(this.heights[index]);
+        flyweight.setGrowthRate(this.growthRates[index]);
+        flyweight.setYearOfPlanting(this.years[index]);
+        return flyweight;
+    }
+
+    /**
+     * Creates a standalone copy of the row at the specified index.
+     *
+     * @param index The row to read.
+     * @return A new Tree holding the row's values.
+     */
+    @Override
+    public Tree get(int index){
+        return new Tree(SPECIES[this.species[index]], this.heights[index], this.growthRates[index], this.years[index]);
+    }
+}
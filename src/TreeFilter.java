@@ -0,0 +1,73 @@
+/**
+ * The TreeFilter interface picks out trees by their values, such as every tree of a species or every tree in a range
+ * of heights, for Forest.cutTrees(TreeFilter) to cut them all at once. A filter is tested on a row's columns directly,
+ * so testing a tree allocates nothing. Filters can be combined with and().
+ */
+@FunctionalInterface
+public interface TreeFilter {
+    /**
+     * Checks whether a tree is picked out by the filter.
+     *
+     * @param species The species of the tree.
+     * @param height The height of the tree.
+     * @param growthRate The growth rate of the tree.
+     * @param yearOfPlanting The year the tree was planted.
+     * @return True if the tree matches.
+     */
+    boolean test(TreeSpecies species, double height, double growthRate, int yearOfPlanting);
+
+    /**
+     * Combines this filter with another, so that a tree must match both.
+     *
+     * @param other The other filter.
+     * @return The combined filter.
+     */
+    default TreeFilter and(TreeFilter other){
+        return (species, height, growthRate, yearOfPlanting) -> test(species, height, growthRate, yearOfPlanting)
+                && other.test(species, height, growthRate, yearOfPlanting);
+    }
+
+    /**
+     * Picks out the trees of one species.
+     *
+     * @param species The species to match.
+     * @return The filter.
+     */
+    static TreeFilter species(TreeSpecies species){
+        return (treeSpecies, height, growthRate, yearOfPlanting) -> treeSpecies == species;
+    }
+
+    /**
+     * Picks out the trees within a range of heights.
+     *
+     * @param min The lowest height, inclusive.
+     * @param max The greatest height, inclusive.
+     * @return The filter.
+     */
+    static TreeFilter heightBetween(double min, double max){
+        return (species, height, growthRate, yearOfPlanting) -> height >= min && height <= max;
+    }
+
+    /**
+     * Picks out the trees planted within a range of years.
+     *
+     * @param fromYear The earliest year of planting, inclusive.
+     * @param toYear The latest year of planting, inclusive.
+     * @return The filter.
+     */
+    static TreeFilter plantedBetween(int fromYear, int toYear){
+        return (species, height, growthRate, yearOfPlanting) -> yearOfPlanting >= fromYear && yearOfPlanting <= toYear;
+    }
+
+    /**
+     * Picks out the trees within a range of ages this year.
+     *
+     * @param minAge The youngest age in years, inclusive.
+     * @param maxAge The oldest age in years, inclusive.
+     * @return The filter.
+     */
+    static TreeFilter ageBetween(int minAge, int maxAge){
+        int currentYear = TreeGenerator.currentYear();
+        return plantedBetween(currentYear - maxAge, currentYear - minAge);
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * The TreeFormat class writes tree values into a reusable StringBuilder without going through String.format.
+ * Numbers come out exactly as String.format("%.Nf") prints them: Formatter rounds the shortest decimal digits of a
+ * double half up, so most values are rounded directly and only values close to a tie are rounded from the digits of
+ * Double.toString.
+ */
+public final class TreeFormat {
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+    private static final double FAST_LIMIT = 1e15;
+
+    private TreeFormat(){
+    }
+
+    /**
+     * Appends a tree in the format of Tree.getReapingFormat(): species, year of planting, height and growth rate.
+     *
+     * @param out The builder to append to.
+     * @param species The species of the tree.
+     * @param yearOfPlanting The year the tree was planted.
+     * @param height The height of the tree.
+     * @param growthRate The growth rate of the tree.
+     * @return The same builder.
+     */
+    public static StringBuilder appendReapingFormat(StringBuilder out, TreeSpecies species, int yearOfPlanting,
+                                                    double height, double growthRate){
+        out.append(species).append(' ').append(yearOfPlanting).append(' ');
+        appendFixed(out, height, 2).append("' ");
+        return appendFixed(out, growthRate * 100, 1).append('%');
+    }
+
+    /**
+     * Appends a number with a fixed number of decimals, as String.format("%.Nf") would.
+     *
+     * @param out The builder to append to.
+     * @param value The number to append.
+     * @param decimals The number of decimals, from 0 to 9.
+     * @return The same builder.
+     */
+    public static StringBuilder appendFixed(StringBuilder out, double value, int decimals){
+        if (decimals < 0 || decimals >= POWERS_OF_TEN.length){
+            throw new IllegalArgumentException("Decimals must be between 0 and 9: " + decimals);
+        }
+        if (Double.isNaN(value)){
+            return out.append("NaN");
+        }
+        //Formatter keeps the sign of negative numbers that round to zero, and of negative zero
+        if (value < 0 || (value == 0 && 1 / value < 0)){
+            out.append('-');
+            value = -value;
+        }
+        if (Double.isInfinite(value)){
+            return out.append("Infinity");
+        }
+
+        long scale = POWERS_OF_TEN[decimals];
+        double scaled = value * scale;
+        if (scaled < FAST_LIMIT){
+            double whole = Math.floor(scaled);
+            double fraction = scaled - whole;
+            //Away from a tie, rounding the double and rounding its shortest digits give the same answer
+            if (Math.abs(fraction - 0.5) > 1e-9 * Math.max(1, scaled)){
+                long units = (long) whole + (fraction > 0.5 ? 1 : 0);
+                return appendUnits(out, units, scale, decimals);
+            }
+        }
+        return appendFromDigits(out, Double.toString(value), decimals);
+    }//End of appendFixed method
+
+    /**
+     * Appends a whole number of 10^-decimals units as a decimal.
+     */
+    private static StringBuilder appendUnits(StringBuilder out, long units, long scale, int decimals){
+        out.append(units / scale);
+        if (decimals > 0){
+            out.append('.');
+            long fraction = units % scale;
+            for (long digit = scale / 10; digit > 0; digit /= 10){
+                out.append((char) ('0' + fraction / digit % 10));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Rounds the digits of Double.toString half up, the way Formatter does, and appends the result.
+     */
+    private static StringBuilder appendFromDigits(StringBuilder out, String text, int decimals){
+        //Split "123.45" or "1.2345E-7" into its digits and the position of the decimal point
+        int exponentAt = text.indexOf('E');
+        String mantissa = exponentAt < 0 ? text : text.substring(0, exponentAt);
+        int point = mantissa.indexOf('.');
+        char[] digits = new char[mantissa.length() + 1];
+        int count = 0;
+        //Leave a leading zero for a carry out of the first digit
+        digits[count++] = '0';
+        for (int i = 0; i < mantissa.length(); i++){
+            if (i != point){
+                digits[count++] = mantissa.charAt(i);
+            }
+        }
+        int pointAt = 1 + point + (exponentAt < 0 ? 0 : Integer.parseInt(text.substring(exponentAt + 1)));
+
+        //Round half up on the first digit that is dropped
+        int roundAt = pointAt + decimals;
+        if (roundAt < 1){
+            count = 1;
+        } else if (roundAt < count){
+            boolean carry = digits[roundAt] >= '5';
+            count = roundAt;
+            for (int i = count - 1; carry && i >= 0; i--){
+                carry = digits[i] == '9';
+                digits[i] = carry ? '0' : (char) (digits[i] + 1);
+            }
+        }
+
+        //Write the integer part without leading zeros, then exactly the requested decimals
+        int first = 0;
+        while (first < pointAt - 1 && first < count && digits[first] == '0'){
+            first++;
+        }
+        if (pointAt <= first){
+            out.append('0');
+        }
+        for (int i = first; i < pointAt; i++){
+            out.append(i < count ? digits[i] : '0');
+        }
+        if (decimals > 0){
+            out.append('.');
+            for (int i = pointAt; i < pointAt + decimals; i++){
+                out.append(i >= 0 && i < count ? digits[i] : '0');
+            }
+        }
+        return out;
+    }//End of appendFromDigits method
+}
@@ -0,0 +1,203 @@
+import java.time.Year;
+import java.time.ZoneId;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The TreeGenerator class draws random trees from a seeded SplittableRandom, so a forest given the same seed plants
+ * the same trees. Bulk planting splits the generator into one stream per fixed-size chunk of rows before any work
+ * starts, so the trees planted do not depend on how many threads fill the chunks or in which order.
+ */
+public class TreeGenerator {
+    /**
+     * Number of rows planted from each split stream.
+     */
+    public static final int PLANTING_CHUNK = 1 << 12;
+
+    //First year a planted tree can date from
+    private static final int FIRST_PLANTING_YEAR = 2000;
+    //Replacement trees are planted up to this many years before the current year
+    private static final int REPLACEMENT_AGE = 20;
+    private static final TreeSpecies[] SPECIES = TreeSpecies.values();
+
+    private static volatile CachedYear cachedYear;
+
+    private final SplittableRandom random;
+
+    /**
+     * Creates a generator with a random seed.
+     */
+    public TreeGenerator(){
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Creates a generator from a seed.
+     *
+     * @param seed The seed; generators with the same seed produce the same trees.
+     */
+    public TreeGenerator(long seed){
+        this(new SplittableRandom(seed));
+    }
+
+    private TreeGenerator(SplittableRandom random){
+        this.random = random;
+    }
+
+    /**
+     * Retrieves the current year without asking the clock and time zone rules every time. The year is looked up
+     * again once the cached one has ended.
+     *
+     * @return The current year.
+     */
+    public static int currentYear(){
+        CachedYear cached = cachedYear;
+        long now = System.currentTimeMillis();
+        if (cached == null || now < cached.startsAt || now >= cached.endsAt){
+            cached = new CachedYear(Year.now());
+            cachedYear = cached;
+        }
+        return cached.year;
+    }
+
+    /**
+     * Draws a seed for another generator, such as the one a reap plants its replacement trees from.
+     *
+     * @return A new seed.
+     */
+    public long nextSeed(){
+        return random.nextLong();
+    }
+
+    /**
+     * Splits off an independent generator, for use on another thread.
+     *
+     * @return A new generator whose trees do not overlap this one's.
+     */
+    public TreeGenerator split(){
+        return new TreeGenerator(random.split());
+    }
+
+    /**
+     * Fills a tree with the values of a newly planted tree, as addRandomTree() plants: any species, planted between
+     * 2000 and the current year, 10 to 20 high and growing 10% to 20% a year.
+     *
+     * @param tree The tree to overwrite.
+     * @param currentYear The current year.
+     * @return The same tree that was passed in.
+     */
+    public Tree nextPlanting(Tree tree, int currentYear){
+        tree.setSpecies(SPECIES[random.nextInt(SPECIES.length)]);
+        tree.setYearOfPlanting(random.nextInt(currentYear - FIRST_PLANTING_YEAR + 1) + FIRST_PLANTING_YEAR);
+        tree.setHeight(random.nextDouble() * 10.0 + 10.0);
+        tree.setGrowthRate(random.nextDouble() * 0.1 + 0.1);
+        return tree;
+    }
+
+    /**
+     * Fills a tree with the values of a tree replacing a reaped one: any species, planted in the last 20 years,
+     * 10 to 20 high and growing 10% to 20% a year.
+     *
+     * @param tree The tree to overwrite.
+     * @param currentYear The current year.
+     * @return The same tree that was passed in.
+     */
+    public Tree nextReplacement(Tree tree, int currentYear){
+        //The order of the draws is part of the journal format, since reaps are replayed from their seed
+        tree.setSpecies(SPECIES[random.nextInt(SPECIES.length)]);
+        tree.setYearOfPlanting(currentYear - random.nextInt(REPLACEMENT_AGE + 1));
+        tree.setHeight(10.0 + random.nextDouble() * 10.0);
+        tree.setGrowthRate(0.1 + random.nextDouble() * 0.1);
+        return tree;
+    }
+
+    /**
+     * Plants new trees, as nextPlanting() draws them, over a range of rows that has already been added to a store.
+     * Ranges at or above the engine's parallelism threshold are filled in parallel on the engine's pool.
+     *
+     * @param trees The store to fill.
+     * @param from The first row to fill.
+     * @param to The row after the last one to fill.
+     * @param currentYear The current year.
+     * @param engine The engine whose pool and threshold to use.
+     */
+    public void plant(TreeStore trees, int from, int to, int currentYear, GrowthEngine engine){
+        int chunks = (int) (((long) to - from + PLANTING_CHUNK - 1) / PLANTING_CHUNK);
+        //Split every stream up front, in chunk order, so threads cannot change which chunk gets which stream
+        TreeGenerator[] streams = new TreeGenerator[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++){
+            streams[chunk] = split();
+        }
+        ForkJoinPool pool = engine.getPool();
+        PlantingTask task = new PlantingTask(trees, streams, from, to, currentYear, 0, chunks);
+        if (to - from < engine.getParallelThreshold() || pool.getParallelism() < 2){
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+    }//End of plant method
+
+    /**
+     * Fills the rows of one chunk from its own stream.
+     */
+    private static void plantChunk(TreeStore trees, TreeGenerator stream, int from, int to, int currentYear){
+        Tree tree = new Tree(null, 0, 0, 0);
+        for (int row = from; row < to; row++){
+            stream.nextPlanting(tree, currentYear);
+            trees.set(row, tree.getSpecies(), tree.getHeight(), tree.getGrowthRate(), tree.getYearOfPlanting());
+        }
+    }
+
+    /**
+     * Fork-join task that splits a range of chunks in half until it has one chunk left.
+     */
+    private static final class PlantingTask extends RecursiveAction {
+        private static final long serialVersionUID = 2784249659845191438L;
+
+        private final TreeStore trees;
+        private final TreeGenerator[] streams;
+        private final int from, to, currentYear, firstChunk, endChunk;
+
+        PlantingTask(TreeStore trees, TreeGenerator[] streams, int from, int to, int currentYear,
+                     int firstChunk, int endChunk){
+            this.trees = trees;
+            this.streams = streams;
+            this.from = from;
+            this.to = to;
+            this.currentYear = currentYear;
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute(){
+            if (endChunk - firstChunk > 1 && getPool() != null){
+                int middle = (firstChunk + endChunk) >>> 1;
+                invokeAll(new PlantingTask(trees, streams, from, to, currentYear, firstChunk, middle),
+                        new PlantingTask(trees, streams, from, to, currentYear, middle, endChunk));
+                return;
+            }
+            for (int chunk = firstChunk; chunk < endChunk; chunk++){
+                int start = from + chunk * PLANTING_CHUNK;
+                plantChunk(trees, streams[chunk], start, Math.min(to, start + PLANTING_CHUNK), currentYear);
+            }
+        }
+    }//End of PlantingTask class
+
+    /**
+     * A year along with the instants it starts and ends at in the default time zone.
+     */
+    private static final class CachedYear {
+        final int year;
+        final long startsAt;
+        final long endsAt;
+
+        CachedYear(Year year){
+            ZoneId zone = ZoneId.systemDefault();
+            this.year = year.getValue();
+            this.startsAt = year.atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            this.endsAt = year.plusYears(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+    }
+}
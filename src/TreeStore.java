@@ -0,0 +1,161 @@
+/**
+ * The TreeStore interface is the storage behind a forest: a sequence of tree rows, each with a species, height,
+ * growth rate and year of planting. TreeColumns keeps the rows in on-heap arrays and MappedTreeStore keeps them in a
+ * memory-mapped snapshot file. The range methods let each store run whole-forest passes over its own layout.
+ */
+public interface TreeStore {
+    /**
+     * Retrieves the number of trees stored.
+     *
+     * @return The number of rows in use.
+     */
+    int size();
+
+    /**
+     * Checks whether there are no trees stored.
+     *
+     * @return True if no rows are in use.
+     */
+    boolean isEmpty();
+
+    /**
+     * Appends a tree to the end of the store.
+     *
+     * @param species The species of the tree.
+     * @param height The height of the tree.
+     * @param growthRate The growth rate of the tree.
+     * @param yearOfPlanting The year the tree was planted.
+     * @throws UnsupportedOperationException If the store cannot change size.
+     */
+    void add(TreeSpecies species, double height, double growthRate, int yearOfPlanting);
+
+    /**
+     * Appends rows to the end of the store for the caller to fill in with set().
+     *
+     * @param count The number of rows to append.
+     * @return The index of the first new row.
+     * @throws UnsupportedOperationException If the store cannot change size.
+     */
+    int extend(int count);
+
+    /**
+     * Overwrites the row at the specified index.
+     *
+     * @param index The row to overwrite.
+     * @param species The species of the tree.
+     * @param height The height of the tree.
+     * @param growthRate The growth rate of the tree.
+     * @param yearOfPlanting The year the tree was planted.
+     */
+    void set(int index, TreeSpecies species, double height, double growthRate, int yearOfPlanting);
+
+    /**
+     * Removes the row at the specified index, shifting later rows down by one.
+     *
+     * @param index The row to remove.
+     * @throws UnsupportedOperationException If the store cannot change size.
+     */
+    void remove(int index);
+
+    /**
+     * Removes every row in a set in a single pass, shifting the remaining rows down and keeping their order.
+     *
+     * @param rows The rows to remove.
+     * @throws UnsupportedOperationException If the store cannot change size.
+     */
+    void removeAll(RowBitmap rows);
+
+    /**
+     * Retrieves the species stored at the specified row.
+     *
+     * @param index The row to read.
+     * @return The species of the tree.
+     */
+    TreeSpecies getSpecies(int index);
+
+    /**
+     * Retrieves the height stored at the specified row.
+     *
+     * @param index The row to read.
+     * @return The height of the tree.
+     */
+    double getHeight(int index);
+
+    /**
+     * Sets the height stored at the specified row.
+     *
+     * @param index The row to update.
+     * @param height The height to set.
+     */
+    void setHeight(int index, double height);
+
+    /**
+     * Retrieves the growth rate stored at the specified row.
+     *
+     * @param index The row to read.
+     * @return The growth rate of the tree.
+     */
+    double getGrowthRate(int index);
+
+    /**
+     * Retrieves the year of planting stored at the specified row.
+     *
+     * @param index The row to read.
+     * @return The year of planting of the tree.
+     */
+    int getYearOfPlanting(int index);
+
+    /**
+     * Grows the trees in a range of rows by one year.
+     *
+     * @param from The first row to grow.
+     * @param to The row after the last one to grow.
+     */
+    void growRange(int from, int to);
+
+    /**
+     * Grows the trees in a range of rows by several years using the closed form height * (1 + growthRate)^years.
+     *
+     * @param from The first row to grow.
+     * @param to The row after the last one to grow.
+     * @param years The number of years to grow.
+     */
+    void growRange(int from, int to, int years);
+
+    /**
+     * Adds up the heights in a range of rows.
+     *
+     * @param from The first row to add.
+     * @param to The row after the last one to add.
+     * @return The total height of the rows.
+     */
+    double sumHeights(int from, int to);
+
+    /**
+     * Finds the first row in a range taller than a height.
+     *
+     * @param from The first row to look at.
+     * @param to The row after the last one to look at.
+     * @param height The height to look for trees over.
+     * @return The first row taller than the height, or to if there is none.
+     */
+    int findTallerThan(int from, int to, double height);
+
+    /**
+     * Loads the row at the specified index into a reusable Tree, so callers can walk the store through the Tree API
+     * without allocating one object per row.
+     *
+     * @param index The row to read.
+     * @param flyweight The tree to overwrite with the row's values.
+     * @return The same tree that was passed in.
+     */
+    Tree load(int index, Tree flyweight);
+
+    /**
+     * Creates a standalone copy of the row at the specified index.
+     *
+     * @param index The row to read.
+     * @return A new Tree holding the row's values.
+     */
+    Tree get(int index);
+}
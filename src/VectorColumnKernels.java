@@ -0,0 +1,153 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorColumnKernels class runs the column kernels with the incubating Vector API, at the widest register the
+ * CPU prefers. It is only loaded by ColumnKernels.forName() once the jdk.incubator.vector module is known to be
+ * present, and gives exactly the results of the scalar kernels.
+ * <p>
+ * The Vector API only compiles a loop down to SIMD instructions when its species is a constant, so each kernel is
+ * written once over a species passed in and called with one of the three fixed species by the register width.
+ */
+final class VectorColumnKernels extends ColumnKernels {
+    private final int bits;
+
+    VectorColumnKernels(){
+        this(DoubleVector.SPECIES_PREFERRED.vectorBitSize());
+    }
+
+    /**
+     * Creates kernels that run at a given register width rather than the preferred one, so they can be checked
+     * against the scalar kernels at every width whatever the CPU.
+     *
+     * @param bits The register width in bits: 128, 256 or 512.
+     */
+    VectorColumnKernels(int bits){
+        //The sum keeps eight stripes, so the register must hold a whole number of them
+        if (bits != 128 && bits != 256 && bits != 512){
+            throw new IllegalStateException("Unsupported vector width " + bits);
+        }
+        this.bits = bits;
+    }
+
+    @Override
+    public String getName(){
+        return "vector-" + bits;
+    }
+
+    @Override
+    public void grow(double[] heights, double[] growthRates, int from, int to){
+        int index;
+        switch (bits){
+            case 128:
+                index = grow(DoubleVector.SPECIES_128, heights, growthRates, from, to);
+                break;
+            case 256:
+                index = grow(DoubleVector.SPECIES_256, heights, growthRates, from, to);
+                break;
+            default:
+                index = grow(DoubleVector.SPECIES_512, heights, growthRates, from, to);
+        }
+        super.grow(heights, growthRates, index, to);
+    }
+
+    @Override
+    public double sum(double[] heights, int from, int to){
+        double[] s = new double[STRIPES];
+        int index;
+        switch (bits){
+            case 128:
+                index = sum(DoubleVector.SPECIES_128, heights, from, to, s);
+                break;
+            case 256:
+                index = sum(DoubleVector.SPECIES_256, heights, from, to, s);
+                break;
+            default:
+                index = sum(DoubleVector.SPECIES_512, heights, from, to, s);
+        }
+        double total = combine(s[0], s[1], s[2], s[3], s[4], s[5], s[6], s[7]);
+        for (; index < to; index++){
+            total += heights[index];
+        }
+        return total;
+    }//End of sum method
+
+    @Override
+    public int findTallerThan(double[] heights, int from, int to, double height){
+        int index;
+        switch (bits){
+            case 128:
+                index = findTallerThan(DoubleVector.SPECIES_128, heights, from, to, height);
+                break;
+            case 256:
+                index = findTallerThan(DoubleVector.SPECIES_256, heights, from, to, height);
+                break;
+            default:
+                index = findTallerThan(DoubleVector.SPECIES_512, heights, from, to, height);
+        }
+        return index < 0 ? super.findTallerThan(heights, -index - 1, to, height) : index;
+    }
+
+    /**
+     * Grows whole registers of rows, returning the first row left for the scalar loop.
+     */
+    private static int grow(VectorSpecies<Double> species, double[] heights, double[] growthRates, int from, int to){
+        int lanes = species.length();
+        int index = from;
+        for (int bound = from + species.loopBound(to - from); index < bound; index += lanes){
+            DoubleVector height = DoubleVector.fromArray(species, heights, index);
+            DoubleVector growthRate = DoubleVector.fromArray(species, growthRates, index);
+            //height + height * growthRate, rounded after the multiply as Tree.heightAfterOneYear is
+            height.add(height.mul(growthRate)).intoArray(heights, index);
+        }
+        return index;
+    }
+
+    /**
+     * Adds whole groups of eight rows into the stripes, returning the first row left for the scalar loop.
+     */
+    private static int sum(VectorSpecies<Double> species, double[] heights, int from, int to, double[] stripes){
+        int lanes = species.length();
+        //Each accumulator holds lanes consecutive stripes, so together they hold all eight
+        DoubleVector a = DoubleVector.zero(species);
+        DoubleVector b = a, c = a, d = a;
+        int index = from;
+        for (; index <= to - STRIPES; index += STRIPES){
+            a = a.add(DoubleVector.fromArray(species, heights, index));
+            if (lanes < 8){
+                b = b.add(DoubleVector.fromArray(species, heights, index + lanes));
+            }
+            if (lanes < 4){
+                c = c.add(DoubleVector.fromArray(species, heights, index + 4));
+                d = d.add(DoubleVector.fromArray(species, heights, index + 6));
+            }
+        }
+        a.intoArray(stripes, 0);
+        if (lanes < 8){
+            b.intoArray(stripes, lanes);
+        }
+        if (lanes < 4){
+            c.intoArray(stripes, 4);
+            d.intoArray(stripes, 6);
+        }
+        return index;
+    }//End of sum method
+
+    /**
+     * Looks through whole registers of rows, returning the first row taller than the height, or -1 minus the first
+     * row left for the scalar loop if none of them is.
+     */
+    private static int findTallerThan(VectorSpecies<Double> species, double[] heights, int from, int to,
+                                      double height){
+        int lanes = species.length();
+        int index = from;
+        for (int bound = from + species.loopBound(to - from); index < bound; index += lanes){
+            int lane = DoubleVector.fromArray(species, heights, index).compare(VectorOperators.GT, height).firstTrue();
+            if (lane < lanes){
+                return index + lane;
+            }
+        }
+        return -index - 1;
+    }
+}
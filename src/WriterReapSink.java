@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * The WriterReapSink class writes the same lines as ReapSink.CONSOLE to a Writer, formatting them into one reusable
+ * buffer and handing the buffer to the writer only when it fills up or the reap finishes.
+ */
+public class WriterReapSink implements ReapSink {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final Writer writer;
+    private final int bufferSize;
+    private final StringBuilder buffer;
+
+    /**
+     * Creates a sink writing to the given writer with a default buffer size.
+     *
+     * @param writer The writer to write the lines to.
+     */
+    public WriterReapSink(Writer writer){
+        this(writer, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a sink writing to the given writer.
+     *
+     * @param writer The writer to write the lines to.
+     * @param bufferSize The number of characters to collect before writing them.
+     */
+    public WriterReapSink(Writer writer, int bufferSize){
+        this.writer = writer;
+        this.bufferSize = bufferSize;
+        this.buffer = new StringBuilder(bufferSize + 128);
+    }
+
+    @Override
+    public void treeReaped(Tree reaped, Tree replacement){
+        buffer.append("Reaping the tall tree  ");
+        TreeFormat.appendReapingFormat(buffer, reaped.getSpecies(), reaped.getYearOfPlanting(), reaped.getHeight(),
+                reaped.getGrowthRate()).append(System.lineSeparator());
+        buffer.append("Replaced with new tree ");
+        TreeFormat.appendReapingFormat(buffer, replacement.getSpecies(), replacement.getYearOfPlanting(),
+                replacement.getHeight(), replacement.getGrowthRate()).append(System.lineSeparator());
+        if (buffer.length() >= bufferSize){
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Writes out the buffered lines and flushes the writer.
+     */
+    @Override
+    public void flush(){
+        writeBuffer();
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeBuffer(){
+        try {
+            writer.append(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the background sink delivers every tree in order, and that a target that throws neither stalls the reap
+ * nor hangs flush() and close(), which throw the target's error instead.
+ */
+class AsyncReapSinkTest {
+    //More trees than the pool of batches holds, so a dead worker would stall the reap
+    private static final int TREES = 20_000;
+
+    @Test
+    void deliversEveryTree(){
+        StringWriter expected = new StringWriter();
+        WriterReapSink direct = new WriterReapSink(expected, 256);
+        StringWriter actual = new StringWriter();
+        try (AsyncReapSink sink = new AsyncReapSink(new WriterReapSink(actual, 256))){
+            for (int i = 0; i < TREES; i++){
+                Tree reaped = new Tree(TreeSpecies.values()[i % TreeSpecies.values().length], 30 + i, 0.1, 1990);
+                Tree replacement = new Tree(TreeSpecies.BIRCH, i, 0.05, 2020);
+                direct.treeReaped(reaped, replacement);
+                sink.treeReaped(reaped, replacement);
+            }
+        }
+        direct.flush();
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    void failingTargetIsThrownFromFlushAndClose(){
+        Writer broken = new Writer(){
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush(){
+            }
+
+            @Override
+            public void close(){
+            }
+        };
+        AsyncReapSink sink = new AsyncReapSink(new WriterReapSink(broken, 64), 2);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            Tree tree = new Tree(TreeSpecies.FIR, 40, 0.1, 2000);
+            for (int i = 0; i < TREES; i++){
+                sink.treeReaped(tree, tree);
+            }
+            UncheckedIOException error = assertThrows(UncheckedIOException.class, sink::flush);
+            assertEquals("disk full", error.getCause().getMessage());
+            assertThrows(UncheckedIOException.class, sink::close);
+        });
+    }
+}
@@ -0,0 +1,124 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks the vector kernels against the scalar ones at every register width, over ranges whose lengths leave every
+ * possible tail after the whole registers and whose values include NaN, infinities, zeros and extremes.
+ */
+class ColumnKernelsTest {
+    private static final double[] EDGES = {
+            0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL, Double.MAX_VALUE, -Double.MAX_VALUE,
+            1e308, 1e-308, 1.0, -1.0, 0.1, Math.ulp(1.0)
+    };
+    //Longer than eight stripes of the widest register, so every tail length is reached from every start
+    private static final int LENGTH = 67;
+
+    @ParameterizedTest
+    @ValueSource(ints = {128, 256, 512})
+    void growMatchesScalar(int bits){
+        ColumnKernels vector = new VectorColumnKernels(bits);
+        for (double[][] columns : columns()){
+            for (int from = 0; from < 9; from++){
+                for (int to = from; to <= LENGTH; to++){
+                    double[] expected = columns[0].clone();
+                    double[] actual = columns[0].clone();
+                    ColumnKernels.SCALAR.grow(expected, columns[1], from, to);
+                    vector.grow(actual, columns[1], from, to);
+                    assertBitsEqual(expected, actual, bits + " bits, rows " + from + " to " + to);
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {128, 256, 512})
+    void sumMatchesScalar(int bits){
+        ColumnKernels vector = new VectorColumnKernels(bits);
+        for (double[][] columns : columns()){
+            for (int from = 0; from < 9; from++){
+                for (int to = from; to <= LENGTH; to++){
+                    double expected = ColumnKernels.SCALAR.sum(columns[0], from, to);
+                    double actual = vector.sum(columns[0], from, to);
+                    assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual),
+                            bits + " bits, rows " + from + " to " + to + ": " + expected + " != " + actual);
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {128, 256, 512})
+    void findTallerThanMatchesScalar(int bits){
+        ColumnKernels vector = new VectorColumnKernels(bits);
+        double[] thresholds = Arrays.copyOf(EDGES, EDGES.length + 3);
+        thresholds[EDGES.length] = 0.5;
+        thresholds[EDGES.length + 1] = 25.0;
+        thresholds[EDGES.length + 2] = 1e9;
+        for (double[][] columns : columns()){
+            for (double height : thresholds){
+                for (int from = 0; from < 9; from++){
+                    for (int to = from; to <= LENGTH; to++){
+                        assertEquals(ColumnKernels.SCALAR.findTallerThan(columns[0], from, to, height),
+                                vector.findTallerThan(columns[0], from, to, height),
+                                bits + " bits, over " + height + ", rows " + from + " to " + to);
+                    }
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {128, 256, 512})
+    void findTallerThanFindsEveryPosition(int bits){
+        ColumnKernels vector = new VectorColumnKernels(bits);
+        for (int tall = 0; tall < LENGTH; tall++){
+            double[] heights = new double[LENGTH];
+            Arrays.fill(heights, 1.0);
+            heights[tall] = 2.0;
+            for (int from = 0; from <= tall; from++){
+                assertEquals(tall, vector.findTallerThan(heights, from, LENGTH, 1.5), bits + " bits, tall row " + tall);
+            }
+            assertEquals(LENGTH, vector.findTallerThan(heights, tall + 1, LENGTH, 1.5));
+        }
+    }
+
+    /**
+     * Pairs of height and growth rate columns: random ordinary values, values made only of edge cases, and random
+     * values with edge cases scattered through them.
+     */
+    private static double[][][] columns(){
+        Random random = new Random(42);
+        double[][][] columns = new double[3][2][LENGTH];
+        for (int row = 0; row < LENGTH; row++){
+            columns[0][0][row] = 10 + random.nextDouble() * 20;
+            columns[0][1][row] = random.nextDouble() * 0.2;
+            columns[1][0][row] = EDGES[row % EDGES.length];
+            columns[1][1][row] = EDGES[(row * 7 + 3) % EDGES.length];
+            boolean edge = random.nextInt(4) == 0;
+            columns[2][0][row] = edge ? EDGES[random.nextInt(EDGES.length)] : random.nextGaussian() * 1e6;
+            columns[2][1][row] = edge ? EDGES[random.nextInt(EDGES.length)] : random.nextGaussian();
+        }
+        return columns;
+    }
+
+    /**
+     * Compares every bit except a NaN's sign and payload, which Java leaves to the hardware and which differ between
+     * interpreted and compiled code whatever the kernel.
+     */
+    private static void assertBitsEqual(double[] expected, double[] actual, String message){
+        long[] expectedBits = new long[expected.length];
+        long[] actualBits = new long[actual.length];
+        for (int row = 0; row < expected.length; row++){
+            expectedBits[row] = Double.doubleToLongBits(expected[row]);
+            actualBits[row] = Double.doubleToLongBits(actual[row]);
+        }
+        assertArrayEquals(expectedBits, actualBits, message);
+    }
+}
@@ -0,0 +1,85 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a view published by a concurrently read forest keeps its trees while the forest is changed, and that
+ * each change publishes a view of the changed forest.
+ */
+class ConcurrentReadsTest {
+    private static final int TREES = 20_000;
+
+    @Test
+    void snapshotStaysUnchangedWhileForestChanges(){
+        Forest forest = new Forest("Concurrent", 8);
+        forest.addRandomTrees(TREES);
+        forest.enableConcurrentReads();
+        ForestView before = forest.snapshot();
+        Tree[] trees = copy(before);
+
+        forest.simulateYearlyGrowth();
+        assertUnchanged(trees, before);
+        forest.reapForest(25, ReapSink.NONE);
+        assertUnchanged(trees, before);
+        forest.simulateYears(4, 30, ReapSink.NONE);
+        assertUnchanged(trees, before);
+        forest.cutTrees(10, 500);
+        forest.cutTreeByIndex(0);
+        assertUnchanged(trees, before);
+        forest.addRandomTrees(1_000);
+        assertUnchanged(trees, before);
+
+        ForestView after = forest.snapshot();
+        assertTrue(after.getEpoch() > before.getEpoch());
+        assertEquals(TREES - 491 + 1_000, after.size());
+        assertEquals(forest.getTreeCount(), after.size());
+    }
+
+    @Test
+    void readersSeeWholeChangesWhileWriterRuns() throws InterruptedException {
+        Forest forest = new Forest("Concurrent", 10);
+        forest.addRandomTrees(TREES);
+        forest.enableConcurrentReads();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            for (int pass = 0; pass < 200 && failure.get() == null; pass++){
+                ForestView view = forest.snapshot();
+                Tree[] trees = copy(view);
+                for (int row = 0; row < trees.length; row += 97){
+                    if (trees[row].getHeight() != view.getHeight(row)){
+                        failure.set("row " + row + " changed in epoch " + view.getEpoch());
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int year = 0; year < 20; year++){
+            forest.simulateYears(1, 40, ReapSink.NONE);
+        }
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    private static Tree[] copy(ForestView view){
+        Tree[] trees = new Tree[view.size()];
+        for (int row = 0; row < trees.length; row++){
+            trees[row] = view.get(row);
+        }
+        return trees;
+    }
+
+    private static void assertUnchanged(Tree[] trees, ForestView view){
+        assertEquals(trees.length, view.size());
+        for (int row = 0; row < trees.length; row++){
+            Tree tree = view.get(row);
+            assertEquals(trees[row].getSpecies(), tree.getSpecies(), "species of row " + row);
+            assertEquals(trees[row].getHeight(), tree.getHeight(), "height of row " + row);
+            assertEquals(trees[row].getGrowthRate(), tree.getGrowthRate(), "growth rate of row " + row);
+            assertEquals(trees[row].getYearOfPlanting(), tree.getYearOfPlanting(), "year of row " + row);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks the byte parser against the String.split(",") and Double.parseDouble parsing it replaced: decimals round to
+ * the same bits, rows are accepted and rejected alike, and the readers skip a byte order mark, drop Windows line
+ * endings and report malformed rows with their line numbers.
+ */
+class CsvRowParserTest {
+    private static final String[] SPECIES = {"Birch", " fir ", "MAPLE", "maple", "Oak", "", " "};
+    private static final String[] YEARS = {"2014", " 1999 ", "+2001", "-5", "", "20x4", "2147483647", "2147483648",
+            "-2147483648", "3.0"};
+    private static final String[] NUMBERS = {"72", " 11.1 ", "0", "-0", "+3.5", ".5", "5.", ".", "", "1e3", "2.5E-1",
+            "NaN", "Infinity", "-Infinity", "abc", "1.2.3", "0.1", "123456789012345", "1234567890123456",
+            "0.000000000000001", "9007199254740993", "1d", "--1"};
+    private static final String[] ENDINGS = {"", ",", ",,", ", ", ",x", ",,,"};
+
+    @Test
+    void decimalsRoundAsParseDouble(){
+        Random random = new Random(17);
+        for (int round = 0; round < 200_000; round++){
+            StringBuilder number = new StringBuilder();
+            if (random.nextInt(4) == 0){
+                number.append('-');
+            }
+            int digits = 1 + random.nextInt(17);
+            int point = random.nextInt(digits + 1);
+            for (int digit = 0; digit < digits; digit++){
+                if (digit == point && random.nextBoolean()){
+                    number.append('.');
+                }
+                number.append((char) ('0' + random.nextInt(10)));
+            }
+            String text = number.toString();
+            TreeColumns trees = parse("Birch,2000," + text + "," + text);
+            assertEquals(1, trees.size(), text);
+            assertEquals(Double.doubleToRawLongBits(Double.parseDouble(text)),
+                    Double.doubleToRawLongBits(trees.getHeight(0)), "height " + text);
+            assertEquals(Double.doubleToRawLongBits(Double.parseDouble(text) / 100.0),
+                    Double.doubleToRawLongBits(trees.getGrowthRate(0)), "growth rate " + text);
+        }
+    }
+
+    @Test
+    void rowsParseAsSplit(){
+        Random random = new Random(23);
+        for (int round = 0; round < 50_000; round++){
+            String line = pick(random, SPECIES) + "," + pick(random, YEARS) + "," + pick(random, NUMBERS) + ","
+                    + pick(random, NUMBERS) + pick(random, ENDINGS);
+            Tree expected = splitRow(line);
+            TreeColumns trees = parse(line);
+            assertEquals(expected == null ? 0 : 1, trees.size(), line);
+            if (expected != null){
+                assertEquals(expected.getSpecies(), trees.getSpecies(0), line);
+                assertEquals(expected.getYearOfPlanting(), trees.getYearOfPlanting(0), line);
+                assertEquals(expected.getHeight(), trees.getHeight(0), line);
+                assertEquals(expected.getGrowthRate(), trees.getGrowthRate(0), line);
+            }
+        }
+        assertEquals(1, parse("Birch,2014,72,11.1,").size());
+        assertEquals(0, parse("Birch,2014,72,11.1,,5").size());
+    }
+
+    @Test
+    void readersSkipByteOrderMarkAndReportLines(@TempDir Path directory) throws IOException {
+        String text = "\uFEFFBirch,2014,72,11.1\r\n"
+                + "Fir,2017,15,15.5,\r\n"
+                + "\r\n"
+                + "Oak,2010,10,1\r\n"
+                + "Maple,20x3,32,20.0\n"
+                + "Maple,2023,32\n"
+                + "Fir,2001,7.25,3";
+        Path file = directory.resolve("Rows.csv");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+
+        //A buffer smaller than a row makes rows span reads
+        CsvTreeReader reader = new CsvTreeReader(8);
+        TreeColumns read = new TreeColumns();
+        reader.read(file, read);
+        MappedCsvLoader loader = new MappedCsvLoader();
+        TreeColumns mapped = new TreeColumns();
+        loader.read(file, mapped);
+
+        for (TreeColumns trees : List.of(read, mapped)){
+            assertEquals(3, trees.size());
+            assertEquals(TreeSpecies.BIRCH, trees.getSpecies(0));
+            assertEquals(0.111, trees.getGrowthRate(0));
+            assertEquals(TreeSpecies.FIR, trees.getSpecies(1));
+            assertEquals(15, trees.getHeight(1));
+            assertEquals(7.25, trees.getHeight(2));
+        }
+        for (List<CsvRowError> errors : List.of(reader.getErrors(), loader.getErrors())){
+            assertEquals(3, errors.size());
+            assertEquals(4, errors.get(0).getLineNumber());
+            assertEquals("unknown species", errors.get(0).getMessage());
+            assertEquals(5, errors.get(1).getLineNumber());
+            assertEquals(6, errors.get(2).getLineNumber());
+            assertEquals("Maple,2023,32", errors.get(2).getLine());
+        }
+    }
+
+    private static TreeColumns parse(String line){
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        TreeColumns trees = new TreeColumns();
+        CsvRowParser.parseRow(ByteBuffer.wrap(bytes), 0, bytes.length, 1, trees, new ArrayList<>());
+        return trees;
+    }
+
+    /**
+     * Parses a row as the forest did before the byte parser, rejecting a NaN as the byte parser does.
+     *
+     * @return The tree, or null if the row is rejected.
+     */
+    private static Tree splitRow(String line){
+        String[] data = line.split(",");
+        if (data.length != 4){
+            return null;
+        }
+        try {
+            TreeSpecies species = TreeSpecies.valueOf(data[0].trim().toUpperCase(Locale.ROOT));
+            int yearOfPlanting = Integer.parseInt(data[1].trim());
+            double height = Double.parseDouble(data[2].trim());
+            double growthRate = Double.parseDouble(data[3].trim());
+            if (Double.isNaN(height) || Double.isNaN(growthRate)){
+                return null;
+            }
+            return new Tree(species, height, growthRate / 100.0, yearOfPlanting);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String pick(Random random, String[] values){
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that reading a forest with cut trees waiting to be compacted away answers as the compacted forest would,
+ * and leaves the rows of the cut trees in place until a change or save compacts them.
+ */
+class DeferredCutsTest {
+    private static final int TREES = 5_000;
+
+    @Test
+    void readsSkipCutTreesWithoutCompacting(){
+        Forest deferred = cutForest(true);
+        Forest compacted = cutForest(true);
+        compacted.compact();
+        assertReadsMatch(compacted, deferred);
+        assertEquals(TREES, deferred.trees.size());
+
+        //Trees added after the cuts go after every live tree, still without compacting
+        deferred.addRandomTrees(50);
+        compacted.addRandomTrees(50);
+        assertReadsMatch(compacted, deferred);
+        assertEquals(TREES + 50, deferred.trees.size());
+
+        deferred.simulateYearlyGrowth();
+        compacted.simulateYearlyGrowth();
+        assertEquals(deferred.getTreeCount(), deferred.trees.size());
+        assertReadsMatch(compacted, deferred);
+    }
+
+    @Test
+    void readsWithoutIndexesSkipCutTrees(){
+        Forest deferred = cutForest(false);
+        Forest compacted = cutForest(false);
+        compacted.compact();
+        assertReadsMatch(compacted, deferred);
+        assertEquals(TREES, deferred.trees.size());
+    }
+
+    /**
+     * Plants the same trees each time and cuts fewer of them than the dead row ratio, so none are compacted away.
+     */
+    private static Forest cutForest(boolean indexed){
+        Forest forest = new Forest("Deferred", 21);
+        forest.setDeadRowRatio(0.5);
+        forest.addRandomTrees(TREES);
+        if (indexed){
+            forest.enableIndexes();
+            forest.enableStatistics();
+        }
+        forest.cutTrees(100, 400);
+        forest.cutTreeByIndex(0);
+        forest.cutTrees(TreeFilter.species(TreeSpecies.MAPLE));
+        return forest;
+    }
+
+    private static void assertReadsMatch(Forest expected, Forest actual){
+        assertEquals(expected.getTreeCount(), actual.getTreeCount());
+        for (int row = 0; row < expected.getTreeCount(); row++){
+            assertEquals(expected.getTree(row).getHeight(), actual.getTree(row).getHeight(), "height of row " + row);
+            assertEquals(expected.getTree(row).getSpecies(), actual.getTree(row).getSpecies(), "species of row " + row);
+        }
+        for (double height : new double[]{0, 10, 20, 30}){
+            assertArrayEquals(expected.findTreesTallerThan(height), actual.findTreesTallerThan(height),
+                    "trees taller than " + height);
+        }
+        for (TreeSpecies species : TreeSpecies.values()){
+            assertArrayEquals(expected.findTrees(species, 1990, 2020), actual.findTrees(species, 1990, 2020),
+                    "trees of " + species);
+        }
+
+        ForestSummary expectedSummary = expected.getSummary();
+        ForestSummary actualSummary = actual.getSummary();
+        assertEquals(expectedSummary.getCount(), actualSummary.getCount());
+        assertEquals(expectedSummary.getTotalHeight(), actualSummary.getTotalHeight(),
+                expectedSummary.getTotalHeight() * 1e-12);
+        assertEquals(expectedSummary.getMinHeight(), actualSummary.getMinHeight());
+        assertEquals(expectedSummary.getMaxHeight(), actualSummary.getMaxHeight());
+
+        ForestView expectedView = expected.snapshot();
+        ForestView actualView = actual.snapshot();
+        assertEquals(expectedView.size(), actualView.size());
+        for (int row = 0; row < expectedView.size(); row++){
+            assertEquals(expectedView.getHeight(row), actualView.getHeight(row), "viewed height of row " + row);
+        }
+
+        StringWriter expectedListing = new StringWriter();
+        StringWriter actualListing = new StringWriter();
+        expected.displayForest(new ForestPrinter(), expectedListing);
+        actual.displayForest(new ForestPrinter(), actualListing);
+        assertEquals(expectedListing.toString(), actualListing.toString());
+    }
+}
@@ -0,0 +1,161 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that an evicted forest is spilled without touching its saved files and comes back with its changes and
+ * settings, that closing the cache deletes the spill files, that the held forest is never evicted, and that load()
+ * prefers a forest's snapshot to its CSV file.
+ */
+class ForestCacheTest {
+    private static final int TREES = 1_000;
+    //Room for one forest and a half
+    private static final long BUDGET = TREES * ForestCache.BYTES_PER_TREE * 3 / 2;
+
+    @TempDir
+    Path directory;
+
+    @TempDir
+    Path spills;
+
+    @Test
+    void evictedForestsAreSpilledAndReadBack() throws IOException {
+        String first = saved("First", 1);
+        String second = saved("Second", 2);
+        byte[] snapshot = Files.readAllBytes(Path.of(first + ".db"));
+        byte[] journal = Files.readAllBytes(Path.of(first + ".journal"));
+
+        ForestCache cache = new ForestCache(BUDGET, spills);
+        Forest forest = cache.get(first);
+        forest.simulateYearlyGrowth();
+        forest.cutTreeByIndex(3);
+        double[] heights = heights(forest);
+
+        cache.get(second);
+        assertFalse(cache.isResident(first));
+        assertEquals(1, cache.getEvictions());
+        assertArrayEquals(snapshot, Files.readAllBytes(Path.of(first + ".db")));
+        assertArrayEquals(journal, Files.readAllBytes(Path.of(first + ".journal")));
+        try (var files = Files.list(spills)){
+            assertEquals(1, files.count());
+        }
+
+        Forest readBack = cache.get(first);
+        assertArrayEquals(heights, heights(readBack));
+        assertFalse(cache.isResident(second));
+        try (var files = Files.list(spills)){
+            assertEquals(1, files.count(), "the first forest's spill file is deleted once read back");
+        }
+
+        //Saving the forest read back writes its changes in full, and the saved forest loads with them
+        readBack.saveForest();
+        assertArrayEquals(heights, heights(Forest.loadForest(first)));
+    }
+
+    @Test
+    void forestsReadBackKeepTheirSettings() throws IOException {
+        String first = saved("Seeded", 7);
+        String second = saved("Evicting", 8);
+
+        ForestCache cache = new ForestCache(BUDGET, spills);
+        Forest forest = cache.get(first);
+        forest.setSeed(21);
+        forest.enableIndexes();
+        forest.addRandomTrees(5);
+        Forest twin = Forest.loadForest(first);
+        twin.setSeed(21);
+        twin.addRandomTrees(5);
+
+        cache.get(second);
+        assertFalse(cache.isResident(first));
+        Forest readBack = cache.get(first);
+        //The seed's draw of random trees carries on where it stopped
+        readBack.addRandomTrees(5);
+        twin.addRandomTrees(5);
+        readBack.simulateYears(3);
+        twin.simulateYears(3);
+        assertArrayEquals(heights(twin), heights(readBack));
+        assertArrayEquals(twin.findTrees(TreeSpecies.FIR, 0, 3000), readBack.findTrees(TreeSpecies.FIR, 0, 3000));
+    }
+
+    @Test
+    void closingDeletesSpillFiles() throws IOException {
+        String first = saved("Closed", 9);
+        String second = saved("Open", 10);
+
+        ForestCache cache = new ForestCache(BUDGET, spills);
+        cache.get(first).simulateYearlyGrowth();
+        cache.get(second);
+        try (var files = Files.list(spills)){
+            assertEquals(1, files.count());
+        }
+        cache.close();
+        try (var files = Files.list(spills)){
+            assertEquals(0, files.count());
+        }
+        //The forest whose spill file was deleted opens from its saved files again
+        assertEquals(TREES, cache.get(first).getTreeCount());
+    }
+
+    @Test
+    void heldForestIsNeverEvicted() throws IOException {
+        String first = saved("Held", 3);
+        String second = saved("Other", 4);
+        String third = saved("Third", 5);
+
+        ForestCache cache = new ForestCache(BUDGET, spills);
+        Forest held = cache.hold(first, false);
+        cache.get(second);
+        cache.get(third);
+        assertTrue(cache.isResident(first));
+        assertSame(held, cache.get(first));
+
+        //A forest that cannot be opened leaves the held forest held
+        assertEquals(null, cache.hold(directory.resolve("Missing").toString(), true));
+        cache.get(second);
+        assertTrue(cache.isResident(first));
+
+        cache.hold(third, false);
+        cache.get(second);
+        assertFalse(cache.isResident(first));
+        assertTrue(cache.isResident(third));
+    }
+
+    @Test
+    void loadPrefersSnapshotToCsv() throws IOException {
+        String name = saved("Both", 6);
+        Files.writeString(Path.of(name + ".csv"), "Birch,2014,72,11.1\nFir,2017,15,15.5\n");
+
+        assertEquals(TREES, new ForestCache(BUDGET, spills).load(name).getTreeCount());
+        assertEquals(2, new ForestCache(BUDGET, spills).get(name).getTreeCount());
+
+        String csvOnly = directory.resolve("CsvOnly").toString();
+        Files.writeString(Path.of(csvOnly + ".csv"), "Maple,2010,20,12.5\n");
+        assertEquals(1, new ForestCache(BUDGET, spills).load(csvOnly).getTreeCount());
+    }
+
+    private String saved(String name, long seed){
+        String forestName = directory.resolve(name).toString();
+        Forest forest = new Forest(forestName, seed);
+        forest.addRandomTrees(TREES);
+        forest.saveForest();
+        return forestName;
+    }
+
+    private static double[] heights(Forest forest){
+        double[] heights = new double[forest.getTreeCount()];
+        for (int row = 0; row < heights.length; row++){
+            heights[row] = forest.getTree(row).getHeight();
+        }
+        return heights;
+    }
+}
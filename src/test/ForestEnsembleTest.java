@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that one replica of an ensemble ends up with the trees Forest.simulateYears(years, height) leaves in a copy
+ * of the base forest given the same seed.
+ */
+class ForestEnsembleTest {
+    private static final int TREES = 20_000;
+    private static final int YEARS = 12;
+    private static final double REAP_HEIGHT = 40;
+
+    @Test
+    void replicaMatchesSimulatedCopy(){
+        for (long seed = 1; seed <= 5; seed++){
+            Forest base = forest();
+            List<EnsembleYear> outcomes = new ForestEnsemble(base).run(1, seed, YEARS, REAP_HEIGHT);
+
+            Forest copy = forest();
+            copy.setSeed(seed);
+            int[] reaped = new int[1];
+            copy.simulateYears(YEARS, REAP_HEIGHT, (tree, replacement) -> reaped[0]++);
+
+            double totalHeight = 0;
+            int[] speciesCounts = new int[TreeSpecies.values().length];
+            for (int row = 0; row < copy.getTreeCount(); row++){
+                Tree tree = copy.getTree(row);
+                totalHeight += tree.getHeight();
+                speciesCounts[tree.getSpecies().ordinal()]++;
+            }
+            EnsembleYear last = outcomes.get(YEARS - 1);
+            assertEquals(totalHeight / TREES, last.getMeanHeight(50), "mean height with seed " + seed);
+            double[] expectedShares = new double[speciesCounts.length];
+            double[] actualShares = new double[speciesCounts.length];
+            for (TreeSpecies species : TreeSpecies.values()){
+                expectedShares[species.ordinal()] = (double) speciesCounts[species.ordinal()] / TREES;
+                actualShares[species.ordinal()] = last.getSpeciesShare(species, 50);
+            }
+            assertArrayEquals(expectedShares, actualShares, "species shares with seed " + seed);
+            double replicaReaped = 0;
+            for (EnsembleYear year : outcomes){
+                replicaReaped += year.getReaped(50);
+            }
+            assertEquals(reaped[0], replicaReaped, "trees reaped with seed " + seed);
+            //The base is only read, never reaped
+            assertEquals(forest().getSummary().getTotalHeight(), base.getSummary().getTotalHeight());
+        }
+    }
+
+    @Test
+    void yearsAreSortedWithoutTouchingTheirArrays(){
+        double[] meanHeights = {3, 1, 2};
+        double[] reaped = {0, 5, 4};
+        double[][] shares = new double[TreeSpecies.values().length][];
+        for (int species = 0; species < shares.length; species++){
+            shares[species] = new double[]{0.5, 0.1, 0.3};
+        }
+        EnsembleYear year = new EnsembleYear(1, meanHeights, reaped, shares);
+        assertArrayEquals(new double[]{3, 1, 2}, meanHeights);
+        assertArrayEquals(new double[]{0, 5, 4}, reaped);
+        assertArrayEquals(new double[]{0.5, 0.1, 0.3}, shares[0]);
+        assertEquals(1, year.getMeanHeight(0));
+        assertEquals(3, year.getMeanHeight(100));
+        assertEquals(4, year.getReaped(50));
+    }
+
+    /**
+     * Plants the same forest every time it is called.
+     */
+    private static Forest forest(){
+        Forest forest = new Forest("Ensemble", 99);
+        forest.addRandomTrees(TREES);
+        return forest;
+    }
+}
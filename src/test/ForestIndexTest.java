@@ -0,0 +1,144 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the answers of the secondary indexes against a scan of every tree, after the growth, reaps, cuts and
+ * additions that update the indexes in place, and over heights and growth rates that growth can reorder.
+ */
+class ForestIndexTest {
+    private static final double[] HEIGHTS = {0, 5, 10, 15, 20, 25, 30, 40, 60, 100};
+
+    @Test
+    void indexedForestAnswersAsScan(){
+        Forest forest = new Forest("Indexed", 31);
+        forest.setDeadRowRatio(0.1);
+        forest.addRandomTrees(20_000);
+        forest.enableIndexes();
+        assertMatchesScan(forest);
+
+        for (int year = 0; year < 6; year++){
+            forest.simulateYearlyGrowth();
+            assertMatchesScan(forest);
+            forest.reapForest(25, ReapSink.NONE);
+            assertMatchesScan(forest);
+            forest.cutTrees(year * 1_000, year * 1_000 + 300);
+            forest.cutTreeByIndex(year * 7);
+            assertMatchesScan(forest);
+            forest.addRandomTrees(500);
+            forest.addRandomTree();
+            assertMatchesScan(forest);
+        }
+        forest.simulateYears(3);
+        assertMatchesScan(forest);
+        forest.simulateYears(4, 30, ReapSink.NONE);
+        assertMatchesScan(forest);
+        forest.cutTrees(TreeFilter.species(TreeSpecies.FIR));
+        forest.compact();
+        assertMatchesScan(forest);
+    }
+
+    @Test
+    void treesThatGrowthReordersAnswerAsScan(){
+        Random random = new Random(7);
+        TreeColumns trees = new TreeColumns();
+        TreeSpecies[] species = TreeSpecies.values();
+        for (int row = 0; row < 5_000; row++){
+            int kind = random.nextInt(20);
+            double height = kind == 0 ? Double.NaN : kind == 1 ? -random.nextDouble() * 10 : random.nextDouble() * 40;
+            double rate = kind == 2 ? -random.nextDouble() * 0.5 : kind == 3 ? Double.NaN : random.nextDouble() * 0.2;
+            trees.add(species[row % species.length], height, rate, 1950 + random.nextInt(80));
+        }
+        ForestIndex index = new ForestIndex(trees);
+        assertMatchesScan(trees, index);
+
+        for (int round = 0; round < 5; round++){
+            trees.growRange(0, trees.size(), 1 + round);
+            index.onGrowth();
+            assertMatchesScan(trees, index);
+
+            for (int replaced = 0; replaced < 200; replaced++){
+                int row = random.nextInt(trees.size());
+                index.beforeReplace(row);
+                trees.set(row, species[random.nextInt(species.length)], random.nextDouble() * 40,
+                        random.nextDouble() * 0.2, 2000 + round);
+                index.afterReplace(row);
+            }
+            assertMatchesScan(trees, index);
+
+            RowBitmap dead = new RowBitmap();
+            for (int cut = 0; cut < 100; cut++){
+                dead.set(random.nextInt(trees.size()));
+            }
+            trees.removeAll(dead);
+            index.onCompact(dead);
+            for (int added = 0; added < 100; added++){
+                trees.add(species[added % species.length], random.nextDouble() * 40, random.nextDouble() * 0.2,
+                        2000 + round);
+                index.onAdd(trees.size() - 1);
+            }
+            assertMatchesScan(trees, index);
+        }
+    }
+
+    private static void assertMatchesScan(Forest forest){
+        Tree[] trees = new Tree[forest.getTreeCount()];
+        for (int row = 0; row < trees.length; row++){
+            trees[row] = forest.getTree(row);
+        }
+        for (double height : HEIGHTS){
+            int[] expected = new int[trees.length];
+            int count = 0;
+            for (int row = 0; row < trees.length; row++){
+                if (trees[row].getHeight() > height){
+                    expected[count++] = row;
+                }
+            }
+            assertArrayEquals(Arrays.copyOf(expected, count), forest.findTreesTallerThan(height),
+                    "trees taller than " + height);
+        }
+        for (TreeSpecies species : TreeSpecies.values()){
+            for (int from = 1990; from <= 2030; from += 8){
+                int[] expected = new int[trees.length];
+                int count = 0;
+                for (int row = 0; row < trees.length; row++){
+                    int year = trees[row].getYearOfPlanting();
+                    if (trees[row].getSpecies() == species && year >= from && year <= from + 10){
+                        expected[count++] = row;
+                    }
+                }
+                assertArrayEquals(Arrays.copyOf(expected, count), forest.findTrees(species, from, from + 10),
+                        species + " planted from " + from);
+            }
+        }
+    }
+
+    private static void assertMatchesScan(TreeColumns trees, ForestIndex index){
+        for (double height : new double[]{Double.NEGATIVE_INFINITY, -5, 0, 10, 25, 50, Double.NaN}){
+            int[] expected = new int[trees.size()];
+            int count = 0;
+            for (int row = 0; row < trees.size(); row++){
+                if (trees.getHeight(row) > height){
+                    expected[count++] = row;
+                }
+            }
+            assertArrayEquals(Arrays.copyOf(expected, count), index.rowsTallerThan(height),
+                    "rows taller than " + height);
+        }
+        for (TreeSpecies species : TreeSpecies.values()){
+            int[] expected = new int[trees.size()];
+            int count = 0;
+            for (int row = 0; row < trees.size(); row++){
+                int year = trees.getYearOfPlanting(row);
+                if (trees.getSpecies(row) == species && year >= 1990 && year <= 2010){
+                    expected[count++] = row;
+                }
+            }
+            assertArrayEquals(Arrays.copyOf(expected, count), index.rowsOf(species, 1990, 2010),
+                    "rows of " + species);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that only saved changes are replayed from a forest's journal, that changes written ahead of a save can be
+ * recovered or discarded, and that a journal record that does not fit the forest fails the load instead of throwing
+ * out of it.
+ */
+class ForestJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void savedChangesAreReplayed(){
+        String name = directory.resolve("Saved").toString();
+        Forest forest = new Forest(name, 3);
+        forest.addRandomTrees(10_000);
+        forest.saveForest();
+
+        Forest loaded = Forest.loadForest(name);
+        loaded.simulateYearlyGrowth();
+        loaded.cutTrees(100, 200);
+        loaded.cutTreeByIndex(5);
+        loaded.addRandomTree();
+        loaded.saveForest();
+
+        Forest replayed = Forest.loadForest(name);
+        assertEquals(loaded.getTreeCount(), replayed.getTreeCount());
+        for (int row = 0; row < loaded.getTreeCount(); row++){
+            assertEquals(loaded.getTree(row).getHeight(), replayed.getTree(row).getHeight(), "height of row " + row);
+        }
+    }
+
+    @Test
+    void unsavedChangesAreNotReplayed(){
+        String name = directory.resolve("Unsaved").toString();
+        Forest forest = new Forest(name, 4);
+        forest.addRandomTrees(100_000);
+        forest.saveForest();
+
+        //More than a batch's worth of records, none of them saved
+        Forest loaded = Forest.loadForest(name);
+        for (int tree = 0; tree < 5_000; tree++){
+            loaded.addRandomTree();
+        }
+        loaded.simulateYearlyGrowth();
+
+        Forest reloaded = Forest.loadForest(name);
+        assertEquals(100_000, reloaded.getTreeCount());
+        assertEquals(forest.getTree(0).getHeight(), reloaded.getTree(0).getHeight());
+        //The batches that filled were written ahead of the save, and can be discarded
+        assertTrue(reloaded.getUnsavedChangeCount() > 0);
+        reloaded.discardUnsavedChanges();
+        assertEquals(0, Forest.loadForest(name).getUnsavedChangeCount());
+    }
+
+    @Test
+    void unsavedChangesCanBeRecovered(){
+        String name = directory.resolve("Crashed").toString();
+        Forest forest = new Forest(name, 8);
+        forest.addRandomTrees(100_000);
+        forest.saveForest();
+
+        Forest loaded = Forest.loadForest(name);
+        loaded.cutTrees(10, 20);
+        loaded.simulateYearlyGrowth();
+        loaded.saveForest();
+        //Stop after more than a batch's worth of unsaved records, as a crash would
+        for (int tree = 0; tree < 5_000; tree++){
+            loaded.addRandomTree();
+        }
+
+        Forest recovered = Forest.loadForest(name);
+        long unsaved = recovered.getUnsavedChangeCount();
+        assertTrue(unsaved > 0 && unsaved < 5_000, "only the batches that filled reached the journal");
+        assertEquals(unsaved, recovered.recoverUnsavedChanges());
+        int trees = recovered.getTreeCount();
+        assertEquals(100_000 - 10 + unsaved, trees);
+        for (int row = 0; row < trees; row++){
+            assertEquals(loaded.getTree(row).getHeight(), recovered.getTree(row).getHeight(), "height of row " + row);
+        }
+
+        //Once saved, the recovered changes are replayed with the changes made after them
+        recovered.addRandomTree();
+        recovered.saveForest();
+        Forest reloaded = Forest.loadForest(name);
+        assertEquals(trees + 1, reloaded.getTreeCount());
+        assertEquals(0, reloaded.getUnsavedChangeCount());
+    }
+
+    @Test
+    void versionOneJournalIsReadAsSaved() throws IOException {
+        String name = directory.resolve("Versioned").toString();
+        Forest forest = new Forest(name, 9);
+        forest.addRandomTrees(50);
+        forest.saveForest();
+
+        //Version 1 wrote only saved batches, without save markers
+        Path journal = Path.of(name + ".journal");
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN).putShort((short) 1).flip(), 4);
+        }
+        appendBatch(journal, ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN)
+                .put(ForestJournal.CUT).putInt(3).flip());
+
+        Forest loaded = Forest.loadForest(name);
+        assertEquals(49, loaded.getTreeCount());
+        assertEquals(0, loaded.getUnsavedChangeCount());
+        //The journal was rewritten as the current version, still holding the cut as saved
+        loaded.addRandomTree();
+        assertEquals(49, Forest.loadForest(name).getTreeCount());
+        assertEquals(ForestJournal.VERSION, ByteBuffer.wrap(Files.readAllBytes(journal))
+                .order(ByteOrder.LITTLE_ENDIAN).getShort(4));
+    }
+
+    @Test
+    void changesOutgrowingTheJournalAreSavedAsSnapshot(){
+        String name = directory.resolve("Outgrown").toString();
+        Forest forest = new Forest(name, 5);
+        forest.addRandomTrees(100);
+        forest.saveForest();
+
+        Forest loaded = Forest.loadForest(name);
+        for (int tree = 0; tree < 5_000; tree++){
+            loaded.addRandomTree();
+        }
+        loaded.saveForest();
+
+        assertEquals(5_100, Forest.loadForest(name).getTreeCount());
+    }
+
+    @Test
+    void cutPastLastTreeFailsLoad() throws IOException {
+        String name = directory.resolve("Corrupt").toString();
+        Forest forest = new Forest(name, 6);
+        forest.addRandomTrees(50);
+        forest.saveForest();
+        assertNotNull(Forest.loadForest(name));
+
+        appendSavedBatch(Path.of(name + ".journal"), ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN)
+                .put(ForestJournal.CUT).putInt(50).flip());
+        assertNull(Forest.loadForest(name));
+    }
+
+    @Test
+    void cutRangePastLastTreeFailsLoad() throws IOException {
+        String name = directory.resolve("CorruptRange").toString();
+        Forest forest = new Forest(name, 7);
+        forest.addRandomTrees(50);
+        forest.saveForest();
+
+        appendSavedBatch(Path.of(name + ".journal"), ByteBuffer.allocate(9).order(ByteOrder.LITTLE_ENDIAN)
+                .put(ForestJournal.CUT_RANGE).putInt(40).putInt(11).flip());
+        assertNull(Forest.loadForest(name));
+    }
+
+    /**
+     * Appends a batch of records with a valid length and checksum, ended by a save marker as commit() would write it.
+     */
+    private static void appendSavedBatch(Path journal, ByteBuffer records) throws IOException {
+        appendBatch(journal, ByteBuffer.allocate(records.remaining() + 1).put(records).put(ForestJournal.SAVED).flip());
+    }
+
+    /**
+     * Appends a batch of records with a valid length and checksum, as they are given.
+     */
+    private static void appendBatch(Path journal, ByteBuffer records) throws IOException {
+        CRC32C checksum = new CRC32C();
+        checksum.update(records.duplicate());
+        ByteBuffer batch = ByteBuffer.allocate(8 + records.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+        batch.putInt(records.remaining()).putInt((int) checksum.getValue()).put(records).flip();
+        Files.write(journal, batch.array(), StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a seeded script leaves a forest exactly as the same commands given through the menu would, and that
+ * the commands it fuses are only those whose result does not change.
+ */
+class ForestScriptTest {
+    private static final int TREES = 2_000;
+
+    @Test
+    void seededScriptMatchesMenuCommands(){
+        Forest scripted = forest();
+        ForestScript.parse("seed 5; grow 1; reap 20; grow 1; reap 20; grow 2; grow 3; add 10; add 20; cut 4")
+                .run(scripted);
+
+        Forest menu = forest();
+        menu.setSeed(5);
+        for (int year = 0; year < 2; year++){
+            menu.simulateYearlyGrowth();
+            menu.reapForest(20, ReapSink.NONE);
+        }
+        menu.simulateYears(2);
+        menu.simulateYears(3);
+        menu.addRandomTrees(10);
+        menu.addRandomTrees(20);
+        menu.cutTreeByIndex(4);
+
+        assertSameTrees(menu, scripted);
+    }
+
+    @Test
+    void onlyCommandsWithTheSameResultAreFused(){
+        assertEquals("seed 9; grow 1; reap 80.0; grow 1; reap 80.0; add 2; add 3; save",
+                ForestScript.parse("seed 3; seed 9; grow 1; reap 80; grow 1; reap 80; add 2; add 3; save; save")
+                        .toString());
+        //Years are never added up, so no count can pass the largest int
+        assertEquals("grow 2000000000; grow 2000000000",
+                ForestScript.parse("grow 2000000000; grow 2000000000").toString());
+        ForestScript.parse("grow 2000000000; grow 2000000000").run(new Forest("Ages", 1));
+    }
+
+    @Test
+    void growAndReapDrawsReplacementsTreeByTree(){
+        Forest fused = forest();
+        ForestScript.parse("seed 5; grow 3 reap 20").run(fused);
+
+        Forest menu = forest();
+        menu.setSeed(5);
+        for (int year = 0; year < 3; year++){
+            menu.simulateYearlyGrowth();
+            menu.reapForest(20, ReapSink.NONE);
+        }
+
+        assertEquals(menu.getTreeCount(), fused.getTreeCount());
+        int differing = 0;
+        for (int row = 0; row < menu.getTreeCount(); row++){
+            if (menu.getTree(row).getHeight() != fused.getTree(row).getHeight()){
+                differing++;
+            }
+        }
+        assertNotEquals(0, differing, "the reaped trees are replaced from a different draw");
+    }
+
+    private static Forest forest(){
+        Forest forest = new Forest("Scripted", 11);
+        forest.addRandomTrees(TREES);
+        return forest;
+    }
+
+    private static void assertSameTrees(Forest expected, Forest actual){
+        assertEquals(expected.getTreeCount(), actual.getTreeCount());
+        for (int row = 0; row < expected.getTreeCount(); row++){
+            Tree want = expected.getTree(row);
+            Tree got = actual.getTree(row);
+            assertEquals(want.getSpecies(), got.getSpecies(), "species of row " + row);
+            assertEquals(want.getHeight(), got.getHeight(), "height of row " + row);
+            assertEquals(want.getGrowthRate(), got.getGrowthRate(), "growth rate of row " + row);
+            assertEquals(want.getYearOfPlanting(), got.getYearOfPlanting(), "year of row " + row);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that statistics kept up to date through additions, removals and growth summarise the trees as statistics
+ * collected from scratch would, including the range after the shortest and tallest trees are removed, and that a
+ * concurrently read forest publishes summaries whose range readers find from the view.
+ */
+class ForestStatisticsTest {
+    private static final TreeSpecies[] SPECIES = TreeSpecies.values();
+
+    @Test
+    void updatedStatisticsMatchFreshOnes(){
+        Random random = new Random(41);
+        TreeColumns trees = new TreeColumns();
+        for (int row = 0; row < 3_000; row++){
+            trees.add(SPECIES[row % SPECIES.length], height(random), 0.05, 2000);
+        }
+        //Few wide bins, so removals keep landing in the lowest and highest bins holding trees
+        ForestStatistics statistics = new ForestStatistics(trees, 15, 4);
+        assertMatchesFresh(trees, statistics);
+
+        for (int round = 0; round < 40; round++){
+            if (round % 10 == 9){
+                ForestStatistics.Accumulator heights = statistics.newAccumulator();
+                trees.growRange(0, trees.size(), 1);
+                heights.addRange(trees, 0, trees.size());
+                statistics.replaceHeights(heights);
+            }
+            //Take out the tallest and shortest trees, as reaps and cuts do, and some others
+            for (int removed = 0; removed < 150; removed++){
+                int row = removed % 3 == 0 ? extreme(trees, removed % 2 == 0) : random.nextInt(trees.size());
+                statistics.onRemove(trees.getSpecies(row), trees.getHeight(row));
+                trees.remove(row);
+            }
+            assertMatchesFresh(trees, statistics);
+            for (int added = 0; added < 150; added++){
+                TreeSpecies species = SPECIES[random.nextInt(SPECIES.length)];
+                double height = height(random);
+                trees.add(species, height, 0.05, 2000);
+                statistics.onAdd(species, height);
+            }
+            assertMatchesFresh(trees, statistics);
+        }
+
+        //A NaN height makes the range NaN until it is removed
+        trees.add(TreeSpecies.FIR, Double.NaN, 0, 2000);
+        statistics.onAdd(TreeSpecies.FIR, Double.NaN);
+        assertMatchesFresh(trees, statistics);
+        statistics.onRemove(TreeSpecies.FIR, Double.NaN);
+        trees.remove(trees.size() - 1);
+        assertMatchesFresh(trees, statistics);
+    }
+
+    @Test
+    void publishedSummariesMatchTheirViews(){
+        Forest forest = new Forest("Published", 43);
+        forest.addRandomTrees(20_000);
+        forest.enableStatistics();
+        forest.enableConcurrentReads();
+        for (int year = 0; year < 8; year++){
+            forest.simulateYearlyGrowth();
+            assertMatchesView(forest.snapshot());
+            forest.reapForest(23 + year * 0.5, ReapSink.NONE);
+            assertMatchesView(forest.snapshot());
+            forest.cutTreeByIndex(year);
+            assertMatchesView(forest.snapshot());
+        }
+    }
+
+    private static void assertMatchesFresh(TreeColumns trees, ForestStatistics statistics){
+        ForestSummary expected = new ForestStatistics(trees, 15, 4).summary();
+        ForestSummary actual = statistics.summary();
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getMinHeight(), actual.getMinHeight());
+        assertEquals(expected.getMaxHeight(), actual.getMaxHeight());
+        assertArrayEquals(expected.getHistogram(), actual.getHistogram());
+        for (TreeSpecies species : SPECIES){
+            assertEquals(expected.getSpeciesCount(species), actual.getSpeciesCount(species));
+        }
+    }
+
+    private static void assertMatchesView(ForestView view){
+        double min = view.getHeight(0);
+        double max = min;
+        for (int row = 1; row < view.size(); row++){
+            min = Math.min(min, view.getHeight(row));
+            max = Math.max(max, view.getHeight(row));
+        }
+        assertEquals(view.size(), view.getSummary().getCount());
+        assertEquals(min, view.getSummary().getMinHeight());
+        assertEquals(max, view.getSummary().getMaxHeight());
+    }
+
+    /**
+     * Draws a height, often one that other trees share, sometimes negative or zero of either sign.
+     */
+    private static double height(Random random){
+        switch (random.nextInt(8)){
+            case 0:
+                return Math.round(random.nextDouble() * 60);
+            case 1:
+                return -random.nextDouble() * 5;
+            case 2:
+                return random.nextBoolean() ? 0.0 : -0.0;
+            default:
+                return random.nextDouble() * 60;
+        }
+    }
+
+    private static int extreme(TreeColumns trees, boolean tallest){
+        int found = 0;
+        for (int row = 1; row < trees.size(); row++){
+            if (tallest ? trees.getHeight(row) > trees.getHeight(found) : trees.getHeight(row) < trees.getHeight(found)){
+                found = row;
+            }
+        }
+        return found;
+    }
+}
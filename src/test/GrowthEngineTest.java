@@ -0,0 +1,119 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the parallel growth path gives exactly the heights of growing each tree in turn, one year or several
+ * at a time, and leaves the growth rates alone.
+ */
+class GrowthEngineTest {
+    private static final int TREES = 300_000;
+
+    private static ForkJoinPool pool;
+    private static GrowthEngine engine;
+
+    @BeforeAll
+    static void startPool(){
+        pool = new ForkJoinPool(4);
+        //Low enough that the forest below is split into many chunks
+        engine = new GrowthEngine(pool, 1 << 12);
+    }
+
+    @AfterAll
+    static void stopPool(){
+        pool.shutdown();
+    }
+
+    @Test
+    void oneYearMatchesSequentialLoop(){
+        TreeColumns columns = forest(1);
+        double[] heights = heights(columns);
+        double[] growthRates = growthRates(columns);
+        for (int year = 0; year < 5; year++){
+            engine.growOneYear(columns);
+            for (int row = 0; row < heights.length; row++){
+                heights[row] = Tree.heightAfterOneYear(heights[row], growthRates[row]);
+            }
+            assertColumns(heights, growthRates, columns);
+        }
+    }
+
+    @Test
+    void severalYearsMatchSequentialClosedForm(){
+        TreeColumns columns = forest(2);
+        double[] heights = heights(columns);
+        double[] growthRates = growthRates(columns);
+        engine.growYears(columns, 7);
+        for (int row = 0; row < heights.length; row++){
+            double yearly = heights[row];
+            for (int year = 0; year < 7; year++){
+                yearly = Tree.heightAfterOneYear(yearly, growthRates[row]);
+            }
+            heights[row] = Tree.heightAfterYears(heights[row], growthRates[row], 7);
+            //The closed form rounds once where the loop rounds every year, so they only agree closely
+            assertEquals(yearly, heights[row], yearly * 1e-12);
+        }
+        assertColumns(heights, growthRates, columns);
+    }
+
+    @Test
+    void growingWithStatisticsMatchesSequentialLoop(){
+        TreeColumns columns = forest(3);
+        ForestStatistics statistics = new ForestStatistics(columns);
+        double[] heights = heights(columns);
+        double[] growthRates = growthRates(columns);
+        engine.growYears(columns, 3, statistics);
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (int row = 0; row < heights.length; row++){
+            heights[row] = Tree.heightAfterYears(heights[row], growthRates[row], 3);
+            min = Math.min(min, heights[row]);
+            max = Math.max(max, heights[row]);
+        }
+        assertColumns(heights, growthRates, columns);
+        ForestSummary summary = statistics.summary();
+        assertEquals(TREES, summary.getCount());
+        assertEquals(min, summary.getMinHeight());
+        assertEquals(max, summary.getMaxHeight());
+        assertEquals(new ForestStatistics(columns).summary().getTotalHeight(), summary.getTotalHeight(),
+                summary.getTotalHeight() * 1e-12);
+    }
+
+    private static TreeColumns forest(long seed){
+        TreeGenerator generator = new TreeGenerator(seed);
+        TreeColumns columns = new TreeColumns(TREES);
+        Tree tree = new Tree(null, 0, 0, 0);
+        for (int row = 0; row < TREES; row++){
+            generator.nextReplacement(tree, 2000);
+            columns.add(tree);
+        }
+        return columns;
+    }
+
+    private static double[] heights(TreeStore columns){
+        double[] heights = new double[columns.size()];
+        for (int row = 0; row < heights.length; row++){
+            heights[row] = columns.getHeight(row);
+        }
+        return heights;
+    }
+
+    private static double[] growthRates(TreeStore columns){
+        double[] growthRates = new double[columns.size()];
+        for (int row = 0; row < growthRates.length; row++){
+            growthRates[row] = columns.getGrowthRate(row);
+        }
+        return growthRates;
+    }
+
+    private static void assertColumns(double[] heights, double[] growthRates, TreeStore columns){
+        assertEquals(heights.length, columns.size());
+        for (int row = 0; row < heights.length; row++){
+            assertEquals(heights[row], columns.getHeight(row), "height of row " + row);
+            assertEquals(growthRates[row], columns.getGrowthRate(row), "growth rate of row " + row);
+        }
+    }
+}
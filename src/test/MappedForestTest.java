@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a memory-mapped forest grows like the same forest on the heap, that closing it closes its file, and that
+ * changes saved to the snapshot's journal are neither missed nor lost by mapping it.
+ */
+class MappedForestTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void growsLikeHeapForestAndClosesItsFile() throws IOException {
+        Forest heap = new Forest("Mapped", 11);
+        heap.addRandomTrees(5_000);
+        Path file = directory.resolve("Mapped.db");
+        ForestSnapshot.write(heap, file);
+
+        MappedTreeStore store;
+        try (Forest mapped = Forest.openMapped(file)){
+            store = (MappedTreeStore) mapped.trees;
+            mapped.simulateYears(3);
+            heap.simulateYears(3);
+            assertEquals(heap.getTreeCount(), mapped.getTreeCount());
+            for (int row = 0; row < heap.getTreeCount(); row++){
+                assertEquals(heap.getTree(row).getHeight(), mapped.getTree(row).getHeight(), "height of row " + row);
+            }
+            store.sync();
+        }
+        assertThrows(ClosedChannelException.class, store::sync);
+    }
+
+    @Test
+    void journaledChangesAreKeptByMapping() throws IOException {
+        String name = directory.resolve("Journaled").toString();
+        Forest heap = new Forest(name, 12);
+        heap.addRandomTrees(100);
+        heap.saveForest();
+        Forest loaded = Forest.loadForest(name);
+        loaded.addRandomTree();
+        loaded.saveForest();
+        assertEquals(101, Forest.loadForest(name).getTreeCount());
+
+        double[] heights = new double[101];
+        try (Forest mapped = Forest.openMapped(Path.of(name + ".db"))){
+            assertEquals(101, mapped.getTreeCount());
+            mapped.simulateYears(2);
+            mapped.saveForest();
+            for (int row = 0; row < heights.length; row++){
+                heights[row] = mapped.getTree(row).getHeight();
+            }
+        }
+        Forest reloaded = Forest.loadForest(name);
+        assertEquals(101, reloaded.getTreeCount());
+        for (int row = 0; row < heights.length; row++){
+            assertEquals(heights[row], reloaded.getTree(row).getHeight(), "height of row " + row);
+        }
+    }
+
+    @Test
+    void unsavedJournalChangesRefuseMapping() throws IOException {
+        String name = directory.resolve("Unsaved").toString();
+        Forest heap = new Forest(name, 13);
+        heap.addRandomTrees(100);
+        heap.saveForest();
+        //More than a batch's worth of records reach the journal without being saved
+        Forest loaded = Forest.loadForest(name);
+        for (int tree = 0; tree < 5_000; tree++){
+            loaded.addRandomTree();
+        }
+
+        IOException error = assertThrows(IOException.class, () -> Forest.openMapped(Path.of(name + ".db")));
+        assertTrue(error.getMessage().contains("unsaved changes"));
+        assertTrue(Forest.loadForest(name).getUnsavedChangeCount() > 0);
+    }
+}
@@ -0,0 +1,171 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a regional forest routes trees and work to the right stand's shard, that work on some stands leaves
+ * the others alone, and that the combined summary matches the stands' trees.
+ */
+class RegionalForestTest {
+    private static final Stand A = new Stand(0, 0);
+    private static final Stand B = new Stand(0, 3);
+    private static final Stand C = new Stand(2, 1);
+    private static final Stand D = new Stand(5, 5);
+
+    @TempDir
+    Path directory;
+
+    private ForestScheduler scheduler;
+    private RegionalForest forest;
+
+    @BeforeEach
+    void plant(){
+        scheduler = new ForestScheduler(2);
+        forest = new RegionalForest(directory.resolve("Region").toString(), scheduler);
+        int trees = 1_000;
+        for (Stand stand : new Stand[]{D, B, A, C}){
+            forest.region(stand).setSeed(stand.getX() * 31L + stand.getY());
+            forest.addRandomTrees(stand, trees);
+            trees += 500;
+        }
+    }
+
+    @AfterEach
+    void stopScheduler(){
+        scheduler.close();
+    }
+
+    @Test
+    void treesAreRoutedToTheirStand() throws IOException {
+        assertEquals(List.of(A, B, C, D), List.copyOf(forest.getStands()));
+        assertEquals(2_000, forest.getRegion(A).getTreeCount());
+        assertEquals(1_500, forest.getRegion(B).getTreeCount());
+        assertEquals(2_500, forest.getRegion(C).getTreeCount());
+        assertEquals(1_000, forest.getRegion(D).getTreeCount());
+        assertNull(forest.getRegion(new Stand(1, 1)));
+
+        Path csv = directory.resolve("stand.csv");
+        Files.writeString(csv, "Birch,2014,72,11.1\nFir,2017,15,15.5\n");
+        forest.readTreesFromCSV(C, csv.toFile());
+        assertEquals(2_502, forest.getRegion(C).getTreeCount());
+        assertEquals(7_002, forest.getTreeCount());
+        assertEquals(4_502, forest.getTreeCount(List.of(A, C, new Stand(9, 9))));
+    }
+
+    @Test
+    void standsWithinVisitsOnlyTheRectangle(){
+        assertEquals(List.of(A, B, C), forest.standsWithin(0, 0, 2, 3));
+        assertEquals(List.of(C), forest.standsWithin(1, 1, 4, 4));
+        assertEquals(List.of(A), forest.standsWithin(-3, -3, 0, 2));
+        assertEquals(List.of(), forest.standsWithin(3, 0, 1, 9));
+        assertEquals(List.of(D), forest.standsWithin(5, 5, 5, 5));
+    }
+
+    @Test
+    void workOnSomeStandsLeavesTheOthersAlone(){
+        double[] heightsOfB = heights(forest.getRegion(B));
+        double[] heightsOfD = heights(forest.getRegion(D));
+        double[] heightsOfA = heights(forest.getRegion(A));
+
+        forest.grow(List.of(A, C), 2);
+        assertArrayEquals(heightsOfB, heights(forest.getRegion(B)));
+        assertArrayEquals(heightsOfD, heights(forest.getRegion(D)));
+        double[] grown = heights(forest.getRegion(A));
+        for (int row = 0; row < grown.length; row++){
+            Tree tree = forest.getRegion(A).getTree(row);
+            assertEquals(Tree.heightAfterYears(heightsOfA[row], tree.getGrowthRate(), 2), grown[row]);
+        }
+
+        forest.reap(List.of(A), 20);
+        for (double height : heights(forest.getRegion(A))){
+            assertTrue(height <= 20, "reaped stand has a tree of " + height);
+        }
+        assertArrayEquals(heightsOfB, heights(forest.getRegion(B)));
+    }
+
+    @Test
+    void searchesReportRowsByStand(){
+        forest.grow(List.of(C), 3);
+        Map<Stand, int[]> found = forest.findTreesTallerThan(List.of(C, A, new Stand(7, 7)), 15);
+        for (Map.Entry<Stand, int[]> entry : found.entrySet()){
+            assertArrayEquals(forest.getRegion(entry.getKey()).findTreesTallerThan(15), entry.getValue());
+        }
+        assertEquals(List.of(A, C), List.copyOf(found.keySet()));
+
+        Map<Stand, int[]> birches = forest.findTrees(List.of(B, D), TreeSpecies.BIRCH, 0, 9999);
+        assertArrayEquals(forest.getRegion(B).findTrees(TreeSpecies.BIRCH, 0, 9999), birches.get(B));
+        assertArrayEquals(forest.getRegion(D).findTrees(TreeSpecies.BIRCH, 0, 9999), birches.get(D));
+    }
+
+    @Test
+    void summaryCombinesTheChosenStands(){
+        forest.grow(List.of(B), 4);
+        List<Stand> stands = Arrays.asList(B, C, D);
+        ForestSummary summary = forest.getSummary(stands);
+
+        int count = 0;
+        double total = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        int[] species = new int[TreeSpecies.values().length];
+        for (Stand stand : stands){
+            Forest shard = forest.getRegion(stand);
+            for (int row = 0; row < shard.getTreeCount(); row++){
+                Tree tree = shard.getTree(row);
+                count++;
+                total += tree.getHeight();
+                min = Math.min(min, tree.getHeight());
+                max = Math.max(max, tree.getHeight());
+                species[tree.getSpecies().ordinal()]++;
+            }
+        }
+        assertEquals(count, summary.getCount());
+        assertEquals(total, summary.getTotalHeight(), total * 1e-12);
+        assertEquals(min, summary.getMinHeight());
+        assertEquals(max, summary.getMaxHeight());
+        for (TreeSpecies treeSpecies : TreeSpecies.values()){
+            assertEquals(species[treeSpecies.ordinal()], summary.getSpeciesCount(treeSpecies));
+        }
+    }
+
+    @Test
+    void savedForestLoadsEveryStand() throws IOException {
+        forest.saveAll();
+        try (ForestScheduler other = new ForestScheduler(1)){
+            RegionalForest loaded = RegionalForest.load(forest.getForestName(), other);
+            assertEquals(forest.getStands(), loaded.getStands());
+            for (Stand stand : forest.getStands()){
+                assertArrayEquals(heights(forest.getRegion(stand)), heights(loaded.getRegion(stand)));
+            }
+        }
+    }
+
+    @Test
+    void standsParseAsTheyPrint(){
+        assertEquals(C, Stand.parse(C.toString()));
+        assertEquals(new Stand(12, 7), Stand.parse(" 12 , 7 "));
+        assertThrows(IllegalArgumentException.class, () -> Stand.parse("12"));
+        assertThrows(IllegalArgumentException.class, () -> Stand.parse("1,-2"));
+        assertThrows(IllegalArgumentException.class, () -> Stand.parse("a,b"));
+    }
+
+    private static double[] heights(Forest shard){
+        double[] heights = new double[shard.getTreeCount()];
+        for (int row = 0; row < heights.length; row++){
+            heights[row] = shard.getTree(row).getHeight();
+        }
+        return heights;
+    }
+}